@@ -0,0 +1,715 @@
+package bench;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import components.map.Map;
+import components.simplewriter.SimpleWriter;
+import components.simplewriter.SimpleWriter1L;
+
+/**
+ * Benchmarks of the public methods of {@code Glossary} and of a whole run, on
+ * synthetic glossaries from {@link SyntheticGlossary}. Throughput is measured
+ * by JMH; run with {@code -prof gc} (as {@link #main(String[])} does) to also
+ * get the allocation rate of each benchmark.
+ *
+ * <p>
+ * The program lives in the default package, which a named package cannot
+ * import, so its methods are called through constant method handles. JMH
+ * constant-folds these, so the calls cost the same as direct ones.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GlossaryBenchmark {
+
+    /**
+     * Lookup of the public members of the program.
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    /**
+     * {@code Glossary.createGlossary(String)}.
+     */
+    private static final MethodHandle CREATE_GLOSSARY = staticMethod("Glossary",
+            "createGlossary", MethodType.methodType(Map.class, String.class));
+
+    /**
+     * {@code MappedGlossaryReader.createGlossary(String)}.
+     */
+    private static final MethodHandle CREATE_GLOSSARY_MAPPED = staticMethod(
+            "MappedGlossaryReader", "createGlossary",
+            MethodType.methodType(Map.class, String.class));
+
+    /**
+     * {@code Glossary.createLinkMap(Map)}.
+     */
+    private static final MethodHandle CREATE_LINK_MAP = staticMethod("Glossary",
+            "createLinkMap", MethodType.methodType(Map.class, Map.class));
+
+    /**
+     * {@code Glossary.linkingWords(String, Map, Map)}.
+     */
+    private static final MethodHandle LINKING_WORDS = staticMethod("Glossary",
+            "linkingWords",
+            MethodType.methodType(String.class, String.class, Map.class, Map.class));
+
+    /**
+     * {@code Glossary.outputTermPage(Map, String, SimpleWriter, Map)}.
+     */
+    private static final MethodHandle OUTPUT_TERM_PAGE = staticMethod("Glossary",
+            "outputTermPage", MethodType.methodType(void.class, Map.class,
+                    String.class, SimpleWriter.class, Map.class));
+
+    /**
+     * {@code Glossary.outputIndexPage(Map, SimpleWriter, Map)}.
+     */
+    private static final MethodHandle OUTPUT_INDEX_PAGE = staticMethod("Glossary",
+            "outputIndexPage", MethodType.methodType(void.class, Map.class,
+                    SimpleWriter.class, Map.class));
+
+    /**
+     * Number of definitions the per-definition benchmarks cycle through.
+     */
+    private static final int SAMPLES = 256;
+
+    /**
+     * {@code new TermLinker(GlossaryModel)} on an {@code Object} model,
+     * returning an {@code Object}.
+     */
+    private static final MethodHandle NEW_TERM_LINKER;
+
+    /**
+     * {@code new TermLinker(GlossaryModel, null, true)} on an {@code Object}
+     * model, returning an {@code Object} linker of case variants and plurals.
+     */
+    private static final MethodHandle NEW_LOOSE_TERM_LINKER;
+
+    /**
+     * {@code TermLinker.link(String)} on an {@code Object} receiver.
+     */
+    private static final MethodHandle LINK;
+
+    /**
+     * {@code GlossaryModel.of(Map)}, returning an {@code Object}.
+     */
+    private static final MethodHandle MODEL_OF;
+
+    /**
+     * {@code GlossaryModel.read(String)}, returning an {@code Object}.
+     */
+    private static final MethodHandle MODEL_READ;
+
+    /**
+     * {@code ParallelGlossaryReader.read(String, int)}, returning an
+     * {@code Object}.
+     */
+    private static final MethodHandle PARALLEL_READ;
+
+    /**
+     * {@code Glossary.writePages(GlossaryModel, TermLinker, PageWriter, int)}
+     * with {@code Object} model, linker and page writer.
+     */
+    private static final MethodHandle WRITE_PAGES;
+
+    /**
+     * {@code TermPages.write(GlossaryModel, TermLinker, PageWriter, int)} with
+     * {@code Object} model, linker and page writer.
+     */
+    private static final MethodHandle WRITE_TERM_PAGES;
+
+    /**
+     * {@code GlossarySnapshot.load(String, String)}, returning an
+     * {@code Object}.
+     */
+    private static final MethodHandle SNAPSHOT_LOAD;
+
+    /**
+     * {@code GlossarySnapshot.write(GlossaryModel, String, String)} with an
+     * {@code Object} model.
+     */
+    private static final MethodHandle SNAPSHOT_WRITE;
+
+    /**
+     * {@code TermPages.write(GlossaryModel, TermLinker, ReferenceGraph,
+     * PageTemplate, PageWriter, int)} with {@code Object} arguments.
+     */
+    private static final MethodHandle WRITE_TERM_PAGES_TEMPLATE;
+
+    /**
+     * {@code PageTemplate.compile(String, PageTemplate.termSlots())},
+     * returning an {@code Object}.
+     */
+    private static final MethodHandle COMPILE_TERM_TEMPLATE;
+
+    /**
+     * The built-in layout of the term pages as a template layout.
+     */
+    private static final String TERM_LAYOUT = String.join(System.lineSeparator(),
+            "<html>", "   <head>", "     <title>{{term}}</title>", "   </head>",
+            "   <body>", "     <h2>", "       <b>", "        <i>",
+            "         <font color=\"red\">{{term}}</font>", "        </i>",
+            "       </b>", "     </h2>", "     <blockquote>{{definition}}</blockquote>",
+            "     <hr>", "     <main>", "       <p>Return to {{index}}.</p>",
+            "     </main>", "   </body>", "</html>");
+
+    /**
+     * {@code new FolderPageWriter(String)}, returning an {@code Object}.
+     */
+    private static final MethodHandle NEW_FOLDER_PAGE_WRITER;
+
+    /**
+     * {@code new ZipPageWriter(String, boolean)}, returning a
+     * {@code Closeable}.
+     */
+    private static final MethodHandle NEW_ZIP_PAGE_WRITER;
+
+    /**
+     * {@code new PipelinedPageWriter(PageWriter, int)}, taking an
+     * {@code Object} and returning a {@code Closeable}.
+     */
+    private static final MethodHandle NEW_PIPELINED_PAGE_WRITER;
+
+    static {
+        try {
+            Class<?> model = Class.forName("GlossaryModel");
+            MODEL_OF = LOOKUP
+                    .findStatic(model, "of", MethodType.methodType(model, Map.class))
+                    .asType(MethodType.methodType(Object.class, Map.class));
+            MODEL_READ = LOOKUP
+                    .findStatic(model, "read", MethodType.methodType(model, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            PARALLEL_READ = LOOKUP
+                    .findStatic(Class.forName("ParallelGlossaryReader"), "read",
+                            MethodType.methodType(model, String.class, int.class))
+                    .asType(MethodType.methodType(Object.class, String.class,
+                            int.class));
+            Class<?> linker = Class.forName("TermLinker");
+            NEW_TERM_LINKER = LOOKUP
+                    .findConstructor(linker, MethodType.methodType(void.class, model))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            NEW_LOOSE_TERM_LINKER = MethodHandles.insertArguments(LOOKUP
+                    .findConstructor(linker, MethodType.methodType(void.class, model,
+                            Class.forName("RunProfile"), boolean.class))
+                    .asType(MethodType.methodType(Object.class, Object.class,
+                            Object.class, boolean.class)),
+                    1, null, true);
+            LINK = LOOKUP
+                    .findVirtual(linker, "link",
+                            MethodType.methodType(String.class, String.class))
+                    .asType(MethodType.methodType(String.class, Object.class,
+                            String.class));
+            Class<?> pageWriter = Class.forName("PageWriter");
+            MethodType writeType = MethodType.methodType(void.class, model, linker,
+                    pageWriter, int.class);
+            MethodType objectWriteType = MethodType.methodType(void.class,
+                    Object.class, Object.class, Object.class, int.class);
+            WRITE_PAGES = LOOKUP
+                    .findStatic(Class.forName("Glossary"), "writePages", writeType)
+                    .asType(objectWriteType);
+            WRITE_TERM_PAGES = LOOKUP
+                    .findStatic(Class.forName("TermPages"), "write", writeType)
+                    .asType(objectWriteType);
+            Class<?> snapshot = Class.forName("GlossarySnapshot");
+            SNAPSHOT_LOAD = LOOKUP
+                    .findStatic(snapshot, "load",
+                            MethodType.methodType(model, String.class, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class,
+                            String.class));
+            SNAPSHOT_WRITE = LOOKUP
+                    .findStatic(snapshot, "write",
+                            MethodType.methodType(void.class, model, String.class,
+                                    String.class))
+                    .asType(MethodType.methodType(void.class, Object.class,
+                            String.class, String.class));
+            Class<?> template = Class.forName("PageTemplate");
+            WRITE_TERM_PAGES_TEMPLATE = LOOKUP
+                    .findStatic(Class.forName("TermPages"), "write",
+                            MethodType.methodType(void.class, model, linker,
+                                    Class.forName("ReferenceGraph"), template,
+                                    pageWriter, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class,
+                            Object.class, Object.class, Object.class, Object.class,
+                            int.class));
+            COMPILE_TERM_TEMPLATE = MethodHandles.insertArguments(LOOKUP
+                    .findStatic(template, "compile",
+                            MethodType.methodType(template, String.class, Set.class))
+                    .asType(MethodType.methodType(Object.class, String.class,
+                            Set.class)),
+                    1, template.getMethod("termSlots").invoke(null));
+            NEW_FOLDER_PAGE_WRITER = LOOKUP
+                    .findConstructor(Class.forName("FolderPageWriter"),
+                            MethodType.methodType(void.class, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            NEW_ZIP_PAGE_WRITER = LOOKUP
+                    .findConstructor(Class.forName("ZipPageWriter"),
+                            MethodType.methodType(void.class, String.class,
+                                    boolean.class))
+                    .asType(MethodType.methodType(Closeable.class, String.class,
+                            boolean.class));
+            NEW_PIPELINED_PAGE_WRITER = LOOKUP
+                    .findConstructor(Class.forName("PipelinedPageWriter"),
+                            MethodType.methodType(void.class,
+                                    Class.forName("PageWriter"), int.class))
+                    .asType(MethodType.methodType(Closeable.class, Object.class,
+                            int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Number of terms of the glossary.
+     */
+    @Param({ "1000", "50000" })
+    private int terms;
+
+    /**
+     * Number of words of each definition.
+     */
+    @Param({ "20", "200" })
+    private int words;
+
+    /**
+     * Fraction of the definition words that are terms.
+     */
+    @Param({ "0.05", "0.5" })
+    private double density;
+
+    /**
+     * The generated input file.
+     */
+    private Path input;
+
+    /**
+     * Folder the end-to-end benchmark writes to.
+     */
+    private Path output;
+
+    /**
+     * The glossary of {@code input}.
+     */
+    private Map<String, String> glossary;
+
+    /**
+     * The link map of {@code glossary}.
+     */
+    private Map<String, String> linkMap;
+
+    /**
+     * The snapshot of {@code input}, in {@code output}.
+     */
+    private Path snapshot;
+
+    /**
+     * The {@code GlossaryModel} of {@code glossary}.
+     */
+    private Object model;
+
+    /**
+     * The {@code TermLinker} of {@code model}.
+     */
+    private Object linker;
+
+    /**
+     * The {@code TermLinker} of {@code model} linking case variants and
+     * plurals too.
+     */
+    private Object looseLinker;
+
+    /**
+     * Definitions of the per-definition benchmarks.
+     */
+    private String[] definitions;
+
+    /**
+     * Terms of the per-page benchmarks.
+     */
+    private String[] sampleTerms;
+
+    /**
+     * Writer discarding the pages of the per-page benchmarks.
+     */
+    private SimpleWriter sink;
+
+    /**
+     * Index of the next sample.
+     */
+    private int next;
+
+    /**
+     * Returns the handle of a public static method of the program.
+     *
+     * @param className
+     *            the class of the method
+     * @param name
+     *            the name of the method
+     * @param type
+     *            the type of the method
+     * @return the method handle
+     */
+    private static MethodHandle staticMethod(String className, String name,
+            MethodType type) {
+        try {
+            return LOOKUP.findStatic(Class.forName(className), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Generates the input file and parses it once.
+     *
+     * @throws Throwable
+     *             if the input cannot be generated or parsed
+     */
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Throwable {
+        this.input = Files.createTempFile("glossary-bench", ".txt");
+        this.output = Files.createTempDirectory("glossary-bench");
+        SyntheticGlossary.write(this.input, this.terms, this.words, this.density,
+                this.terms);
+        this.glossary = (Map<String, String>) CREATE_GLOSSARY
+                .invokeExact(this.input.toString());
+        this.linkMap = (Map<String, String>) CREATE_LINK_MAP.invokeExact(this.glossary);
+        this.model = (Object) MODEL_OF.invokeExact(this.glossary);
+        this.linker = (Object) NEW_TERM_LINKER.invokeExact(this.model);
+        this.looseLinker = (Object) NEW_LOOSE_TERM_LINKER.invokeExact(this.model);
+        this.snapshot = this.output.resolve("input.snapshot");
+        SNAPSHOT_WRITE.invokeExact(this.model, this.input.toString(),
+                this.snapshot.toString());
+
+        SplittableRandom random = new SplittableRandom(this.terms);
+        this.definitions = new String[SAMPLES];
+        this.sampleTerms = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            this.definitions[i] = SyntheticGlossary.definition(random, this.terms,
+                    this.words, this.density, false);
+            this.sampleTerms[i] = SyntheticGlossary.term(random.nextInt(this.terms));
+        }
+        this.sink = new SimpleWriter1L(nullDevice());
+    }
+
+    /**
+     * Deletes the generated files.
+     *
+     * @throws IOException
+     *             if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.sink.close();
+        Files.deleteIfExists(this.input);
+        try (Stream<Path> pages = Files.list(this.output)) {
+            for (Path page : (Iterable<Path>) pages::iterator) {
+                Files.delete(page);
+            }
+        }
+        Files.delete(this.output);
+    }
+
+    /**
+     * Returns the path of the file discarding what is written to it.
+     *
+     * @return the null device
+     */
+    private static String nullDevice() {
+        String result = "/dev/null";
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            result = "NUL";
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the next sample.
+     *
+     * @return the index of the next sample
+     */
+    private int nextSample() {
+        this.next = (this.next + 1) & (SAMPLES - 1);
+        return this.next;
+    }
+
+    /**
+     * Parses the input with {@code Glossary.createGlossary}.
+     *
+     * @return the glossary
+     * @throws Throwable
+     *             if the input cannot be parsed
+     */
+    @Benchmark
+    public Object createGlossary() throws Throwable {
+        return (Map<?, ?>) CREATE_GLOSSARY.invokeExact(this.input.toString());
+    }
+
+    /**
+     * Parses the input with {@code MappedGlossaryReader.createGlossary}.
+     *
+     * @return the glossary
+     * @throws Throwable
+     *             if the input cannot be parsed
+     */
+    @Benchmark
+    public Object createGlossaryMapped() throws Throwable {
+        return (Map<?, ?>) CREATE_GLOSSARY_MAPPED.invokeExact(this.input.toString());
+    }
+
+    /**
+     * Reads the input into a {@code GlossaryModel} with
+     * {@code GlossaryModel.read}, without building a {@code Map}.
+     *
+     * @return the glossary model
+     * @throws Throwable
+     *             if the input cannot be parsed
+     */
+    @Benchmark
+    public Object readGlossaryModel() throws Throwable {
+        return (Object) MODEL_READ.invokeExact(this.input.toString());
+    }
+
+    /**
+     * Reads the input into a {@code GlossaryModel} with
+     * {@code ParallelGlossaryReader.read} on every available processor, to
+     * compare with {@link #readGlossaryModel()}.
+     *
+     * @return the glossary model
+     * @throws Throwable
+     *             if the input cannot be parsed
+     */
+    @Benchmark
+    public Object readGlossaryModelParallel() throws Throwable {
+        return (Object) PARALLEL_READ.invokeExact(this.input.toString(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads the {@code GlossaryModel} of the input from its snapshot with
+     * {@code GlossarySnapshot.load}, to compare with
+     * {@link #readGlossaryModel()}.
+     *
+     * @return the glossary model
+     * @throws Throwable
+     *             if the snapshot cannot be loaded
+     */
+    @Benchmark
+    public Object loadGlossarySnapshot() throws Throwable {
+        return (Object) SNAPSHOT_LOAD.invokeExact(this.input.toString(),
+                this.snapshot.toString());
+    }
+
+    /**
+     * Builds the link map with {@code Glossary.createLinkMap}.
+     *
+     * @return the link map
+     * @throws Throwable
+     *             if the link map cannot be built
+     */
+    @Benchmark
+    public Object createLinkMap() throws Throwable {
+        return (Map<?, ?>) CREATE_LINK_MAP.invokeExact(this.glossary);
+    }
+
+    /**
+     * Links one definition with {@code Glossary.linkingWords}.
+     *
+     * @return the linked definition
+     * @throws Throwable
+     *             if the definition cannot be linked
+     */
+    @Benchmark
+    public String linkingWords() throws Throwable {
+        return (String) LINKING_WORDS.invokeExact(this.definitions[this.nextSample()],
+                this.glossary, this.linkMap);
+    }
+
+    /**
+     * Links one definition with the precompiled {@code TermLinker}.
+     *
+     * @return the linked definition
+     * @throws Throwable
+     *             if the definition cannot be linked
+     */
+    @Benchmark
+    public String termLinkerLink() throws Throwable {
+        return (String) LINK.invokeExact(this.linker,
+                this.definitions[this.nextSample()]);
+    }
+
+    /**
+     * Links one definition with a {@code TermLinker} also linking case
+     * variants and plurals, to compare with {@link #termLinkerLink()}.
+     *
+     * @return the linked definition
+     * @throws Throwable
+     *             if the definition cannot be linked
+     */
+    @Benchmark
+    public String termLinkerLinkLoose() throws Throwable {
+        return (String) LINK.invokeExact(this.looseLinker,
+                this.definitions[this.nextSample()]);
+    }
+
+    /**
+     * Writes one term page with {@code Glossary.outputTermPage}.
+     *
+     * @throws Throwable
+     *             if the page cannot be written
+     */
+    @Benchmark
+    public void outputTermPage() throws Throwable {
+        OUTPUT_TERM_PAGE.invokeExact(this.glossary, this.sampleTerms[this.nextSample()],
+                this.sink, this.linkMap);
+    }
+
+    /**
+     * Writes the index page with {@code Glossary.outputIndexPage}.
+     *
+     * @throws Throwable
+     *             if the page cannot be written
+     */
+    @Benchmark
+    public void outputIndexPage() throws Throwable {
+        OUTPUT_INDEX_PAGE.invokeExact(this.glossary, this.sink, this.linkMap);
+    }
+
+    /**
+     * A whole run: parses the input, builds the linker and
+     * writes the index and every term page to a folder.
+     *
+     * @throws Throwable
+     *             if the glossary cannot be generated
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    @SuppressWarnings("unchecked")
+    public void endToEnd() throws Throwable {
+        Map<String, String> parsed = (Map<String, String>) CREATE_GLOSSARY
+                .invokeExact(this.input.toString());
+        Object parsedModel = (Object) MODEL_OF.invokeExact(parsed);
+        Object termLinker = (Object) NEW_TERM_LINKER.invokeExact(parsedModel);
+        Object pages = (Object) NEW_FOLDER_PAGE_WRITER
+                .invokeExact(this.output.toString());
+        WRITE_PAGES.invokeExact(parsedModel, termLinker, pages, 1);
+    }
+
+    /**
+     * Writes every term page into a single deflated ZIP archive instead of one
+     * file each, to compare with the folder writes of {@link #endToEnd()}.
+     *
+     * @throws Throwable
+     *             if the archive cannot be written
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public void termPagesArchive() throws Throwable {
+        String archive = this.output.resolve("glossary.zip").toString();
+        Closeable pages = (Closeable) NEW_ZIP_PAGE_WRITER.invokeExact(archive, false);
+        WRITE_TERM_PAGES.invokeExact(this.model, this.linker, (Object) pages, 1);
+        pages.close();
+    }
+
+    /**
+     * Writes every term page into the output folder in the built-in layout.
+     *
+     * @throws Throwable
+     *             if a page cannot be written
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public void termPages() throws Throwable {
+        Object pages = (Object) NEW_FOLDER_PAGE_WRITER
+                .invokeExact(this.output.toString());
+        WRITE_TERM_PAGES.invokeExact(this.model, this.linker, pages, 1);
+    }
+
+    /**
+     * Writes every term page into the output folder as {@link #termPages()}
+     * does, from writer threads while the next pages are rendered.
+     *
+     * @throws Throwable
+     *             if a page cannot be written
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public void termPagesPipelined() throws Throwable {
+        Object folder = (Object) NEW_FOLDER_PAGE_WRITER
+                .invokeExact(this.output.toString());
+        Closeable pages = (Closeable) NEW_PIPELINED_PAGE_WRITER.invokeExact(folder, 16);
+        WRITE_TERM_PAGES.invokeExact(this.model, this.linker, (Object) pages, 1);
+        pages.close();
+    }
+
+    /**
+     * Writes every term page into the output folder in the same layout as
+     * {@link #termPages()}, compiled from a template, the template being
+     * compiled once per run as {@code Glossary.generate} does.
+     *
+     * @throws Throwable
+     *             if a page cannot be written
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5)
+    public void termPagesTemplate() throws Throwable {
+        Object template = (Object) COMPILE_TERM_TEMPLATE.invokeExact(TERM_LAYOUT);
+        Object pages = (Object) NEW_FOLDER_PAGE_WRITER
+                .invokeExact(this.output.toString());
+        WRITE_TERM_PAGES_TEMPLATE.invokeExact(this.model, this.linker, (Object) null,
+                template, pages, 1);
+    }
+
+    /**
+     * Runs all benchmarks with the allocation profiler.
+     *
+     * @param args
+     *            the command line arguments; unused here
+     * @throws RunnerException
+     *             if the benchmarks cannot be run
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(GlossaryBenchmark.class.getName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+
+}
@@ -0,0 +1,116 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates glossary input files of a given shape for the benchmarks: the
+ * number of terms, the number of words per definition and the fraction of
+ * definition words that are references to other terms.
+ */
+public final class SyntheticGlossary {
+
+    /**
+     * Ordinary words used for the definition words that are not terms. None of
+     * them is a generated term.
+     */
+    private static final String[] FILLER = {
+        "a", "the", "of", "and", "or", "is", "which", "with", "that", "by",
+        "usually", "printed", "list", "set", "sequence", "string", "convey",
+        "especially", "difficult", "specialized", "near", "end", "each",
+    };
+
+    /**
+     * Number of words written on each line of a definition.
+     */
+    private static final int WORDS_PER_LINE = 12;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private SyntheticGlossary() {
+    }
+
+    /**
+     * Returns the generated term number {@code i}.
+     *
+     * @param i
+     *            the number of the term
+     * @return the term
+     */
+    public static String term(int i) {
+        return "g" + Integer.toString(i, Character.MAX_RADIX);
+    }
+
+    /**
+     * Returns a generated definition.
+     *
+     * @param random
+     *            the source of randomness
+     * @param terms
+     *            number of terms of the glossary
+     * @param words
+     *            number of words of the definition
+     * @param density
+     *            fraction of the words that are terms
+     * @param lineBreaks
+     *            whether to break the definition into lines
+     * @return the definition
+     */
+    public static String definition(SplittableRandom random, int terms, int words,
+            double density, boolean lineBreaks) {
+        StringBuilder definition = new StringBuilder();
+        for (int w = 0; w < words; w++) {
+            if (w > 0) {
+                if (lineBreaks && w % WORDS_PER_LINE == 0) {
+                    definition.append('\n');
+                } else if (random.nextInt(8) == 0) {
+                    definition.append(", ");
+                } else {
+                    definition.append(' ');
+                }
+            }
+            if (random.nextDouble() < density) {
+                definition.append(term(random.nextInt(terms)));
+            } else {
+                definition.append(FILLER[random.nextInt(FILLER.length)]);
+            }
+        }
+        return definition.append('.').toString();
+    }
+
+    /**
+     * Writes a glossary input file.
+     *
+     * @param file
+     *            the file to write
+     * @param terms
+     *            number of terms
+     * @param words
+     *            number of words of each definition
+     * @param density
+     *            fraction of the definition words that are terms
+     * @param seed
+     *            seed of the random generator, equal seeds give equal files
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void write(Path file, int terms, int words, double density,
+            long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file,
+                StandardCharsets.UTF_8)) {
+            for (int i = 0; i < terms; i++) {
+                out.write(term(i));
+                out.write('\n');
+                out.write(definition(random, terms, words, density, true));
+                out.write("\n\n");
+            }
+        }
+    }
+
+}
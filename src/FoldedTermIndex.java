@@ -0,0 +1,264 @@
+/**
+ * Lookup from words to the terms of a {@link TermIndex} that ignores case and
+ * simple plural endings, so that "Glossary", "terms" or "glossaries" find the
+ * terms "glossary" and "term". Every term is folded once into an open
+ * addressing hash table keyed by the hash of its folded characters; a word is
+ * then folded character by character in place while it is hashed and
+ * compared, through a precomputed table for ASCII, so a lookup neither
+ * allocates nor copies the word. Immutable, so an index can be shared by all
+ * the workers.
+ */
+public final class FoldedTermIndex {
+
+    /**
+     * Smallest number of characters left once a plural ending is removed, so
+     * that short words such as "is" or "as" are not taken for plurals.
+     */
+    private static final int MIN_STEM = 3;
+
+    /**
+     * Folded form of every ASCII character.
+     */
+    private static final char[] ASCII_FOLD = new char[128];
+
+    static {
+        for (char c = 0; c < ASCII_FOLD.length; c++) {
+            ASCII_FOLD[c] = c;
+            if ('A' <= c && c <= 'Z') {
+                ASCII_FOLD[c] = (char) (c - 'A' + 'a');
+            }
+        }
+    }
+
+    /**
+     * The terms and their exact lookup.
+     */
+    private final TermIndex index;
+
+    /**
+     * Hash of the folded characters of every term, by id.
+     */
+    private final int[] hashes;
+
+    /**
+     * The hash table, each slot holds an id plus one, 0 for an empty slot.
+     */
+    private final int[] slots;
+
+    /**
+     * slots.length - 1, slots.length being a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Builds the folded lookup of the terms of {@code index}. Of terms that
+     * only differ by case, the one with the smallest id is found.
+     *
+     * @param index
+     *            the terms
+     * @ensures [id(text, start, end) finds the terms of index ignoring case
+     *          and plural endings]
+     */
+    public FoldedTermIndex(TermIndex index) {
+        assert index != null : "Violation of: index is not null";
+
+        this.index = index;
+        this.hashes = new int[index.size()];
+        //keep the table at most half full so that probe sequences stay short
+        this.slots = new int[Integer.highestOneBit(Math.max(index.size(), 1) * 2) * 2];
+        this.mask = this.slots.length - 1;
+        for (int id = 0; id < index.size(); id++) {
+            String term = index.term(id);
+            int hash = hash(term, 0, term.length(), (char) 0);
+            this.hashes[id] = hash;
+            if (this.find(term, 0, term.length(), (char) 0, hash)
+                    == TermIndex.NOT_FOUND) {
+                int slot = spread(hash) & this.mask;
+                while (this.slots[slot] != 0) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.slots[slot] = id + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the folded form of {@code c}.
+     *
+     * @param c
+     *            the character
+     * @return c in lower case
+     */
+    private static char fold(char c) {
+        char folded;
+        if (c < ASCII_FOLD.length) {
+            folded = ASCII_FOLD[c];
+        } else {
+            folded = Character.toLowerCase(c);
+        }
+        return folded;
+    }
+
+    /**
+     * Spreads the high bits of a hash code over the low bits the table
+     * indexes with.
+     *
+     * @param hash
+     *            the hash code
+     * @return the spread hash code
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the hash of the folded characters of text[start, end) followed
+     * by {@code last} if it is not 0.
+     *
+     * @param text
+     *            the text holding the word
+     * @param start
+     *            index of the first character of the word
+     * @param end
+     *            index past the last character of the word
+     * @param last
+     *            a character ending the word, 0 for none
+     * @return the hash of the folded word
+     */
+    private static int hash(String text, int start, int end, char last) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + fold(text.charAt(i));
+        }
+        if (last != 0) {
+            hash = 31 * hash + last;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the id of the term whose folded form is the folded text[start,
+     * end) followed by {@code last} if it is not 0, or
+     * {@link TermIndex#NOT_FOUND}.
+     *
+     * @param text
+     *            the text holding the word
+     * @param start
+     *            index of the first character of the word
+     * @param end
+     *            index past the last character of the word
+     * @param last
+     *            a folded character ending the word, 0 for none
+     * @param hash
+     *            the hash of the folded word
+     * @return the id of the term, or NOT_FOUND
+     */
+    private int find(String text, int start, int end, char last, int hash) {
+        int length = end - start;
+        if (last != 0) {
+            length++;
+        }
+        int found = TermIndex.NOT_FOUND;
+        int slot = spread(hash) & this.mask;
+        int id = this.slots[slot] - 1;
+        while (id != TermIndex.NOT_FOUND && found == TermIndex.NOT_FOUND) {
+            String term = this.index.term(id);
+            if (term.length() == length && this.hashes[id] == hash
+                    && foldedEquals(term, text, start, end, last)) {
+                found = id;
+            }
+            slot = (slot + 1) & this.mask;
+            id = this.slots[slot] - 1;
+        }
+        return found;
+    }
+
+    /**
+     * Returns whether the folded {@code term} is the folded text[start, end)
+     * followed by {@code last} if it is not 0.
+     *
+     * @param term
+     *            the term
+     * @param text
+     *            the text holding the word
+     * @param start
+     *            index of the first character of the word
+     * @param end
+     *            index past the last character of the word
+     * @param last
+     *            a folded character ending the word, 0 for none
+     * @return whether the folded term and word are equal
+     * @requires |term| = end - start + (1 if last /= 0)
+     */
+    private static boolean foldedEquals(String term, String text, int start,
+            int end, char last) {
+        boolean equal = true;
+        int i = 0;
+        while (equal && start + i < end) {
+            equal = fold(term.charAt(i)) == fold(text.charAt(start + i));
+            i++;
+        }
+        return equal && (last == 0 || fold(term.charAt(i)) == last);
+    }
+
+    /**
+     * Returns whether the folded text[end - suffix.length, end) is
+     * {@code suffix}, leaving at least {@link #MIN_STEM} characters before it
+     * in text[start, end).
+     *
+     * @param text
+     *            the text holding the word
+     * @param start
+     *            index of the first character of the word
+     * @param end
+     *            index past the last character of the word
+     * @param suffix
+     *            the folded ending
+     * @return whether the word has the ending
+     */
+    private static boolean endsWith(String text, int start, int end,
+            String suffix) {
+        boolean ends = end - start - suffix.length() >= MIN_STEM;
+        for (int i = 0; ends && i < suffix.length(); i++) {
+            ends = fold(text.charAt(end - suffix.length() + i)) == suffix.charAt(i);
+        }
+        return ends;
+    }
+
+    /**
+     * Returns the id of the term that the word text[start, end) is, ignoring
+     * case and a plural ending "s", "es" or "ies" (for "y"), or
+     * {@link TermIndex#NOT_FOUND} if it is none. The word as it is comes
+     * first, then without its ending.
+     *
+     * @param text
+     *            the text holding the word
+     * @param start
+     *            index of the first character of the word
+     * @param end
+     *            index past the last character of the word
+     * @return the id of the term, or NOT_FOUND
+     * @requires 0 <= start <= end <= |text|
+     */
+    public int id(String text, int start, int end) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= start && start <= end : "Violation of: 0 <= start <= end";
+        assert end <= text.length() : "Violation of: end <= |text|";
+
+        int id = this.find(text, start, end, (char) 0,
+                hash(text, start, end, (char) 0));
+        if (id == TermIndex.NOT_FOUND && endsWith(text, start, end, "s")) {
+            id = this.find(text, start, end - 1, (char) 0,
+                    hash(text, start, end - 1, (char) 0));
+        }
+        if (id == TermIndex.NOT_FOUND && endsWith(text, start, end, "es")) {
+            id = this.find(text, start, end - 2, (char) 0,
+                    hash(text, start, end - 2, (char) 0));
+        }
+        if (id == TermIndex.NOT_FOUND && endsWith(text, start, end, "ies")) {
+            id = this.find(text, start, end - 3, 'y', hash(text, start, end - 3, 'y'));
+        }
+        return id;
+    }
+
+}
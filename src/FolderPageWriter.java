@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes each page to a file of an output folder, with one channel write of
+ * the whole page. Safe to use from several threads at once.
+ */
+public final class FolderPageWriter implements PageWriter {
+
+    /**
+     * The output folder.
+     */
+    private final Path folder;
+
+    /**
+     * Creates the writer of the pages in {@code folderPath}.
+     *
+     * @param folderPath
+     *            the output folder
+     * @requires {@code folderPath} is an existing folder
+     */
+    public FolderPageWriter(String folderPath) {
+        assert folderPath != null : "Violation of: folderPath is not null";
+
+        this.folder = Paths.get(folderPath);
+    }
+
+    @Override
+    public void write(String name, PageBuffer page) {
+        assert name != null : "Violation of: name is not null";
+        assert page != null : "Violation of: page is not null";
+
+        Path file = this.folder.resolve(name);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = page.asByteBuffer();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + file, e);
+        }
+    }
+
+}
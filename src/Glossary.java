@@ -1,9 +1,10 @@
+import java.io.File;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.function.BiConsumer;
 
 import components.map.Map;
 import components.map.Map1L;
-import components.queue.Queue;
-import components.queue.Queue1L;
 import components.set.Set;
 import components.set.Set1L;
 import components.simplereader.SimpleReader;
@@ -26,6 +27,17 @@ public final class Glossary {
     private Glossary() {
     }
 
+    /**
+     * Characters that separate the words of a definition.
+     */
+    public static final String SEPARATORS = ",.\"\';:()[]@!#$%^&*-=+{}\\?<>/|~`"
+            + " ";
+
+    /**
+     * HTML hyperlink to the index page.
+     */
+    public static final String INDEX_LINK = "<a href=\"index.html\">index</a>";
+
     /**
      * Compare {@code String}s in lexicographic order.(for test purpose made it
      * public).
@@ -82,27 +94,280 @@ public final class Glossary {
         String definitionWithLinks = linkingWords(glossary.value(term), glossary,
                 linkMap);
 
-        //write the HTML code
-        out.println("<html>");
-        out.println("   <head>");
-        out.println("     <title>" + term + "</title>");
-        out.println("   </head>");
-        out.println("   <body>");
-        out.println("     <h2>");
-        out.println("       <b>");
-        out.println("        <i>");
-        out.println("         <font color=\"red\">" + term + "</font>");
-        out.println("        </i>");
-        out.println("       </b>");
-        out.println("     </h2>");
-        out.println("     <blockquote>" + definitionWithLinks + "</blockquote>");
-        out.println("     <hr>");
-        out.println("     <main>");
-        out.println("       <p>Return to " + linkMap.value("#indexPage") + ".</p>");
-        out.println("     </main>");
-        out.println("   </body>");
-        out.print("</html>");
+        PageBuffer page = PageBuffer.forThread();
+        termPageHead(term, page);
+        page.append(definitionWithLinks);
+        termPageTail(linkMap.value("#indexPage"), page);
+        out.print(page.toString());
+    }
+
+    /**
+     * Outputs a HTML page for a term, linking its definition with a
+     * precompiled {@code linker}. The page is identical to the one produced by
+     * {@link #outputTermPage(Map, String, SimpleWriter, Map)}.
+     *
+     * @param term
+     *            the term you want to create page for
+     * @param definition
+     *            the definition of {@code term}
+     * @param out
+     *            the output stream
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @update out
+     * @requires out is open, {@code term} is a term known to {@code linker}
+     *           and {@code definition} is its non-empty definition
+     * @ensures out.content = #out.content * [the HTML page for a term]
+     */
+    public static void outputTermPage(String term, String definition,
+            SimpleWriter out, TermLinker linker) {
+        assert term != null : "Violation of: term is not null";
+        assert definition != null : "Violation of: definition is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+
+        PageBuffer page = PageBuffer.forThread();
+        renderTermPage(term, definition, linker, page);
+        out.print(page.toString());
+    }
+
+    /**
+     * Renders the HTML page for a term into {@code page}, linking its
+     * definition with a precompiled {@code linker}. The page is the one written
+     * by {@link #outputTermPage(String, String, SimpleWriter, TermLinker)}.
+     *
+     * @param term
+     *            the term you want to create page for
+     * @param definition
+     *            the definition of {@code term}
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @requires {@code term} is a term known to {@code linker} and
+     *           {@code definition} is its non-empty definition
+     * @ensures page = #page * [the HTML page for a term]
+     */
+    public static void renderTermPage(String term, String definition,
+            TermLinker linker, PageBuffer page) {
+        assert term != null : "Violation of: term is not null";
+        assert definition != null : "Violation of: definition is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert page != null : "Violation of: page is not null";
+
+        termPageHead(term, page);
+        linker.appendLinked(definition, page);
+        termPageTail(linker.indexLink(), page);
+    }
+
+    /**
+     * Renders the HTML page of the term with id {@code id} of {@code model}
+     * into {@code page}, linking its definition straight from the definition
+     * arena of the model. The page is the same as the one rendered by
+     * {@link #renderTermPage(String, String, TermLinker, PageBuffer)}.
+     *
+     * @param model
+     *            the glossary
+     * @param id
+     *            the id of the term
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @requires 0 <= id < model.size and {@code linker} knows the terms of
+     *           {@code model}
+     * @ensures page = #page * [the HTML page for term id]
+     */
+    public static void renderTermPage(GlossaryModel model, int id, TermLinker linker,
+            PageBuffer page) {
+        renderTermPage(model, id, linker, null, page);
+    }
+
+    /**
+     * Renders the HTML page of the term with id {@code id} of {@code model}
+     * into {@code page}, followed by the "Referenced by" links to the terms
+     * whose definitions link to it if {@code backlinks} is not null.
+     *
+     * @param model
+     *            the glossary
+     * @param id
+     *            the id of the term
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @requires 0 <= id < model.size, {@code linker} knows the terms of
+     *           {@code model} and {@code backlinks} is null or built from
+     *           {@code model}
+     * @ensures page = #page * [the HTML page for term id]
+     */
+    public static void renderTermPage(GlossaryModel model, int id, TermLinker linker,
+            ReferenceGraph backlinks, PageBuffer page) {
+        assert model != null : "Violation of: model is not null";
+        assert 0 <= id && id < model.size() : "Violation of: 0 <= id < model.size";
+        assert linker != null : "Violation of: linker is not null";
+        assert page != null : "Violation of: page is not null";
+
+        termPageHead(model.term(id), page);
+        linker.appendLinked(model.definitions(), model.definitionStart(id),
+                model.definitionEnd(id), page);
+        termPageTail(linker.indexLink(), backlinks, id, model.index(), page);
+    }
+
+    /**
+     * Renders the HTML page of the term with id {@code id} of {@code model}
+     * into {@code page} in the layout of {@code template}, the slots being
+     * filled as the page of
+     * {@link #renderTermPage(GlossaryModel, int, TermLinker, ReferenceGraph, PageBuffer)}
+     * fills them.
+     *
+     * @param template
+     *            the compiled layout of the term pages
+     * @param model
+     *            the glossary
+     * @param id
+     *            the id of the term
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @requires 0 <= id < model.size, {@code linker} knows the terms of
+     *           {@code model} and {@code backlinks} is null or built from
+     *           {@code model}
+     * @ensures page = #page * [the page for term id in the layout of template]
+     */
+    public static void renderTermPage(PageTemplate template, GlossaryModel model,
+            int id, TermLinker linker, ReferenceGraph backlinks, PageBuffer page) {
+        assert template != null : "Violation of: template is not null";
+        assert model != null : "Violation of: model is not null";
+        assert 0 <= id && id < model.size() : "Violation of: 0 <= id < model.size";
+        assert linker != null : "Violation of: linker is not null";
+        assert page != null : "Violation of: page is not null";
+
+        template.render((slot, buffer) -> {
+            switch (slot) {
+                case TERM:
+                    buffer.append(model.term(id));
+                    break;
+                case DEFINITION:
+                    linker.appendLinked(model.definitions(), model.definitionStart(id),
+                            model.definitionEnd(id), buffer);
+                    break;
+                case INDEX_LINK:
+                    buffer.append(linker.indexLink());
+                    break;
+                case BACKLINKS:
+                    if (backlinks != null) {
+                        appendReferrers(backlinks, id, model.index(), buffer);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }, page);
+    }
+
+    /**
+     * Renders the HTML code of a term page up to its definition.
+     *
+     * @param term
+     *            the term of this page
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     */
+    private static void termPageHead(String term, PageBuffer page) {
+        page.println("<html>");
+        page.println("   <head>");
+        page.append("     <title>").append(term).println("</title>");
+        page.println("   </head>");
+        page.println("   <body>");
+        page.println("     <h2>");
+        page.println("       <b>");
+        page.println("        <i>");
+        page.append("         <font color=\"red\">").append(term).println("</font>");
+        page.println("        </i>");
+        page.println("       </b>");
+        page.println("     </h2>");
+        page.append("     <blockquote>");
+    }
+
+    /**
+     * Renders the HTML code of a term page after its definition.
+     *
+     * @param indexLink
+     *            the HTML hyperlink back to the index page
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     */
+    private static void termPageTail(String indexLink, PageBuffer page) {
+        termPageTail(indexLink, null, 0, null, page);
+    }
 
+    /**
+     * Renders the HTML code of a term page after its definition, with a
+     * "Referenced by" paragraph listing the terms whose definitions link to
+     * the term if {@code backlinks} is not null and it has any.
+     *
+     * @param indexLink
+     *            the HTML hyperlink back to the index page
+     * @param backlinks
+     *            the reference graph of the glossary, null for no backlinks
+     * @param id
+     *            the id of the term of this page in {@code backlinks}
+     * @param index
+     *            the term index writing the hyperlinks to the referrers
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     */
+    private static void termPageTail(String indexLink, ReferenceGraph backlinks,
+            int id, TermIndex index, PageBuffer page) {
+        page.println("</blockquote>");
+        page.println("     <hr>");
+        page.println("     <main>");
+        if (backlinks != null && backlinks.referrerCount(id) > 0) {
+            page.append("       <p>Referenced by ");
+            appendReferrers(backlinks, id, index, page);
+            page.println(".</p>");
+        }
+        page.append("       <p>Return to ").append(indexLink).println(".</p>");
+        page.println("     </main>");
+        page.println("   </body>");
+        page.append("</html>");
+    }
+
+    /**
+     * Appends the anchors to the terms whose definitions link to the term with
+     * id {@code id}, separated by commas.
+     *
+     * @param backlinks
+     *            the reference graph of the glossary
+     * @param id
+     *            the id of the term
+     * @param index
+     *            the term index writing the hyperlinks to the referrers
+     * @param page
+     *            the buffer the anchors are appended to
+     * @update page
+     */
+    private static void appendReferrers(ReferenceGraph backlinks, int id,
+            TermIndex index, PageBuffer page) {
+        for (int k = 0; k < backlinks.referrerCount(id); k++) {
+            if (k > 0) {
+                page.append(", ");
+            }
+            index.appendAnchor(backlinks.referrer(id, k), page);
+        }
     }
 
     /**
@@ -140,38 +405,280 @@ public final class Glossary {
         assert glossary != null : "Violation of: glossary is not null";
         assert out.isOpen() : "Violation of: out.is_open";
 
-        //write the HTML code
-        out.println("<html>");
-        out.println("   <head>");
-        out.println("     <title>Glossary</title>");
-        out.println("   </head>");
-        out.println("   <body>");
-        out.println("     <h2>Glossary</h2>");
-        out.println("     <hr>");
-        out.println("     <main>");
-        out.println("       <h3>Index</h3>");
-        out.println("       <ul>");
-
-        //put keys in glossary into a queue and sort them in alphabetical order
-        Queue<String> queue = new Queue1L<>();
-        for (Map.Pair<String, String> pair : glossary) {
-            queue.enqueue(pair.key());
+        PageBuffer page = PageBuffer.forThread();
+        renderIndexPage(sortedTerms(glossary),
+                (term, buffer) -> buffer.append(linkMap.value(term)), page);
+        out.print(page.toString());
+    }
+
+    /**
+     * Outputs the HTML index page of the terms in {@code sortedTerms}, in the
+     * same layout as {@link #outputIndexPage(Map, SimpleWriter, Map)}.
+     *
+     * @param sortedTerms
+     *            the terms of the glossary in alphabetical order
+     * @param out
+     *            the output stream
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @update out
+     * @requires out is open, {@code sortedTerms} is sorted by {@link StringLT}
+     *           and every entry is a term known to {@code linker}
+     * @ensures out.content = #out.content * [the HTML page for index page]
+     */
+    public static void outputIndexPage(String[] sortedTerms, SimpleWriter out,
+            TermLinker linker) {
+        assert sortedTerms != null : "Violation of: sortedTerms is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert out.isOpen() : "Violation of: out.is_open";
+
+        PageBuffer page = PageBuffer.forThread();
+        renderIndexPage(sortedTerms, linker, page);
+        out.print(page.toString());
+    }
+
+    /**
+     * Renders the HTML index page of the terms in {@code sortedTerms} into
+     * {@code page}. The page is the one written by
+     * {@link #outputIndexPage(String[], SimpleWriter, TermLinker)}.
+     *
+     * @param sortedTerms
+     *            the terms of the glossary in alphabetical order
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @requires {@code sortedTerms} is sorted by {@link StringLT} and every
+     *           entry is a term known to {@code linker}
+     * @ensures page = #page * [the HTML page for index page]
+     */
+    public static void renderIndexPage(String[] sortedTerms, TermLinker linker,
+            PageBuffer page) {
+        assert sortedTerms != null : "Violation of: sortedTerms is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert page != null : "Violation of: page is not null";
+
+        renderIndexPage(sortedTerms, linker::appendAnchor, page);
+    }
+
+    /**
+     * Renders the HTML index page of the terms of {@code model} into
+     * {@code page}, in id order, which is alphabetical order. The page is the
+     * same as the one rendered by
+     * {@link #renderIndexPage(String[], TermLinker, PageBuffer)}.
+     *
+     * @param model
+     *            the glossary
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @ensures page = #page * [the HTML page for index page]
+     */
+    public static void renderIndexPage(GlossaryModel model, PageBuffer page) {
+        assert model != null : "Violation of: model is not null";
+        assert page != null : "Violation of: page is not null";
+
+        TermIndex index = model.index();
+        indexPageHead(page);
+        for (int id = 0; id < model.size(); id++) {
+            page.append("       <li>");
+            index.appendAnchor(id, page);
+            page.println("</li>");
         }
-        Comparator<String> order = new StringLT();
-        queue.sort(order);
+        indexPageTail(page);
+    }
+
+    /**
+     * Renders the HTML index page of the terms of {@code model} into
+     * {@code page} in the layout of {@code template}, one list item per term
+     * in id order filling its entries.
+     *
+     * @param template
+     *            the compiled layout of the index page
+     * @param model
+     *            the glossary
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @ensures page = #page * [the index page in the layout of template]
+     */
+    public static void renderIndexPage(PageTemplate template, GlossaryModel model,
+            PageBuffer page) {
+        assert template != null : "Violation of: template is not null";
+        assert model != null : "Violation of: model is not null";
+        assert page != null : "Violation of: page is not null";
+
+        TermIndex index = model.index();
+        template.render((slot, buffer) -> {
+            if (slot == PageTemplate.Slot.ENTRIES) {
+                for (int id = 0; id < model.size(); id++) {
+                    buffer.append("<li>");
+                    index.appendAnchor(id, buffer);
+                    buffer.println("</li>");
+                }
+            }
+        }, page);
+    }
+
+    /**
+     * Renders the HTML code of the index page, one list item per entry of
+     * {@code sortedTerms} in a single sequential pass.
+     *
+     * @param sortedTerms
+     *            the terms of the glossary in alphabetical order
+     * @param link
+     *            appends the HTML hyperlink tag to the detailed page of a
+     *            term to a buffer
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @ensures page = #page * [the HTML page for index page]
+     */
+    private static void renderIndexPage(String[] sortedTerms,
+            BiConsumer<String, PageBuffer> link, PageBuffer page) {
+        indexPageHead(page);
 
         //print the content of the list in alphabetical order
-        for (int i = 0; i < queue.length(); i++) {
-            String term = queue.dequeue();
-            out.println("       <li>" + linkMap.value(term) + "</li>");
-            queue.enqueue(term);
+        for (String term : sortedTerms) {
+            page.append("       <li>");
+            link.accept(term, page);
+            page.println("</li>");
+        }
+
+        indexPageTail(page);
+    }
+
+    /**
+     * Renders the HTML navigation page "index.html" of a sharded index, one
+     * list item linking to each shard with its number of terms.
+     *
+     * @param shards
+     *            the shards of the index
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @ensures page = #page * [the HTML navigation page of the shards]
+     */
+    public static void renderIndexNavigation(IndexShards shards, PageBuffer page) {
+        assert shards != null : "Violation of: shards is not null";
+        assert page != null : "Violation of: page is not null";
+
+        indexPageHead(page);
+        for (int shard = 0; shard < shards.count(); shard++) {
+            page.append("       <li><a href=\"").append(shards.name(shard)).append("\">")
+                    .append(shards.label(shard)).append("</a> (")
+                    .append(Integer.toString(shards.size(shard))).println(")</li>");
+        }
+        indexPageTail(page);
+    }
+
+    /**
+     * Renders the HTML page of shard {@code shard} of a sharded index: the
+     * index page restricted to the terms of the shard, with a link back to
+     * the navigation page.
+     *
+     * @param model
+     *            the glossary
+     * @param shards
+     *            the shards of the index of {@code model}
+     * @param shard
+     *            the shard
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @requires {@code shards} is built from {@code model} and 0 <= shard <
+     *           shards.count
+     * @ensures page = #page * [the HTML page of the shard]
+     */
+    public static void renderIndexShard(GlossaryModel model, IndexShards shards,
+            int shard, PageBuffer page) {
+        assert model != null : "Violation of: model is not null";
+        assert shards != null : "Violation of: shards is not null";
+        assert page != null : "Violation of: page is not null";
+
+        TermIndex index = model.index();
+        indexPageHead("Index: " + shards.label(shard), page);
+        for (int k = 0; k < shards.size(shard); k++) {
+            page.append("       <li>");
+            index.appendAnchor(shards.id(shard, k), page);
+            page.println("</li>");
         }
+        page.println("       </ul>");
+        page.append("       <p>Return to ").append(INDEX_LINK).println(".</p>");
+        page.println("     </main>");
+        page.println("   </body>");
+        page.append("</html>");
+    }
+
+    /**
+     * Renders the HTML code of the index page before its list items.
+     *
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     */
+    private static void indexPageHead(PageBuffer page) {
+        indexPageHead("Index", page);
+    }
+
+    /**
+     * Renders the HTML code of an index page before its list items.
+     *
+     * @param heading
+     *            the heading of the list
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     */
+    private static void indexPageHead(String heading, PageBuffer page) {
+        page.println("<html>");
+        page.println("   <head>");
+        page.println("     <title>Glossary</title>");
+        page.println("   </head>");
+        page.println("   <body>");
+        page.println("     <h2>Glossary</h2>");
+        page.println("     <hr>");
+        page.println("     <main>");
+        page.append("       <h3>").append(heading).println("</h3>");
+        page.println("       <ul>");
+    }
 
-        out.println("       </ul>");
-        out.println("     </main>");
-        out.println("   </body>");
-        out.print("</html>");
+    /**
+     * Renders the HTML code of the index page after its list items.
+     *
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     */
+    private static void indexPageTail(PageBuffer page) {
+        page.println("       </ul>");
+        page.println("     </main>");
+        page.println("   </body>");
+        page.append("</html>");
+    }
 
+    /**
+     * Returns the terms of {@code glossary} in alphabetical order. The array is
+     * meant to be computed once per glossary and shared by the index page and
+     * every other consumer that needs the terms in order.
+     *
+     * @param glossary
+     *            the term to definition
+     * @return the keys of {@code glossary} sorted by {@link StringLT}
+     * @ensures sortedTerms = [the keys of glossary in alphabetical order]
+     */
+    public static String[] sortedTerms(Map<String, String> glossary) {
+        assert glossary != null : "Violation of: glossary is not null";
+
+        String[] terms = new String[glossary.size()];
+        int i = 0;
+        for (Map.Pair<String, String> pair : glossary) {
+            terms[i] = pair.key();
+            i++;
+        }
+        Arrays.sort(terms, new StringLT());
+        return terms;
     }
 
     /**
@@ -207,27 +714,25 @@ public final class Glossary {
         assert linkMap != null : "Violation of: linkMap is not null";
 
         //initialize variables
-        String result = definition;
+        StringBuilder result = new StringBuilder(definition.length());
         int position = 0;
-        Set<Character> separators = new Set1L<>();
-        generateElements(",.\"\';:()[]@!#$%^&*-=+{}\\?<>/|~`" + " ", separators);
-
-        //use while loop to go through every token of the given definition String
-        boolean reachEnd = false;
-        while (!reachEnd) {
-            String token = nextWordOrSeparator(definition, position, separators);
-            if (glossary.hasKey(token)) {
-                result = result.replace(token, linkMap.value(token));
-            }
 
-            //update position and make sure it's <|definition|
-            position += token.length();
-            if (position >= definition.length()) {
-                reachEnd = true;
+        //tokenize the definition once, copying separators and words to the
+        //result and replacing the words that are terms with their hyperlinks
+        while (position < definition.length()) {
+            int end = nextWordOrSeparator(definition, position, SeparatorTable.DEFAULT);
+            String token = null;
+            if (!SeparatorTable.DEFAULT.isSeparator(definition.charAt(position))) {
+                token = definition.substring(position, end);
             }
-
+            if (token != null && glossary.hasKey(token)) {
+                result.append(linkMap.value(token));
+            } else {
+                result.append(definition, position, end);
+            }
+            position = end;
         }
-        return result;
+        return result.toString();
     }
 
     /**
@@ -302,18 +807,33 @@ public final class Glossary {
 
         //declare/initialize variables
         Map<String, String> linkMap = new Map1L<>();
-        linkMap.add("#indexPage", "<a href=\"index.html\">index</a>");
+        linkMap.add("#indexPage", INDEX_LINK);
 
         //loops through map glossary to add all <word,HTML hyperlink to word's
         //detailed page> pairs to linkMap
         for (Map.Pair<String, String> pair : glossary) {
             String term = pair.key();
-            linkMap.add(term, "<a href=\"" + term + ".html\">" + term + "</a>");
+            linkMap.add(term, termLink(term));
         }
 
         return linkMap;
     }
 
+    /**
+     * Returns the HTML hyperlink to the detailed page of {@code term}, with the
+     * term as link text.
+     *
+     * @param term
+     *            the term
+     * @return the HTML hyperlink to the page of {@code term}
+     * @ensures termLink = "<a href=\"" * term * ".html\">" * term * "</a>"
+     */
+    public static String termLink(String term) {
+        assert term != null : "Violation of: term is not null";
+
+        return "<a href=\"" + term + ".html\">" + term + "</a>";
+    }
+
     /**
      * Returns the first "word" (maximal length string of characters not in
      * {@code separators}) or "separator string" (maximal length string of
@@ -379,6 +899,72 @@ public final class Glossary {
 
     }
 
+    /**
+     * Returns the end index of the first "word" (maximal length string of
+     * characters not in {@code separators}) or "separator string" (maximal
+     * length string of characters in {@code separators}) in the given
+     * {@code text} starting at the given {@code position}. Unlike
+     * {@link #nextWordOrSeparator(String, int, Set)} it allocates nothing.
+     *
+     * @param text
+     *            the {@code String} from which to get the word or separator
+     *            string
+     * @param position
+     *            the starting index
+     * @param separators
+     *            the table of separator characters
+     * @return the index just past the first word or separator string found in
+     *         {@code text} starting at index {@code position}
+     * @requires 0 <= position < |text|
+     * @ensures text[position, nextWordOrSeparator) is the word or separator
+     *          string returned by nextWordOrSeparator(text, position,
+     *          entries(separators))
+     */
+    public static int nextWordOrSeparator(String text, int position,
+            SeparatorTable separators) {
+        assert text != null : "Violation of: text is not null";
+
+        return nextWordOrSeparator(text, position, text.length(), separators);
+    }
+
+    /**
+     * Returns the end index of the first "word" or "separator string" in
+     * text[position, limit), as
+     * {@link #nextWordOrSeparator(String, int, SeparatorTable)} does when
+     * {@code text} ends at {@code limit}.
+     *
+     * @param text
+     *            the {@code String} from which to get the word or separator
+     *            string
+     * @param position
+     *            the starting index
+     * @param limit
+     *            the index the word or separator string stops at at the latest
+     * @param separators
+     *            the table of separator characters
+     * @return the index just past the first word or separator string found in
+     *         text[position, limit)
+     * @requires 0 <= position < limit <= |text|
+     * @ensures nextWordOrSeparator = nextWordOrSeparator(text[0, limit),
+     *          position, separators)
+     */
+    public static int nextWordOrSeparator(String text, int position, int limit,
+            SeparatorTable separators) {
+        assert text != null : "Violation of: text is not null";
+        assert separators != null : "Violation of: separators is not null";
+        assert 0 <= position : "Violation of: 0 <= position";
+        assert position < limit : "Violation of: position < limit";
+        assert limit <= text.length() : "Violation of: limit <= |text|";
+
+        //move forward while the characters are of the same type as the first
+        boolean isSeparator = separators.isSeparator(text.charAt(position));
+        int end = position + 1;
+        while (end < limit && separators.isSeparator(text.charAt(end)) == isSeparator) {
+            end++;
+        }
+        return end;
+    }
+
     /**
      * Generates the set of characters in the given {@code String} into the
      * given {@code Set}.
@@ -405,20 +991,133 @@ public final class Glossary {
     }
 
     /**
-     * Main method.Ask user for a file containing terms and their definitions
-     * folder to store generated HTML files. Generate an index page of a
-     * glossary all terms in the index page has a link to its detailed page,
-     * stored in folder path user provided.
+     * Writes the index page and the page of every term of {@code model} to
+     * {@code pages}, the term pages on {@code workers} threads.
      *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing term pages
+     * @requires {@code linker} knows the terms of {@code model} and workers > 0
+     * @ensures [pages has the index page and the page of every term in model]
+     */
+    public static void writePages(GlossaryModel model, TermLinker linker,
+            PageWriter pages, int workers) {
+        writePages(model, linker, null, pages, workers);
+    }
+
+    /**
+     * Writes the index page and the page of every term of {@code model} to
+     * {@code pages}, the term pages on {@code workers} threads and with
+     * "Referenced by" links if {@code backlinks} is not null.
      *
-     * @param args
-     *            the command line arguments; unused here
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing term pages
+     * @requires {@code linker} knows the terms of {@code model},
+     *           {@code backlinks} is null or built from {@code model} and
+     *           workers > 0
+     * @ensures [pages has the index page and the page of every term in model]
      */
-    public static void main(String[] args) {
-        SimpleReader in = new SimpleReader1L();
-        SimpleWriter out = new SimpleWriter1L();
+    public static void writePages(GlossaryModel model, TermLinker linker,
+            ReferenceGraph backlinks, PageWriter pages, int workers) {
+        writePages(model, linker, backlinks, null, pages, workers);
+    }
+
+    /**
+     * Writes the index and the page of every term of {@code model} to
+     * {@code pages}, the index split into {@code shards} if not null.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param shards
+     *            the shards of the index of {@code model}, null for a single
+     *            index page
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing pages
+     * @requires {@code linker} knows the terms of {@code model},
+     *           {@code backlinks} and {@code shards} are null or built from
+     *           {@code model} and workers > 0
+     * @ensures [pages has the index and the page of every term in model]
+     */
+    public static void writePages(GlossaryModel model, TermLinker linker,
+            ReferenceGraph backlinks, IndexShards shards, PageWriter pages,
+            int workers) {
+        assert model != null : "Violation of: model is not null";
+        assert pages != null : "Violation of: pages is not null";
+
+        writeIndex(model, shards, null, pages, workers);
+        TermPages.write(model, linker, backlinks, pages, workers);
+    }
 
-        //ask user for input file path, and folder to store HTML files
+    /**
+     * Writes the index page of {@code model} to {@code pages}, or the shards of
+     * the index and their navigation page if {@code shards} is not null.
+     *
+     * @param model
+     *            the glossary
+     * @param shards
+     *            the shards of the index of {@code model}, null for a single
+     *            index page
+     * @param template
+     *            the compiled layout of the single index page, null for the
+     *            built-in one
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing shards
+     * @requires {@code shards} is null or built from {@code model},
+     *           {@code template} is null if {@code shards} is not and
+     *           workers > 0
+     * @ensures [pages has the index of model]
+     */
+    private static void writeIndex(GlossaryModel model, IndexShards shards,
+            PageTemplate template, PageWriter pages, int workers) {
+        if (shards == null) {
+            PageBuffer indexPage = PageBuffer.forThread();
+            if (template == null) {
+                renderIndexPage(model, indexPage);
+            } else {
+                renderIndexPage(template, model, indexPage);
+            }
+            pages.write("index.html", indexPage);
+        } else {
+            shards.write(pages, workers);
+        }
+    }
+
+    /**
+     * Asks the user for the file path of the glossary input file.
+     *
+     * @param in
+     *            the input stream
+     * @param out
+     *            the output stream
+     * @return the file path entered
+     * @update in, out
+     */
+    private static String askFilePath(SimpleReader in, SimpleWriter out) {
         out.println("Enter the file path of glossary text file: ");
         out.println("(This input file shall consist of a single term on the first line, "
                 + "\nits definition on the next one or more lines (terminated by an "
@@ -426,30 +1125,355 @@ public final class Glossary {
                 + "\nnext one or more lines (terminated by an empty line), etc. The "
                 + "\ninput shall continue in this fashion through the definition of "
                 + "\nthe last term, which shall end with its terminating empty line. )");
-        String filePath = in.nextLine();
-        out.println("Enter the folder path you want to store golssary html "
-                + "files(the folder must exist!!)");
-        String folderPath = in.nextLine();
+        return in.nextLine();
+    }
 
-        //create glossary map and link map
-        Map<String, String> glossary = createGlossary(filePath);
-        Map<String, String> linkMap = createLinkMap(glossary);
+    /**
+     * Reads the model of the glossary at {@code filePath} the way
+     * {@code options} asks for: on {@code workers} threads with
+     * --parallel-parse, through a memory map with --mapped, into a map first
+     * otherwise; with --snapshot it is loaded from the binary snapshot of the
+     * input instead while the snapshot is up to date.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param options
+     *            the options of the run
+     * @param workers
+     *            the number of threads of a parallel parse
+     * @return the model of the glossary
+     * @throws java.io.UncheckedIOException
+     *             if the input cannot be read
+     * @requires workers > 0
+     */
+    public static GlossaryModel readModel(String filePath, GlossaryOptions options,
+            int workers) {
+        assert filePath != null : "Violation of: filePath is not null";
+        assert options != null : "Violation of: options is not null";
+        assert workers > 0 : "Violation of: workers > 0";
 
-        //write index page
-        SimpleWriter writeIndexPage = new SimpleWriter1L(folderPath + "/index.html");
-        outputIndexPage(glossary, writeIndexPage, linkMap);
+        GlossaryModel model;
+        if (options.snapshot()) {
+            //load the snapshot of the input, parsing and saving it if stale
+            String snapshotPath = options.snapshotPath();
+            if (snapshotPath == null) {
+                snapshotPath = GlossarySnapshot.defaultPath(filePath);
+            }
+            model = GlossarySnapshot.read(filePath, snapshotPath,
+                    () -> parseModel(filePath, options, workers));
+        } else {
+            model = parseModel(filePath, options, workers);
+        }
+        return model;
+    }
 
-        //write terms' detailed pages
-        //loop through glossary map, create detailed page for every term
-        for (Map.Pair<String, String> pair : glossary) {
-            String term = pair.key();
-            SimpleWriter writeTermPages = new SimpleWriter1L(
-                    folderPath + "/" + term + ".html");
-            outputTermPage(glossary, term, writeTermPages, linkMap);
-            writeTermPages.close();
+    /**
+     * Parses the model of the glossary at {@code filePath}, in parallel or
+     * through a memory map if {@code options} say so.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param options
+     *            the options of the run
+     * @param workers
+     *            the number of threads of a parallel parse
+     * @return the model of the glossary
+     * @throws java.io.UncheckedIOException
+     *             if the input cannot be read
+     * @requires workers > 0
+     */
+    private static GlossaryModel parseModel(String filePath, GlossaryOptions options,
+            int workers) {
+        GlossaryModel model;
+        if (options.parallelParse()) {
+            model = ParallelGlossaryReader.read(filePath, workers);
+        } else if (options.mapped()) {
+            model = GlossaryModel.read(filePath);
+        } else {
+            model = GlossaryModel.of(createGlossary(filePath));
+        }
+        return model;
+    }
+
+    /**
+     * Generates the pages of the glossary at {@code filePath} into the folder
+     * {@code folderPath}, or into the archive of {@code options} if it has
+     * one, as described by {@code options}.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param folderPath
+     *            the output folder, unused with an archive
+     * @param options
+     *            the options of the run
+     * @param workers
+     *            the number of threads writing pages
+     * @return the summary of the build if {@code options} is incremental,
+     *         null otherwise
+     * @throws java.io.UncheckedIOException
+     *             if the input cannot be read or a page cannot be written
+     * @requires the folder exists if {@code options} has no archive and
+     *           workers > 0
+     * @ensures [the folder or the archive holds the pages of the glossary]
+     */
+    public static IncrementalBuild generate(String filePath, String folderPath,
+            GlossaryOptions options, int workers) {
+        return generate(filePath, folderPath, options, workers, null);
+    }
+
+    /**
+     * Generates the pages of the glossary at {@code filePath} as
+     * {@link #generate(String, String, GlossaryOptions, int)} does, timing
+     * every stage and counting the bytes and files in {@code profile}.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param folderPath
+     *            the output folder, unused with an archive
+     * @param options
+     *            the options of the run
+     * @param workers
+     *            the number of threads writing pages
+     * @param profile
+     *            the profile of the run, null for no profiling
+     * @return the summary of the build if {@code options} is incremental,
+     *         null otherwise
+     * @throws java.io.UncheckedIOException
+     *             if the input cannot be read or a page cannot be written
+     * @requires the folder exists if {@code options} has no archive and
+     *           workers > 0
+     * @ensures [the folder or the archive holds the pages of the glossary]
+     */
+    public static IncrementalBuild generate(String filePath, String folderPath,
+            GlossaryOptions options, int workers, RunProfile profile) {
+        assert filePath != null : "Violation of: filePath is not null";
+        assert options != null : "Violation of: options is not null";
+        assert workers > 0 : "Violation of: workers > 0";
+
+        //compile the page layouts once, before any page is rendered or
+        //written
+        PageTemplate termTemplate = null;
+        if (options.termTemplate() != null) {
+            termTemplate = PageTemplate.read(options.termTemplate(),
+                    PageTemplate.termSlots());
+        }
+        PageTemplate indexTemplate = null;
+        if (options.indexTemplate() != null) {
+            indexTemplate = PageTemplate.read(options.indexTemplate(),
+                    PageTemplate.indexSlots());
+        }
+
+        //the pages go to the output folder, compressed or not, or all into one
+        //archive
+        PageWriter pages;
+        GzipPageWriter gzip = null;
+        ZipPageWriter archive = null;
+        if (options.gzip()) {
+            gzip = new GzipPageWriter(folderPath, !options.gzipOnly());
+            pages = gzip;
+        } else if (options.archive() == null) {
+            pages = new FolderPageWriter(folderPath);
+        } else {
+            archive = new ZipPageWriter(options.archive(), options.stored());
+            pages = archive;
+        }
+        if (profile != null) {
+            profile.read(new File(filePath).length());
+            pages = profile.counting(pages);
+        }
+
+        IncrementalBuild build = null;
+        PipelinedPageWriter pipeline = null;
+        boolean written = false;
+        try {
+            //hand the rendered pages to writer threads so rendering never waits
+            //for the disk
+            if (options.pipeline() > 0) {
+                pipeline = new PipelinedPageWriter(pages, options.pipeline());
+                pages = pipeline;
+            }
+            if (options.streaming()) {
+                //only keep the terms in memory, read definitions back one at a time
+                begin(profile, "streaming");
+                StreamingGlossary.scan(filePath).write(pages);
+            } else {
+                //create the glossary model and the linker shared by all pages
+                begin(profile, "read");
+                GlossaryModel model = readModel(filePath, options, workers);
+                begin(profile, "link");
+                TermLinker linker = new TermLinker(model, profile, options.looseLinks());
+                ReferenceGraph graph = null;
+                if (options.backlinks() || options.incremental()) {
+                    graph = ReferenceGraph.build(model, linker, workers);
+                }
+
+                IndexShards shards = null;
+                if (options.indexShards() != null) {
+                    shards = IndexShards.of(model, options.indexShards());
+                }
+
+                if (options.incremental()) {
+                    //only rewrite the pages that changed since the last run
+                    begin(profile, "incremental");
+                    build = IncrementalBuild.write(model, linker, graph,
+                            options.backlinks(), shards, folderPath, workers);
+                } else {
+                    //write index page and terms' detailed pages
+                    begin(profile, "index");
+                    writeIndex(model, shards, indexTemplate, pages, workers);
+                    begin(profile, "term pages");
+                    ReferenceGraph backlinks = options.backlinks() ? graph : null;
+                    TermPages.write(model, linker, backlinks, termTemplate, pages,
+                            workers);
+                }
+
+                if (options.searchIndex()) {
+                    //sharded like the index pages, if they are
+                    begin(profile, "search index");
+                    SearchIndex.write(model, shards, pages);
+                }
+            }
+            if (pipeline != null) {
+                //wait for the pages still queued
+                begin(profile, "write");
+                pipeline.close();
+            }
+            if (archive != null) {
+                //once every page has reached it
+                begin(profile, "archive");
+                archive.close();
+            }
+            written = true;
+        } finally {
+            //the failure of the run is the one reported, not that of stopping
+            //the writer threads or dropping the partial archive
+            if (!written && pipeline != null) {
+                pipeline.cancel();
+            }
+            if (!written && archive != null) {
+                archive.discard();
+            }
+            if (gzip != null) {
+                //free the native memory of the compressors
+                gzip.close();
+            }
+        }
+        if (profile != null) {
+            profile.end();
+        }
+        return build;
+    }
+
+    /**
+     * Starts stage {@code stage} of {@code profile}, if not null.
+     *
+     * @param profile
+     *            the profile of the run, null for no profiling
+     * @param stage
+     *            the name of the stage
+     */
+    private static void begin(RunProfile profile, String stage) {
+        if (profile != null) {
+            profile.begin(stage);
+        }
+    }
+
+    /**
+     * Main method.Ask user for a file containing terms and their definitions
+     * folder to store generated HTML files. Generate an index page of a
+     * glossary all terms in the index page has a link to its detailed page,
+     * stored in folder path user provided.
+     *
+     * @param args
+     *            the command line arguments, the options described in
+     *            {@link GlossaryOptions}: --workers=4 to write the term pages
+     *            on 4 threads, --streaming to stream the input, --mapped to
+     *            read it through a memory map, --parallel-parse to read it on
+     *            all workers, --snapshot to load the parsed input from a
+     *            binary snapshot on the next runs, --incremental to only
+     *            rewrite the pages that changed, --archive=glossary.zip to
+     *            write all pages into one archive, --stored to store its
+     *            entries uncompressed, --backlinks to list the terms
+     *            referencing each term, --index-shards=letter to split
+     *            the index by initial letter, --search-index to add a JSON
+     *            index for client-side search, --loose-links to also link
+     *            "Terms" to the page of "term", --term-template=term.layout
+     *            and --index-template=index.layout to lay out the pages from
+     *            layout files, --gzip to also write every page precompressed,
+     *            --pipeline=16 to write the pages on 16 threads while the
+     *            next ones are rendered, --profile=profile.json to time every
+     *            stage of the run, --input=terms.txt and --output=out to run
+     *            without prompts, --watch to rewrite the changed pages on
+     *            every save, --jobs=jobs.txt to write many glossaries in one
+     *            run and --serve=8080 to render the pages on request
+     */
+    public static void main(String[] args) {
+        GlossaryOptions options = GlossaryOptions.parse(args);
+        SimpleReader in = new SimpleReader1L();
+        SimpleWriter out = new SimpleWriter1L();
+
+        if (options.jobs() != null) {
+            //write every glossary of the job file in this one run
+            GlossaryBatch batch = GlossaryBatch.run(
+                    GlossaryBatch.readJobs(options.jobs()), options);
+            for (int k = 0; k < batch.size(); k++) {
+                if (batch.failure(k) != null) {
+                    out.println(batch.input(k) + ": " + batch.failure(k).getMessage());
+                } else if (batch.build(k) != null) {
+                    out.println(batch.input(k) + ": " + batch.build(k).written()
+                            + " term pages written, " + batch.build(k).deleted()
+                            + " deleted");
+                }
+            }
+            out.println((batch.size() - batch.failures()) + " of " + batch.size()
+                    + " glossaries written");
+        } else {
+            //ask user for input file path, and folder to store HTML files, unless
+            //they are given as options
+            String filePath = options.input();
+            if (filePath == null) {
+                filePath = askFilePath(in, out);
+            }
+            String folderPath = options.output();
+            if (folderPath == null && options.archive() == null
+                    && options.serve() == 0) {
+                out.println("Enter the folder path you want to store golssary html "
+                        + "files(the folder must exist!!)");
+                folderPath = in.nextLine();
+            }
+
+            if (options.serve() > 0) {
+                //render the pages on request until the process is stopped
+                GlossaryServer.load(filePath, options).start(options.serve());
+                out.println("Serving the glossary on http://localhost:"
+                        + options.serve() + "/index.html");
+            } else if (options.watch()) {
+                //rewrite the changed pages every time the input file is saved
+                GlossaryWatcher watcher = new GlossaryWatcher(filePath, folderPath,
+                        options);
+                watcher.watch(build -> out.println(build.written()
+                        + " term pages written, " + build.deleted() + " deleted"),
+                        e -> out.println("Cannot refresh the pages: " + e.getMessage()));
+            } else {
+                RunProfile profile = null;
+                if (options.profile()) {
+                    profile = new RunProfile();
+                }
+                IncrementalBuild build = generate(filePath, folderPath, options,
+                        options.workers(), profile);
+                if (build != null) {
+                    out.println(build.written() + " term pages written, "
+                            + build.deleted() + " deleted");
+                }
+                if (profile != null) {
+                    out.println(profile.summary());
+                    if (options.profileJson() != null) {
+                        profile.writeJson(options.profileJson());
+                    }
+                }
+            }
         }
 
-        writeIndexPage.close();
         in.close();
         out.close();
     }
@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A batch of glossaries generated in one run, listed in a job file. Every line
+ * of a job file names an input file and its output folder separated by a tab;
+ * empty lines and lines starting with '#' are skipped:
+ *
+ * <pre>
+ * books/algebra/terms.txt	site/algebra
+ * books/biology/terms.txt	site/biology
+ * </pre>
+ *
+ * The glossaries are generated on one pool of workers, one glossary per
+ * worker at a time, so the start of the JVM, the warm-up of the compiler and
+ * the shared tables such as {@link SeparatorTable#DEFAULT} are paid for once
+ * for the whole batch. A glossary that fails does not stop the others.
+ */
+public final class GlossaryBatch {
+
+    /**
+     * The input file of every job.
+     */
+    private final String[] inputs;
+
+    /**
+     * The summary of every incremental job, null for the others.
+     */
+    private final IncrementalBuild[] builds;
+
+    /**
+     * The failure of every job, null for the jobs that succeeded.
+     */
+    private final RuntimeException[] failures;
+
+    /**
+     * Creates the summary of a batch.
+     *
+     * @param inputs
+     *            the input file of every job
+     * @param builds
+     *            the summary of every incremental job
+     * @param failures
+     *            the failure of every job
+     */
+    private GlossaryBatch(String[] inputs, IncrementalBuild[] builds,
+            RuntimeException[] failures) {
+        this.inputs = inputs;
+        this.builds = builds;
+        this.failures = failures;
+    }
+
+    /**
+     * Reads the jobs of the job file at {@code jobsPath}.
+     *
+     * @param jobsPath
+     *            the path of the job file
+     * @return the input file and output folder of every job, in file order
+     * @throws UncheckedIOException
+     *             if the job file cannot be read
+     * @throws IllegalArgumentException
+     *             if a line does not have an input and an output separated by
+     *             a tab
+     */
+    public static List<String[]> readJobs(String jobsPath) {
+        assert jobsPath != null : "Violation of: jobsPath is not null";
+
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(jobsPath), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + jobsPath, e);
+        }
+        List<String[]> jobs = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                int tab = line.indexOf('\t');
+                if (tab <= 0 || tab == line.length() - 1) {
+                    throw new IllegalArgumentException(jobsPath + ":" + (i + 1)
+                            + ": needs an input file and an output folder "
+                            + "separated by a tab");
+                }
+                jobs.add(new String[] {line.substring(0, tab),
+                        line.substring(tab + 1) });
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Generates the glossary of every job as described by {@code options}, on
+     * {@code options.workers()} threads. The output folders are created if
+     * they do not exist.
+     *
+     * @param jobs
+     *            the input file and output folder of every job
+     * @param options
+     *            the options of every glossary
+     * @return the summary of the batch
+     * @requires {@code options} has no archive
+     * @ensures [every output folder of a job that succeeded holds the pages of
+     *          its input]
+     */
+    public static GlossaryBatch run(List<String[]> jobs, GlossaryOptions options) {
+        assert jobs != null : "Violation of: jobs is not null";
+        assert options != null : "Violation of: options is not null";
+        assert options.archive() == null : "Violation of: options has no archive";
+
+        String[] inputs = new String[jobs.size()];
+        IncrementalBuild[] builds = new IncrementalBuild[jobs.size()];
+        RuntimeException[] failures = new RuntimeException[jobs.size()];
+        for (int k = 0; k < inputs.length; k++) {
+            inputs[k] = jobs.get(k)[0];
+        }
+        if (options.workers() == 1) {
+            for (int k = 0; k < inputs.length; k++) {
+                runJob(jobs.get(k), options, k, builds, failures);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(options.workers());
+            try {
+                ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[inputs.length];
+                for (int k = 0; k < inputs.length; k++) {
+                    int job = k;
+                    tasks[k] = pool.submit(
+                            () -> runJob(jobs.get(job), options, job, builds, failures));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new GlossaryBatch(inputs, builds, failures);
+    }
+
+    /**
+     * Generates the glossary of one job on the calling thread, recording its
+     * summary or its failure. A violated precondition of a malformed input,
+     * reported by an AssertionError when assertions are enabled, is recorded
+     * as the failure of the job instead of stopping the batch.
+     *
+     * @param job
+     *            the input file and output folder of the job
+     * @param options
+     *            the options of the glossary
+     * @param k
+     *            the position of the job
+     * @param builds
+     *            the summaries of the jobs
+     * @param failures
+     *            the failures of the jobs
+     * @update builds, failures
+     */
+    private static void runJob(String[] job, GlossaryOptions options, int k,
+            IncrementalBuild[] builds, RuntimeException[] failures) {
+        try {
+            Files.createDirectories(Paths.get(job[1]));
+            builds[k] = Glossary.generate(job[0], job[1], options, 1);
+        } catch (IOException e) {
+            failures[k] = new UncheckedIOException("Cannot create " + job[1], e);
+        } catch (RuntimeException e) {
+            failures[k] = e;
+        } catch (AssertionError e) {
+            failures[k] = new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the number of jobs.
+     *
+     * @return the number of jobs
+     */
+    public int size() {
+        return this.inputs.length;
+    }
+
+    /**
+     * Returns the input file of job {@code k}.
+     *
+     * @param k
+     *            the position of the job
+     * @return the input file of the job
+     * @requires 0 <= k < size
+     */
+    public String input(int k) {
+        return this.inputs[k];
+    }
+
+    /**
+     * Returns the summary of job {@code k} if it was incremental.
+     *
+     * @param k
+     *            the position of the job
+     * @return the summary of the job, null if it was not incremental or failed
+     * @requires 0 <= k < size
+     */
+    public IncrementalBuild build(int k) {
+        return this.builds[k];
+    }
+
+    /**
+     * Returns the failure of job {@code k}.
+     *
+     * @param k
+     *            the position of the job
+     * @return the failure of the job, null if it succeeded
+     * @requires 0 <= k < size
+     */
+    public RuntimeException failure(int k) {
+        return this.failures[k];
+    }
+
+    /**
+     * Returns the number of jobs that failed.
+     *
+     * @return the number of failures
+     */
+    public int failures() {
+        int count = 0;
+        for (RuntimeException failure : this.failures) {
+            if (failure != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,367 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import components.map.Map;
+
+/**
+ * Immutable glossary built once from the input, in which every term has a
+ * dense int id: the ids follow the alphabetical order of the terms, so id 0 is
+ * the first term of the index page. All definitions are kept one after another
+ * in a single string, the definition arena, and located by the offsets in a
+ * primitive {@code int[]}, so the renderers address a term and its definition
+ * by id instead of looking strings up in a {@code Map} again and again. A
+ * string and its int offsets hold at most {@link #MAX_DEFINITIONS_LENGTH}
+ * characters, so this is the limit on the total length of the definitions of
+ * one glossary, however large the input file the readers map.
+ */
+public final class GlossaryModel {
+
+    /**
+     * Largest total number of characters of the definitions of a model, the
+     * length of the longest array most JVMs allocate.
+     */
+    static final int MAX_DEFINITIONS_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * The terms in alphabetical order, terms[id] is the term with that id.
+     */
+    private final String[] terms;
+
+    /**
+     * Term to id lookup over {@code terms}.
+     */
+    private final TermIndex index;
+
+    /**
+     * All definitions in id order, one after another.
+     */
+    private final String definitions;
+
+    /**
+     * Offsets of the definitions in {@code definitions}: the definition of id
+     * is definitions[starts[id], starts[id + 1]).
+     */
+    private final int[] starts;
+
+    /**
+     * Creates the model from its parts.
+     *
+     * @param terms
+     *            the terms in alphabetical order
+     * @param definitions
+     *            the definition arena
+     * @param starts
+     *            the offsets of the definitions, one more than the terms
+     */
+    private GlossaryModel(String[] terms, String definitions, int[] starts) {
+        this(terms, new TermIndex(terms), definitions, starts);
+    }
+
+    /**
+     * Creates the model from its parts, its term index included.
+     *
+     * @param terms
+     *            the terms in alphabetical order
+     * @param index
+     *            the term index of terms
+     * @param definitions
+     *            the definition arena
+     * @param starts
+     *            the offsets of the definitions, one more than the terms
+     */
+    private GlossaryModel(String[] terms, TermIndex index, String definitions,
+            int[] starts) {
+        this.terms = terms;
+        this.index = index;
+        this.definitions = definitions;
+        this.starts = starts;
+    }
+
+    /**
+     * Builds the model of {@code glossary}.
+     *
+     * @param glossary
+     *            the term to definition
+     * @return the model of glossary
+     * @throws IllegalArgumentException
+     *             if the definitions total more than
+     *             {@link #MAX_DEFINITIONS_LENGTH} characters
+     * @ensures [of has the terms and definitions of glossary]
+     */
+    public static GlossaryModel of(Map<String, String> glossary) {
+        assert glossary != null : "Violation of: glossary is not null";
+
+        String[] sorted = Glossary.sortedTerms(glossary);
+        StringBuilder arena = new StringBuilder();
+        int[] starts = new int[sorted.length + 1];
+        for (int id = 0; id < sorted.length; id++) {
+            starts[id] = arena.length();
+            append(arena, glossary.value(sorted[id]));
+        }
+        starts[sorted.length] = arena.length();
+        return new GlossaryModel(sorted, arena.toString(), starts);
+    }
+
+    /**
+     * Reads the model of the file at {@code filePath} through
+     * {@link MappedGlossaryReader}, without building a {@code Map} first.
+     *
+     * @param filePath
+     *            the filePath of the file with terms and definitions
+     * @return the model of the file
+     * @throws java.io.UncheckedIOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if the definitions total more than
+     *             {@link #MAX_DEFINITIONS_LENGTH} characters
+     * @requires the file has the format described in
+     *           {@link Glossary#createGlossary(String)}
+     * @ensures [read has the same terms and definitions as
+     *          Glossary.createGlossary(filePath), a term defined twice keeping
+     *          its last definition in file order]
+     */
+    public static GlossaryModel read(String filePath) {
+        assert filePath != null : "Violation of: filePath is not null";
+
+        //collect the records in file order
+        ArrayList<String> fileTerms = new ArrayList<>();
+        ArrayList<String> fileDefinitions = new ArrayList<>();
+        byte[] scratch = new byte[1 << 12];
+        MappedGlossaryReader.read(filePath, (bytes, termStart, termEnd,
+                definitionStart, definitionEnd) -> {
+            fileTerms.add(MappedGlossaryReader.decodeTerm(bytes, termStart, termEnd));
+            fileDefinitions.add(MappedGlossaryReader.decodeDefinition(bytes,
+                    definitionStart, definitionEnd, scratch));
+        });
+
+        return of(fileTerms, fileDefinitions);
+    }
+
+    /**
+     * Builds the model of the records of a glossary file, given in file order.
+     * A term defined twice keeps the definition of its last record, as
+     * {@link ParallelGlossaryReader} does.
+     *
+     * @param fileTerms
+     *            the terms of the records in file order
+     * @param fileDefinitions
+     *            the definitions of the records in file order
+     * @return the model of the records
+     * @throws IllegalArgumentException
+     *             if the definitions total more than
+     *             {@link #MAX_DEFINITIONS_LENGTH} characters
+     * @requires |fileTerms| = |fileDefinitions|
+     * @ensures [of has the same terms and definitions as the glossary map of
+     *          the records, later records replacing earlier ones]
+     */
+    static GlossaryModel of(List<String> fileTerms, List<String> fileDefinitions) {
+        assert fileTerms.size() == fileDefinitions.size() : "Violation of: "
+                + "|fileTerms| = |fileDefinitions|";
+
+        //find the last record of every term
+        HashMap<String, Integer> last = new HashMap<>(fileTerms.size() * 2);
+        for (int k = 0; k < fileTerms.size(); k++) {
+            last.put(fileTerms.get(k), k);
+        }
+
+        //lay the definitions out in the alphabetical order of their terms
+        String[] sorted = last.keySet().toArray(new String[last.size()]);
+        Arrays.sort(sorted, new Glossary.StringLT());
+        StringBuilder arena = new StringBuilder();
+        int[] starts = new int[sorted.length + 1];
+        for (int id = 0; id < sorted.length; id++) {
+            starts[id] = arena.length();
+            append(arena, fileDefinitions.get(last.get(sorted[id])));
+        }
+        starts[sorted.length] = arena.length();
+        return new GlossaryModel(sorted, arena.toString(), starts);
+    }
+
+    /**
+     * Returns the model with the terms of this, and its term index, but the
+     * definitions {@code definitions}, so that a glossary whose definitions
+     * changed but not its terms keeps its ids without sorting its terms again.
+     *
+     * @param definitions
+     *            the definition of every id
+     * @return the model of the terms of this and definitions
+     * @throws IllegalArgumentException
+     *             if the definitions total more than
+     *             {@link #MAX_DEFINITIONS_LENGTH} characters
+     * @requires |definitions| = size
+     * @ensures [withDefinitions has the terms of this, and
+     *          definition(id) = definitions[id]]
+     */
+    GlossaryModel withDefinitions(String[] definitions) {
+        assert definitions.length == this.size() : "Violation of: "
+                + "|definitions| = size";
+
+        StringBuilder arena = new StringBuilder();
+        int[] starts = new int[definitions.length + 1];
+        for (int id = 0; id < definitions.length; id++) {
+            starts[id] = arena.length();
+            append(arena, definitions[id]);
+        }
+        starts[definitions.length] = arena.length();
+        return new GlossaryModel(this.terms, this.index, arena.toString(), starts);
+    }
+
+    /**
+     * Appends {@code definition} to the definition arena {@code arena}.
+     *
+     * @param arena
+     *            the definition arena being laid out
+     * @param definition
+     *            the next definition
+     * @throws IllegalArgumentException
+     *             if the arena would exceed {@link #MAX_DEFINITIONS_LENGTH}
+     *             characters
+     * @update arena
+     * @ensures arena = #arena * definition
+     */
+    private static void append(StringBuilder arena, String definition) {
+        checkLength(arena.length(), definition.length());
+        arena.append(definition);
+    }
+
+    /**
+     * Checks that a definition of {@code definitionLength} characters still
+     * fits after an arena of {@code arenaLength} characters, so that a too
+     * large input fails with a clear message rather than running out of
+     * memory or overflowing an offset.
+     *
+     * @param arenaLength
+     *            the length of the arena so far
+     * @param definitionLength
+     *            the length of the next definition
+     * @throws IllegalArgumentException
+     *             if arenaLength + definitionLength >
+     *             {@link #MAX_DEFINITIONS_LENGTH}
+     */
+    static void checkLength(int arenaLength, int definitionLength) {
+        if ((long) arenaLength + definitionLength > MAX_DEFINITIONS_LENGTH) {
+            throw new IllegalArgumentException("The definitions total more than "
+                    + MAX_DEFINITIONS_LENGTH + " characters, more than a glossary "
+                    + "model can hold");
+        }
+    }
+
+    /**
+     * Restores a model from the parts saved by {@link GlossarySnapshot}: its
+     * terms, the hash table of their index, its definition arena and the
+     * offsets of the definitions.
+     *
+     * @param terms
+     *            the terms in alphabetical order
+     * @param slots
+     *            the hash table of the term index of terms
+     * @param definitions
+     *            the definition arena
+     * @param starts
+     *            the offsets of the definitions, one more than the terms
+     * @return the model
+     * @requires the parts are those of a model
+     */
+    static GlossaryModel restore(String[] terms, int[] slots, String definitions,
+            int[] starts) {
+        assert starts.length == terms.length + 1 : "Violation of: "
+                + "|starts| = |terms| + 1";
+
+        return new GlossaryModel(terms, new TermIndex(terms, slots), definitions,
+                starts);
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return the number of terms
+     */
+    public int size() {
+        return this.terms.length;
+    }
+
+    /**
+     * Returns the term with id {@code id}.
+     *
+     * @param id
+     *            the id of the term
+     * @return the term
+     * @requires 0 <= id < size
+     */
+    public String term(int id) {
+        return this.terms[id];
+    }
+
+    /**
+     * Returns the id of {@code term}, or {@link TermIndex#NOT_FOUND} if it is
+     * not a term of this.
+     *
+     * @param term
+     *            the term
+     * @return the id of term, or NOT_FOUND
+     */
+    public int id(String term) {
+        return this.index.id(term);
+    }
+
+    /**
+     * Returns the term to id lookup of this, whose ids are the ids of this.
+     *
+     * @return the term index of this
+     */
+    public TermIndex index() {
+        return this.index;
+    }
+
+    /**
+     * Returns the definition arena, holding all definitions one after another
+     * in id order.
+     *
+     * @return the definition arena
+     */
+    public String definitions() {
+        return this.definitions;
+    }
+
+    /**
+     * Returns the offset in {@link #definitions()} of the definition of the
+     * term with id {@code id}.
+     *
+     * @param id
+     *            the id of the term
+     * @return the offset of its first character
+     * @requires 0 <= id < size
+     */
+    public int definitionStart(int id) {
+        return this.starts[id];
+    }
+
+    /**
+     * Returns the offset in {@link #definitions()} past the definition of the
+     * term with id {@code id}.
+     *
+     * @param id
+     *            the id of the term
+     * @return the offset past its last character
+     * @requires 0 <= id < size
+     */
+    public int definitionEnd(int id) {
+        return this.starts[id + 1];
+    }
+
+    /**
+     * Returns the definition of the term with id {@code id}, copied out of the
+     * arena.
+     *
+     * @param id
+     *            the id of the term
+     * @return the definition
+     * @requires 0 <= id < size
+     */
+    public String definition(int id) {
+        return this.definitions.substring(this.starts[id], this.starts[id + 1]);
+    }
+
+}
@@ -0,0 +1,635 @@
+/**
+ * Options of a glossary generation run, parsed from the command line arguments
+ * of {@link Glossary#main(String[])}. Every option has the form
+ * {@code --name=value}, or {@code --name} for a switch.
+ */
+public final class GlossaryOptions {
+
+    /**
+     * Number of threads writing term pages; 1 writes them sequentially.
+     */
+    private int workers = 1;
+
+    /**
+     * Whether the input is read in two streaming passes instead of into a map.
+     */
+    private boolean streaming = false;
+
+    /**
+     * Whether the input is read through a memory map of the file.
+     */
+    private boolean mapped = false;
+
+    /**
+     * Whether only the pages that changed since the last run are rewritten.
+     */
+    private boolean incremental = false;
+
+    /**
+     * Path of the ZIP archive the pages are written to, null to write them to
+     * the output folder.
+     */
+    private String archive = null;
+
+    /**
+     * Whether the archive entries are stored instead of deflated.
+     */
+    private boolean stored = false;
+
+    /**
+     * Whether the term pages list the terms whose definitions link to them.
+     */
+    private boolean backlinks = false;
+
+    /**
+     * How the index is split into shards, see
+     * {@link IndexShards#of(GlossaryModel, String)}, null for a single index
+     * page.
+     */
+    private String indexShards = null;
+
+    /**
+     * Whether a JSON search index of the terms is written next to the pages.
+     */
+    private boolean searchIndex = false;
+
+    /**
+     * Whether the pages are kept up to date with the input file until the run
+     * is interrupted.
+     */
+    private boolean watch = false;
+
+    /**
+     * Path of the glossary input file, null to ask for it.
+     */
+    private String input = null;
+
+    /**
+     * Path of the output folder, null to ask for it.
+     */
+    private String output = null;
+
+    /**
+     * Path of the job file listing the glossaries of a batch, null for a
+     * single glossary.
+     */
+    private String jobs = null;
+
+    /**
+     * Port the pages are served on, 0 to write them.
+     */
+    private int serve = 0;
+
+    /**
+     * Whether the input is split into chunks parsed on all the workers.
+     */
+    private boolean parallelParse = false;
+
+    /**
+     * Whether every stage of the run is timed and a summary printed.
+     */
+    private boolean profile = false;
+
+    /**
+     * Path of the JSON file the profile is written to, null for none.
+     */
+    private String profileJson = null;
+
+    /**
+     * Whether every page is also written compressed, as "name.gz".
+     */
+    private boolean gzip = false;
+
+    /**
+     * Whether every page is only written compressed, without the
+     * uncompressed page.
+     */
+    private boolean gzipOnly = false;
+
+    /**
+     * Path of the layout file of the term pages, see {@link PageTemplate},
+     * null for the built-in layout.
+     */
+    private String termTemplate = null;
+
+    /**
+     * Path of the layout file of the index page, see {@link PageTemplate},
+     * null for the built-in layout.
+     */
+    private String indexTemplate = null;
+
+    /**
+     * Whether the model of the input is loaded from, or saved to, a binary
+     * snapshot.
+     */
+    private boolean snapshot = false;
+
+    /**
+     * Path of the snapshot file, null for the default one next to the input
+     * file.
+     */
+    private String snapshotPath = null;
+
+    /**
+     * Whether the words that are terms up to case and plural endings are
+     * linked too.
+     */
+    private boolean looseLinks = false;
+
+    /**
+     * Number of threads writing the rendered pages while the next ones are
+     * rendered, 0 to write every page on the thread rendering it.
+     */
+    private int pipeline = 0;
+
+    /**
+     * Creates the default options.
+     */
+    public GlossaryOptions() {
+    }
+
+    /**
+     * Parses the options in {@code args}.
+     *
+     * @param args
+     *            the command line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException
+     *             if an argument is not a known option or has a bad value
+     * @ensures [parse has the options in args, the defaults otherwise]
+     */
+    public static GlossaryOptions parse(String[] args) {
+        assert args != null : "Violation of: args is not null";
+
+        GlossaryOptions options = new GlossaryOptions();
+        for (String arg : args) {
+            //split the argument into its name and value
+            String name = arg;
+            String value = null;
+            int equals = arg.indexOf('=');
+            if (equals >= 0) {
+                name = arg.substring(0, equals);
+                value = arg.substring(equals + 1);
+            }
+
+            switch (name) {
+                case "--workers":
+                    options.workers = positive(name, value);
+                    break;
+                case "--streaming":
+                    options.streaming = true;
+                    break;
+                case "--mapped":
+                    options.mapped = true;
+                    break;
+                case "--incremental":
+                    options.incremental = true;
+                    break;
+                case "--archive":
+                    options.archive = path(name, value);
+                    break;
+                case "--stored":
+                    options.stored = true;
+                    break;
+                case "--backlinks":
+                    options.backlinks = true;
+                    break;
+                case "--index-shards":
+                    if (!IndexShards.BY_LETTER.equals(value)) {
+                        positive(name, value);
+                    }
+                    options.indexShards = value;
+                    break;
+                case "--search-index":
+                    options.searchIndex = true;
+                    break;
+                case "--watch":
+                    options.watch = true;
+                    break;
+                case "--input":
+                    options.input = path(name, value);
+                    break;
+                case "--output":
+                    options.output = path(name, value);
+                    break;
+                case "--jobs":
+                    options.jobs = path(name, value);
+                    break;
+                case "--serve":
+                    options.serve = positive(name, value);
+                    break;
+                case "--parallel-parse":
+                    options.parallelParse = true;
+                    break;
+                case "--profile":
+                    options.profile = true;
+                    if (value != null) {
+                        options.profileJson = path(name, value);
+                    }
+                    break;
+                case "--gzip":
+                    options.gzip = true;
+                    if (value != null && !value.equals("only")) {
+                        throw new IllegalArgumentException(name + " takes no value or "
+                                + "only, not " + value);
+                    }
+                    options.gzipOnly = value != null;
+                    break;
+                case "--term-template":
+                    options.termTemplate = path(name, value);
+                    break;
+                case "--index-template":
+                    options.indexTemplate = path(name, value);
+                    break;
+                case "--loose-links":
+                    options.looseLinks = true;
+                    break;
+                case "--snapshot":
+                    options.snapshot = true;
+                    if (value != null) {
+                        options.snapshotPath = path(name, value);
+                    }
+                    break;
+                case "--pipeline":
+                    options.pipeline = PipelinedPageWriter.DEFAULT_WRITERS;
+                    if (value != null) {
+                        options.pipeline = positive(name, value);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.incremental && options.archive != null) {
+            throw new IllegalArgumentException(
+                    "--incremental updates an output folder, not an --archive");
+        }
+        if (options.streaming && options.incremental) {
+            throw new IllegalArgumentException(
+                    "--incremental compares every definition, it cannot be --streaming");
+        }
+        if (options.streaming && options.backlinks) {
+            throw new IllegalArgumentException(
+                    "--backlinks needs every definition, it cannot be --streaming");
+        }
+        if (options.streaming && options.indexShards != null) {
+            throw new IllegalArgumentException(
+                    "--index-shards cannot be --streaming");
+        }
+        if (options.streaming && options.searchIndex) {
+            throw new IllegalArgumentException(
+                    "--search-index cannot be --streaming");
+        }
+        if (options.watch && (options.streaming || options.archive != null)) {
+            throw new IllegalArgumentException(
+                    "--watch updates an output folder, it cannot be --streaming "
+                            + "or --archive");
+        }
+        if (options.jobs != null && (options.input != null || options.output != null
+                || options.archive != null || options.watch)) {
+            throw new IllegalArgumentException("--jobs lists the inputs and output "
+                    + "folders, it cannot have --input, --output, --archive or --watch");
+        }
+        if (options.serve > 0 && (options.streaming || options.incremental
+                || options.archive != null || options.output != null || options.watch
+                || options.jobs != null || options.searchIndex)) {
+            throw new IllegalArgumentException("--serve renders the pages on request, "
+                    + "it cannot write them with --streaming, --incremental, --archive, "
+                    + "--output, --watch or --jobs, nor serve a --search-index");
+        }
+        if (options.streaming && options.parallelParse) {
+            throw new IllegalArgumentException(
+                    "--parallel-parse cannot be --streaming");
+        }
+        if (options.profile && (options.jobs != null || options.watch
+                || options.serve > 0)) {
+            throw new IllegalArgumentException(
+                    "--profile times one run, it cannot be --jobs, --watch or --serve");
+        }
+        if (options.output != null && options.archive != null) {
+            throw new IllegalArgumentException(
+                    "--output and --archive are two destinations of the pages");
+        }
+        if (options.gzip && (options.incremental || options.archive != null
+                || options.watch || options.serve > 0)) {
+            throw new IllegalArgumentException("--gzip writes every page of an "
+                    + "output folder, it cannot be --incremental, --archive, --watch "
+                    + "or --serve");
+        }
+        if ((options.termTemplate != null || options.indexTemplate != null)
+                && (options.streaming || options.incremental || options.watch
+                        || options.serve > 0)) {
+            throw new IllegalArgumentException("--term-template and --index-template "
+                    + "lay out the pages of a full run, they cannot be --streaming, "
+                    + "--incremental, --watch or --serve");
+        }
+        if (options.indexTemplate != null && options.indexShards != null) {
+            throw new IllegalArgumentException(
+                    "--index-template lays out a single index page, not --index-shards");
+        }
+        if (options.streaming && options.looseLinks) {
+            throw new IllegalArgumentException(
+                    "--loose-links cannot be --streaming");
+        }
+        if (options.snapshot && (options.streaming || options.watch)) {
+            throw new IllegalArgumentException("--snapshot saves the model of the "
+                    + "input, it cannot be --streaming or --watch");
+        }
+        if (options.snapshotPath != null && options.jobs != null) {
+            throw new IllegalArgumentException("--snapshot=FILE is one snapshot, "
+                    + "--jobs has one per input with --snapshot");
+        }
+        if (options.pipeline > 0 && (options.incremental || options.watch
+                || options.serve > 0)) {
+            throw new IllegalArgumentException("--pipeline writes every page of a "
+                    + "full run, it cannot be --incremental, --watch or --serve");
+        }
+        return options;
+    }
+
+    /**
+     * Returns the value of option {@code name} as a path.
+     *
+     * @param name
+     *            the name of the option
+     * @param value
+     *            the value given to the option, null if none
+     * @return the value
+     * @throws IllegalArgumentException
+     *             if {@code value} is null or empty
+     */
+    private static String path(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " needs a file path");
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of option {@code name} as a positive integer.
+     *
+     * @param name
+     *            the name of the option
+     * @param value
+     *            the value given to the option, null if none
+     * @return the value as an integer
+     * @throws IllegalArgumentException
+     *             if {@code value} is not a positive integer
+     */
+    private static int positive(String name, String value) {
+        int result;
+        try {
+            result = Integer.parseInt(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " needs a positive integer", e);
+        }
+        if (result < 1) {
+            throw new IllegalArgumentException(name + " needs a positive integer");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of threads writing term pages.
+     *
+     * @return the number of threads writing term pages
+     */
+    public int workers() {
+        return this.workers;
+    }
+
+    /**
+     * Returns whether the input is read in two streaming passes, see
+     * {@link StreamingGlossary}.
+     *
+     * @return whether the input is streamed
+     */
+    public boolean streaming() {
+        return this.streaming;
+    }
+
+    /**
+     * Returns whether the input is read through a memory map, see
+     * {@link MappedGlossaryReader}.
+     *
+     * @return whether the input is memory mapped
+     */
+    public boolean mapped() {
+        return this.mapped;
+    }
+
+    /**
+     * Returns whether only the pages that changed since the last run are
+     * rewritten, see {@link IncrementalBuild}.
+     *
+     * @return whether the build is incremental
+     */
+    public boolean incremental() {
+        return this.incremental;
+    }
+
+    /**
+     * Returns the path of the ZIP archive the pages are written to, see
+     * {@link ZipPageWriter}.
+     *
+     * @return the path of the archive, null to write to the output folder
+     */
+    public String archive() {
+        return this.archive;
+    }
+
+    /**
+     * Returns whether the archive entries are stored instead of deflated.
+     *
+     * @return whether the archive entries are stored
+     */
+    public boolean stored() {
+        return this.stored;
+    }
+
+    /**
+     * Returns whether the term pages list the terms whose definitions link to
+     * them, see {@link ReferenceGraph}.
+     *
+     * @return whether the term pages have backlinks
+     */
+    public boolean backlinks() {
+        return this.backlinks;
+    }
+
+    /**
+     * Returns how the index is split into shards: "letter" for one shard per
+     * initial letter or a number of terms per shard.
+     *
+     * @return the index shard spec, null for a single index page
+     */
+    public String indexShards() {
+        return this.indexShards;
+    }
+
+    /**
+     * Returns whether a JSON search index of the terms is written next to the
+     * pages, see {@link SearchIndex}.
+     *
+     * @return whether the search index is written
+     */
+    public boolean searchIndex() {
+        return this.searchIndex;
+    }
+
+    /**
+     * Returns whether the pages are kept up to date with the input file until
+     * the run is interrupted, see {@link GlossaryWatcher}.
+     *
+     * @return whether the input file is watched
+     */
+    public boolean watch() {
+        return this.watch;
+    }
+
+    /**
+     * Returns the path of the glossary input file given on the command line.
+     *
+     * @return the input file path, null to ask for it
+     */
+    public String input() {
+        return this.input;
+    }
+
+    /**
+     * Returns the path of the output folder given on the command line.
+     *
+     * @return the output folder path, null to ask for it
+     */
+    public String output() {
+        return this.output;
+    }
+
+    /**
+     * Returns the path of the job file listing the glossaries of a batch, see
+     * {@link GlossaryBatch}.
+     *
+     * @return the job file path, null for a single glossary
+     */
+    public String jobs() {
+        return this.jobs;
+    }
+
+    /**
+     * Returns the port the pages are served on, see {@link GlossaryServer}.
+     *
+     * @return the port, 0 to write the pages
+     */
+    public int serve() {
+        return this.serve;
+    }
+
+    /**
+     * Returns whether the input is split into chunks parsed on all the
+     * workers, see {@link ParallelGlossaryReader}.
+     *
+     * @return whether the input is parsed in parallel
+     */
+    public boolean parallelParse() {
+        return this.parallelParse;
+    }
+
+    /**
+     * Returns whether every stage of the run is timed and a summary printed,
+     * see {@link RunProfile}.
+     *
+     * @return whether the run is profiled
+     */
+    public boolean profile() {
+        return this.profile;
+    }
+
+    /**
+     * Returns the path of the JSON file the profile is written to.
+     *
+     * @return the JSON file path, null for none
+     */
+    public String profileJson() {
+        return this.profileJson;
+    }
+
+    /**
+     * Returns whether every page is also written compressed, see
+     * {@link GzipPageWriter}.
+     *
+     * @return whether the pages are compressed
+     */
+    public boolean gzip() {
+        return this.gzip;
+    }
+
+    /**
+     * Returns whether every page is only written compressed.
+     *
+     * @return whether the uncompressed pages are left out
+     */
+    public boolean gzipOnly() {
+        return this.gzipOnly;
+    }
+
+    /**
+     * Returns the path of the layout file of the term pages, see
+     * {@link PageTemplate}.
+     *
+     * @return the layout file path, null for the built-in layout
+     */
+    public String termTemplate() {
+        return this.termTemplate;
+    }
+
+    /**
+     * Returns the path of the layout file of the index page, see
+     * {@link PageTemplate}.
+     *
+     * @return the layout file path, null for the built-in layout
+     */
+    public String indexTemplate() {
+        return this.indexTemplate;
+    }
+
+    /**
+     * Returns whether the model of the input is loaded from, or saved to, a
+     * binary snapshot, see {@link GlossarySnapshot}.
+     *
+     * @return whether a snapshot is used
+     */
+    public boolean snapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * Returns the path of the snapshot file.
+     *
+     * @return the snapshot path, null for the default one next to the input
+     *         file
+     */
+    public String snapshotPath() {
+        return this.snapshotPath;
+    }
+
+    /**
+     * Returns whether the words that are terms up to case and plural endings
+     * are linked too, see {@link FoldedTermIndex}.
+     *
+     * @return whether case variants and plurals of the terms are linked
+     */
+    public boolean looseLinks() {
+        return this.looseLinks;
+    }
+
+    /**
+     * Returns the number of threads writing the rendered pages while the next
+     * ones are rendered, see {@link PipelinedPageWriter}.
+     *
+     * @return the number of writer threads, 0 for none
+     */
+    public int pipeline() {
+        return this.pipeline;
+    }
+
+}
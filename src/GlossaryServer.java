@@ -0,0 +1,343 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the pages of a glossary over HTTP instead of writing them all:
+ * "/index.html" (and "/"), the index shards if the index is sharded, and
+ * "/term.html" for every term. A page is rendered the first time it is asked
+ * for, with the same layout as the written pages, and its bytes are kept in a
+ * bounded least recently used cache, so a large glossary starts serving at
+ * once and only the pages actually viewed are ever rendered. Requests are
+ * handled on virtual threads when the JVM has them, on a pool of platform
+ * threads otherwise.
+ */
+public final class GlossaryServer {
+
+    /**
+     * Default number of rendered pages kept in the cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /**
+     * HTTP status of a page found.
+     */
+    private static final int OK = 200;
+
+    /**
+     * HTTP status of a page not found.
+     */
+    private static final int NOT_FOUND = 404;
+
+    /**
+     * HTTP status of a method other than GET or HEAD.
+     */
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    /**
+     * The glossary.
+     */
+    private final GlossaryModel model;
+
+    /**
+     * The term linker of {@code model}.
+     */
+    private final TermLinker linker;
+
+    /**
+     * The reference graph of {@code model} for the backlinks, null for none.
+     */
+    private final ReferenceGraph backlinks;
+
+    /**
+     * The shards of the index of {@code model}, null for a single index page.
+     */
+    private final IndexShards shards;
+
+    /**
+     * The rendered pages by name, least recently used first; guarded by
+     * itself.
+     */
+    private final PageCache cache;
+
+    /**
+     * Number of pages rendered, cache misses included.
+     */
+    private int rendered = 0;
+
+    /**
+     * Creates the server of the pages of {@code model}, keeping up to
+     * {@code cacheSize} rendered pages.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker of {@code model}
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param shards
+     *            the shards of the index of {@code model}, null for a single
+     *            index page
+     * @param cacheSize
+     *            the number of rendered pages kept
+     * @requires {@code linker} is built from {@code model}, {@code backlinks}
+     *           and {@code shards} are null or built from {@code model} and
+     *           cacheSize > 0
+     */
+    public GlossaryServer(GlossaryModel model, TermLinker linker,
+            ReferenceGraph backlinks, IndexShards shards, int cacheSize) {
+        assert model != null : "Violation of: model is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert cacheSize > 0 : "Violation of: cacheSize > 0";
+
+        this.model = model;
+        this.linker = linker;
+        this.backlinks = backlinks;
+        this.shards = shards;
+        this.cache = new PageCache(cacheSize);
+    }
+
+    /**
+     * Returns the bytes of page {@code name}, rendering it if it is not in
+     * the cache.
+     *
+     * @param name
+     *            the file name of the page, e.g. "index.html" or "book.html"
+     * @return the bytes of the page, null if there is no such page
+     */
+    public byte[] page(String name) {
+        assert name != null : "Violation of: name is not null";
+
+        byte[] bytes;
+        synchronized (this.cache) {
+            bytes = this.cache.get(name);
+        }
+        if (bytes == null) {
+            //render outside the lock, two requests may render the same page
+            bytes = this.render(name);
+            if (bytes != null) {
+                synchronized (this.cache) {
+                    this.cache.put(name, bytes);
+                    this.rendered++;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of pages rendered so far.
+     *
+     * @return the number of pages rendered
+     */
+    public int rendered() {
+        synchronized (this.cache) {
+            return this.rendered;
+        }
+    }
+
+    /**
+     * Renders page {@code name}.
+     *
+     * @param name
+     *            the file name of the page
+     * @return the bytes of the page, null if there is no such page
+     */
+    private byte[] render(String name) {
+        PageBuffer page = PageBuffer.forThread();
+        boolean found = true;
+        if (name.equals("index.html")) {
+            if (this.shards == null) {
+                Glossary.renderIndexPage(this.model, page);
+            } else {
+                Glossary.renderIndexNavigation(this.shards, page);
+            }
+        } else {
+            int shard = this.shard(name);
+            int id = TermIndex.NOT_FOUND;
+            if (shard < 0 && name.endsWith(".html")) {
+                id = this.model.index().id(name, 0, name.length() - ".html".length());
+            }
+            if (shard >= 0) {
+                Glossary.renderIndexShard(this.model, this.shards, shard, page);
+            } else if (id != TermIndex.NOT_FOUND) {
+                Glossary.renderTermPage(this.model, id, this.linker, this.backlinks,
+                        page);
+            } else {
+                found = false;
+            }
+        }
+        byte[] bytes = null;
+        if (found) {
+            bytes = page.toByteArray();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the index shard whose file name is {@code name}.
+     *
+     * @param name
+     *            the file name of a page
+     * @return the shard, -1 if no shard has that name
+     */
+    private int shard(String name) {
+        int result = -1;
+        if (this.shards != null && name.startsWith("index-")) {
+            for (int shard = 0; shard < this.shards.count() && result < 0; shard++) {
+                if (this.shards.name(shard).equals(name)) {
+                    result = shard;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads the glossary at {@code filePath} and creates the server of its
+     * pages, with the backlinks and index shards of {@code options}.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param options
+     *            the options of the pages
+     * @return the server of the pages of the glossary
+     * @throws UncheckedIOException
+     *             if the input cannot be read
+     */
+    public static GlossaryServer load(String filePath, GlossaryOptions options) {
+        assert filePath != null : "Violation of: filePath is not null";
+        assert options != null : "Violation of: options is not null";
+
+        GlossaryModel model = Glossary.readModel(filePath, options, options.workers());
+        TermLinker linker = new TermLinker(model, null, options.looseLinks());
+        ReferenceGraph backlinks = null;
+        if (options.backlinks()) {
+            backlinks = ReferenceGraph.build(model, linker, options.workers());
+        }
+        IndexShards shards = null;
+        if (options.indexShards() != null) {
+            shards = IndexShards.of(model, options.indexShards());
+        }
+        return new GlossaryServer(model, linker, backlinks, shards,
+                DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Starts serving the pages on {@code port} of the loopback address.
+     * Requests are handled on other threads until the returned server is
+     * stopped.
+     *
+     * @param port
+     *            the port, 0 for any free port
+     * @return the running HTTP server
+     * @throws UncheckedIOException
+     *             if the port cannot be bound
+     * @requires 0 <= port <= 65535
+     */
+    public HttpServer start(int port) {
+        HttpServer server;
+        try {
+            server = HttpServer.create(
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen on port " + port, e);
+        }
+        server.createContext("/", this::handle);
+        server.setExecutor(PipelinedPageWriter.newVirtualThreadExecutor());
+        server.start();
+        return server;
+    }
+
+    /**
+     * Answers one request.
+     *
+     * @param exchange
+     *            the request and its response
+     * @throws IOException
+     *             if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            if (name.isEmpty() && path.equals("/")) {
+                name = "index.html";
+            }
+            boolean head = method.equals("HEAD");
+            if (!head && !method.equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, -1);
+            } else {
+                byte[] bytes = null;
+                if (path.indexOf('/', 1) < 0) {
+                    bytes = this.page(name);
+                }
+                if (bytes == null) {
+                    exchange.sendResponseHeaders(NOT_FOUND, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Type",
+                            "text/html; charset=UTF-8");
+                    if (head) {
+                        exchange.sendResponseHeaders(OK, -1);
+                    } else {
+                        exchange.sendResponseHeaders(OK, bytes.length);
+                        try (OutputStream body = exchange.getResponseBody()) {
+                            body.write(bytes);
+                        }
+                    }
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Map from page name to rendered bytes that drops its least recently used
+     * page once it holds more than its capacity.
+     */
+    private static final class PageCache extends LinkedHashMap<String, byte[]> {
+
+        /**
+         * Serialization id.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Load factor of the map.
+         */
+        private static final float LOAD_FACTOR = 0.75f;
+
+        /**
+         * Largest number of pages kept.
+         */
+        private final int capacity;
+
+        /**
+         * Creates the empty cache of {@code capacity} pages.
+         *
+         * @param capacity
+         *            the largest number of pages kept
+         */
+        PageCache(int capacity) {
+            super((int) (capacity / LOAD_FACTOR) + 1, LOAD_FACTOR, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return this.size() > this.capacity;
+        }
+
+    }
+
+}
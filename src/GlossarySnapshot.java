@@ -0,0 +1,438 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+/**
+ * Versioned binary snapshot of a {@link GlossaryModel}, saved next to its input
+ * file so that later runs load the model without parsing the input again. The
+ * snapshot holds the terms in alphabetical order, the hash table of their
+ * {@link TermIndex}, the definition arena and the offsets of the definitions,
+ * all as raw big-endian ints and UTF-16 chars; it is loaded through a memory
+ * map by copying these arrays out whole, with no decoding and no hashing of
+ * the terms. A snapshot records the size, last modified time and FNV-1a hash
+ * of its input file and is only used while all three match, so a stale
+ * snapshot is rebuilt on the next run.
+ *
+ * <p>
+ * Layout: the header (magic, version, source size, source modified time,
+ * source hash, number of terms, number of chars of the terms, number of chars
+ * of the definitions, number of slots of the hash table), then the offsets of
+ * the terms, the offsets of the definitions, the slots of the hash table, the
+ * chars of the terms and the chars of the definitions.
+ */
+public final class GlossarySnapshot {
+
+    /**
+     * Version of the snapshot layout; a snapshot of another version is
+     * rebuilt.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Extension appended to the input file path for its default snapshot.
+     */
+    public static final String EXTENSION = ".snapshot";
+
+    /**
+     * First int of a snapshot, "GLSS".
+     */
+    private static final int MAGIC = 0x474c5353;
+
+    /**
+     * Number of bytes of the header.
+     */
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + 3 * Long.BYTES
+            + 4 * Integer.BYTES;
+
+    /**
+     * Largest number of bytes of the input file hashed at once.
+     */
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private GlossarySnapshot() {
+    }
+
+    /**
+     * Returns the default snapshot path of the input file at
+     * {@code filePath}, next to it.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @return the path of its snapshot
+     */
+    public static String defaultPath(String filePath) {
+        assert filePath != null : "Violation of: filePath is not null";
+
+        return filePath + EXTENSION;
+    }
+
+    /**
+     * Returns the model of the input file at {@code filePath}, loaded from the
+     * snapshot at {@code snapshotPath} if it is up to date, otherwise built by
+     * {@code parse} and saved to the snapshot for the next runs.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param snapshotPath
+     *            the path of the snapshot of the file
+     * @param parse
+     *            builds the model of the input file
+     * @return the model of the input file
+     * @throws UncheckedIOException
+     *             if the input file cannot be read or the snapshot cannot be
+     *             read or written
+     * @ensures [read has the terms and definitions of the file]
+     */
+    public static GlossaryModel read(String filePath, String snapshotPath,
+            Supplier<GlossaryModel> parse) {
+        assert parse != null : "Violation of: parse is not null";
+
+        //stamp the file before parsing it, a later change then makes it stale
+        Source source = Source.of(Paths.get(filePath));
+        GlossaryModel model = load(source, Paths.get(snapshotPath));
+        if (model == null) {
+            model = parse.get();
+            write(model, source, Paths.get(snapshotPath));
+        }
+        return model;
+    }
+
+    /**
+     * Loads the model of the input file at {@code filePath} from the snapshot
+     * at {@code snapshotPath}.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param snapshotPath
+     *            the path of the snapshot of the file
+     * @return the model of the snapshot, null if there is no snapshot or it is
+     *         not up to date with the file or of another version
+     * @throws UncheckedIOException
+     *             if the input file or the snapshot cannot be read
+     */
+    public static GlossaryModel load(String filePath, String snapshotPath) {
+        assert filePath != null : "Violation of: filePath is not null";
+        assert snapshotPath != null : "Violation of: snapshotPath is not null";
+
+        return load(Source.of(Paths.get(filePath)), Paths.get(snapshotPath));
+    }
+
+    /**
+     * Saves {@code model}, built from the input file at {@code filePath} as
+     * it is now, to the snapshot at {@code snapshotPath}.
+     *
+     * @param model
+     *            the model of the input file
+     * @param filePath
+     *            the glossary input file
+     * @param snapshotPath
+     *            the path of the snapshot of the file
+     * @throws UncheckedIOException
+     *             if the input file cannot be read or the snapshot cannot be
+     *             written
+     * @requires model is the model of the current content of the file
+     */
+    public static void write(GlossaryModel model, String filePath,
+            String snapshotPath) {
+        assert model != null : "Violation of: model is not null";
+        assert filePath != null : "Violation of: filePath is not null";
+        assert snapshotPath != null : "Violation of: snapshotPath is not null";
+
+        write(model, Source.of(Paths.get(filePath)), Paths.get(snapshotPath));
+    }
+
+    /**
+     * Loads the model of {@code source} from the snapshot at {@code path}.
+     *
+     * @param source
+     *            the stamp of the input file
+     * @param path
+     *            the snapshot
+     * @return the model of the snapshot, null if there is no snapshot or it is
+     *         not up to date with the file or of another version
+     * @throws UncheckedIOException
+     *             if the snapshot cannot be read
+     */
+    private static GlossaryModel load(Source source, Path path) {
+        GlossaryModel model = null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= HEADER_SIZE && size <= Integer.MAX_VALUE) {
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        size);
+                if (bytes.getInt() == MAGIC && bytes.getInt() == VERSION
+                        && bytes.getLong() == source.size
+                        && bytes.getLong() == source.modified
+                        && bytes.getLong() == source.hash) {
+                    model = restore(bytes);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            //no snapshot yet
+            model = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + path, e);
+        }
+        return model;
+    }
+
+    /**
+     * Restores the model from the snapshot in {@code bytes}, positioned past
+     * the stamp of the input file.
+     *
+     * @param bytes
+     *            the snapshot
+     * @return the model, null if the snapshot is truncated or inconsistent
+     */
+    private static GlossaryModel restore(ByteBuffer bytes) {
+        GlossaryModel model = null;
+        try {
+            int terms = bytes.getInt();
+            int termChars = bytes.getInt();
+            int definitionChars = bytes.getInt();
+            int slots = bytes.getInt();
+            int[] termStarts = ints(bytes, terms + 1);
+            int[] definitionStarts = ints(bytes, terms + 1);
+            int[] table = ints(bytes, slots);
+            String termArena = chars(bytes, termChars);
+            String definitions = chars(bytes, definitionChars);
+
+            boolean consistent = Integer.bitCount(slots) == 1
+                    && termStarts[terms] == termChars
+                    && definitionStarts[terms] == definitionChars;
+            String[] sorted = new String[terms];
+            for (int id = 0; id < terms && consistent; id++) {
+                consistent = termStarts[id] <= termStarts[id + 1]
+                        && definitionStarts[id] <= definitionStarts[id + 1];
+                if (consistent) {
+                    sorted[id] = termArena.substring(termStarts[id],
+                            termStarts[id + 1]);
+                }
+            }
+            if (consistent) {
+                model = GlossaryModel.restore(sorted, table, definitions,
+                        definitionStarts);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            //a truncated or damaged snapshot is rebuilt
+            model = null;
+        }
+        return model;
+    }
+
+    /**
+     * Reads {@code count} ints from {@code bytes}.
+     *
+     * @param bytes
+     *            the snapshot
+     * @param count
+     *            the number of ints
+     * @return the ints
+     * @update bytes
+     */
+    private static int[] ints(ByteBuffer bytes, int count) {
+        if ((long) count * Integer.BYTES > bytes.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int[] result = new int[count];
+        bytes.asIntBuffer().get(result);
+        bytes.position(bytes.position() + count * Integer.BYTES);
+        return result;
+    }
+
+    /**
+     * Reads {@code count} chars from {@code bytes} as a string.
+     *
+     * @param bytes
+     *            the snapshot
+     * @param count
+     *            the number of chars
+     * @return the string of the chars
+     * @update bytes
+     */
+    private static String chars(ByteBuffer bytes, int count) {
+        if ((long) count * Character.BYTES > bytes.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        char[] result = new char[count];
+        bytes.asCharBuffer().get(result);
+        bytes.position(bytes.position() + count * Character.BYTES);
+        return new String(result);
+    }
+
+    /**
+     * Saves {@code model} of {@code source} to the snapshot at {@code path},
+     * through a temporary file replacing the snapshot once complete so that a
+     * run never loads half a snapshot. A model too large to be mapped at once
+     * is not saved.
+     *
+     * @param model
+     *            the model of the input file
+     * @param source
+     *            the stamp of the input file
+     * @param path
+     *            the snapshot
+     * @throws UncheckedIOException
+     *             if the snapshot cannot be written
+     */
+    private static void write(GlossaryModel model, Source source, Path path) {
+        int[] slots = model.index().slots();
+        int termChars = 0;
+        for (int id = 0; id < model.size(); id++) {
+            termChars += model.term(id).length();
+        }
+        long snapshotSize = HEADER_SIZE
+                + (long) Integer.BYTES * (2L * (model.size() + 1) + slots.length)
+                + (long) Character.BYTES * (termChars + model.definitions().length());
+        if (snapshotSize <= Integer.MAX_VALUE) {
+            writeFile(model, source, slots, termChars, path);
+        }
+    }
+
+    /**
+     * Writes the snapshot of {@code model} of {@code source} to a temporary
+     * file and moves it over the snapshot at {@code path}.
+     *
+     * @param model
+     *            the model of the input file
+     * @param source
+     *            the stamp of the input file
+     * @param slots
+     *            the hash table of the term index of the model
+     * @param termChars
+     *            the number of chars of all the terms
+     * @param path
+     *            the snapshot
+     * @throws UncheckedIOException
+     *             if the snapshot cannot be written
+     */
+    private static void writeFile(GlossaryModel model, Source source, int[] slots,
+            int termChars, Path path) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(source.size);
+            out.writeLong(source.modified);
+            out.writeLong(source.hash);
+            out.writeInt(model.size());
+            out.writeInt(termChars);
+            out.writeInt(model.definitions().length());
+            out.writeInt(slots.length);
+
+            int start = 0;
+            for (int id = 0; id < model.size(); id++) {
+                out.writeInt(start);
+                start += model.term(id).length();
+            }
+            out.writeInt(start);
+            for (int id = 0; id < model.size(); id++) {
+                out.writeInt(model.definitionStart(id));
+            }
+            out.writeInt(model.definitions().length());
+            for (int slot : slots) {
+                out.writeInt(slot);
+            }
+            for (int id = 0; id < model.size(); id++) {
+                out.writeChars(model.term(id));
+            }
+            out.writeChars(model.definitions());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + temporary, e);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + path, e);
+        }
+    }
+
+    /**
+     * The stamp of an input file: its size, last modified time and hash.
+     */
+    private static final class Source {
+
+        /**
+         * Size of the file in bytes.
+         */
+        private final long size;
+
+        /**
+         * Last modified time of the file in milliseconds.
+         */
+        private final long modified;
+
+        /**
+         * FNV-1a hash of the bytes of the file.
+         */
+        private final long hash;
+
+        /**
+         * Creates the stamp.
+         *
+         * @param size
+         *            size of the file in bytes
+         * @param modified
+         *            last modified time of the file in milliseconds
+         * @param hash
+         *            hash of the bytes of the file
+         */
+        Source(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the stamp of the file at {@code file}, hashing it through a
+         * memory map.
+         *
+         * @param file
+         *            the input file
+         * @return the stamp of the file
+         * @throws UncheckedIOException
+         *             if the file cannot be read
+         */
+        static Source of(Path file) {
+            Source source;
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.READ)) {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                long size = channel.size();
+                long hash = IncrementalBuild.FNV_OFFSET;
+                for (long base = 0; base < size; base += WINDOW_SIZE) {
+                    int length = (int) Math.min(size - base, WINDOW_SIZE);
+                    MappedByteBuffer window = channel
+                            .map(FileChannel.MapMode.READ_ONLY, base, length);
+                    for (int i = 0; i < length; i++) {
+                        hash = IncrementalBuild.hash(hash, window.get(i));
+                    }
+                }
+                source = new Source(size, modified, hash);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + file, e);
+            }
+            return source;
+        }
+
+    }
+
+}
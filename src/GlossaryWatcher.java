@@ -0,0 +1,619 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the pages of an output folder up to date with a glossary input file
+ * while it is being edited. The records of the last version of the file are
+ * kept in memory with their bytes, so that when the file changes only the
+ * records whose bytes changed are decoded again. The model, its linker, its
+ * reference graph, its index shards and the manifest of the pages are kept
+ * too: only the definitions that changed, and those that may link to a term
+ * added or removed, are tokenized again, and only their manifest entries, and
+ * those of the terms they link to when the pages have backlinks, are
+ * compared by an {@link IncrementalBuild}, which rewrites only the term pages
+ * and the index (or index shards) that changed. While the terms stay the
+ * same, their ids, linker and shards are kept as they are.
+ */
+public final class GlossaryWatcher {
+
+    /**
+     * Time to wait after a change for the next one of the same save before
+     * refreshing, in milliseconds.
+     */
+    private static final long SETTLE_MILLIS = 50;
+
+    /**
+     * Number of terms added by one save above which the reference graph is
+     * built again instead of searching every definition for each added term.
+     */
+    private static final int MAX_ADDED_TERMS = 64;
+
+    /**
+     * The watched input file.
+     */
+    private final Path file;
+
+    /**
+     * The output folder.
+     */
+    private final String folderPath;
+
+    /**
+     * The options of the pages: backlinks, index shards, search index and
+     * the number of threads writing pages.
+     */
+    private final GlossaryOptions options;
+
+    /**
+     * The bytes of the file when it was last read.
+     */
+    private byte[] bytes = new byte[0];
+
+    /**
+     * The decoded records of {@code bytes}, by the hash of their bytes.
+     */
+    private HashMap<Long, Record> records = new HashMap<>();
+
+    /**
+     * Number of records decoded by the last refresh.
+     */
+    private int decoded = 0;
+
+    /**
+     * The model of the file as of the last refresh, null before the first
+     * refresh and after a refresh that failed, the next one then starting
+     * over from the manifest in the folder.
+     */
+    private GlossaryModel model = null;
+
+    /**
+     * The definition of every id of {@code model}, as decoded from the
+     * records.
+     */
+    private String[] definitions;
+
+    /**
+     * The term linker of {@code model}.
+     */
+    private TermLinker linker;
+
+    /**
+     * The reference graph of {@code model}.
+     */
+    private ReferenceGraph graph;
+
+    /**
+     * The index shards of {@code model}, null for a single index page.
+     */
+    private IndexShards shards;
+
+    /**
+     * The manifest of the pages in the folder, from each term to its entry.
+     */
+    private HashMap<String, String> manifest;
+
+    /**
+     * Creates the watcher of {@code filePath}, writing the pages to
+     * {@code folderPath} as described by {@code options}. Nothing is read or
+     * written before {@link #refresh()} or {@link #watch(Consumer, Consumer)}.
+     *
+     * @param filePath
+     *            the glossary input file
+     * @param folderPath
+     *            the output folder
+     * @param options
+     *            the options of the pages
+     * @requires {@code folderPath} is an existing folder
+     */
+    public GlossaryWatcher(String filePath, String folderPath,
+            GlossaryOptions options) {
+        assert filePath != null : "Violation of: filePath is not null";
+        assert folderPath != null : "Violation of: folderPath is not null";
+        assert options != null : "Violation of: options is not null";
+
+        this.file = Paths.get(filePath).toAbsolutePath();
+        this.folderPath = folderPath;
+        this.options = options;
+    }
+
+    /**
+     * Reads the file again, decoding only the records that changed since the
+     * last refresh, and brings the pages up to date. The first refresh, and
+     * the one after a refresh that failed, compares every page with the
+     * manifest in the folder; the others only the pages that may have changed.
+     *
+     * @return the summary of what was rewritten
+     * @throws UncheckedIOException
+     *             if the file cannot be read or a page cannot be written
+     * @ensures [the folder holds the pages of the file]
+     */
+    public IncrementalBuild refresh() {
+        IncrementalBuild build;
+        boolean refreshed = false;
+        try {
+            build = this.update();
+            refreshed = true;
+        } finally {
+            if (!refreshed) {
+                //the pages may be behind the state kept, start over
+                this.model = null;
+            }
+        }
+        return build;
+    }
+
+    /**
+     * Brings the pages up to date with the file and the state kept with them.
+     *
+     * @return the summary of what was rewritten
+     * @throws UncheckedIOException
+     *             if the file cannot be read or a page cannot be written
+     */
+    private IncrementalBuild update() {
+        ArrayList<String> fileTerms = new ArrayList<>();
+        ArrayList<String> fileDefinitions = new ArrayList<>();
+        this.parse(fileTerms, fileDefinitions);
+
+        //keep the ids, and all that depends on the terms only, while the terms
+        //are the same
+        GlossaryModel previous = this.model;
+        GlossaryModel next = null;
+        String[] nextDefinitions = null;
+        if (previous != null) {
+            nextDefinitions = definitionsById(previous, fileTerms, fileDefinitions);
+            if (nextDefinitions != null) {
+                next = previous.withDefinitions(nextDefinitions);
+            }
+        }
+        if (next == null) {
+            next = GlossaryModel.of(fileTerms, fileDefinitions);
+            nextDefinitions = definitionsById(next, fileTerms, fileDefinitions);
+        }
+        boolean sameTerms = previous != null && next.index() == previous.index();
+        int workers = this.options.workers();
+        TermLinker nextLinker = this.linker;
+        IndexShards nextShards = this.shards;
+        if (!sameTerms) {
+            nextLinker = new TermLinker(next, null, this.options.looseLinks());
+            if (this.options.indexShards() != null) {
+                nextShards = IndexShards.of(next, this.options.indexShards());
+            }
+        }
+
+        ReferenceGraph nextGraph;
+        BitSet candidates = null;
+        if (previous == null) {
+            nextGraph = ReferenceGraph.build(next, nextLinker, workers);
+            this.manifest = IncrementalBuild.readManifest(this.folderPath);
+        } else {
+            BitSet stale = this.stale(next, nextDefinitions);
+            if (stale == null) {
+                nextGraph = ReferenceGraph.build(next, nextLinker, workers);
+            } else {
+                nextGraph = ReferenceGraph.update(this.graph, previous, next,
+                        nextLinker, stale);
+                candidates = this.candidates(next, nextGraph, stale);
+            }
+        }
+
+        IncrementalBuild build = IncrementalBuild.update(next, nextLinker, nextGraph,
+                this.options.backlinks(), nextShards, this.folderPath, workers,
+                this.manifest, candidates == null ? null
+                        : candidates.stream().toArray());
+        if (this.options.searchIndex() && !sameTerms) {
+            //the search index only has the terms
+            SearchIndex.write(next, nextShards, new FolderPageWriter(this.folderPath));
+        }
+
+        this.model = next;
+        this.definitions = nextDefinitions;
+        this.linker = nextLinker;
+        this.graph = nextGraph;
+        this.shards = nextShards;
+        return build;
+    }
+
+    /**
+     * Returns the definition of every id of {@code model} in the records, the
+     * last record of a term winning, or null if the records have a term that
+     * {@code model} does not have or lack one that it has.
+     *
+     * @param model
+     *            the model whose ids are used
+     * @param fileTerms
+     *            the terms of the records in file order
+     * @param fileDefinitions
+     *            the definitions of the records in file order
+     * @return the definition of every id, or null
+     */
+    private static String[] definitionsById(GlossaryModel model,
+            List<String> fileTerms, List<String> fileDefinitions) {
+        String[] byId = new String[model.size()];
+        int distinct = 0;
+        boolean same = true;
+        for (int k = 0; same && k < fileTerms.size(); k++) {
+            int id = model.id(fileTerms.get(k));
+            same = id != TermIndex.NOT_FOUND;
+            if (same) {
+                if (byId[id] == null) {
+                    distinct++;
+                }
+                byId[id] = fileDefinitions.get(k);
+            }
+        }
+        String[] result = null;
+        if (same && distinct == model.size()) {
+            result = byId;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of {@code next} whose definition must be tokenized
+     * again: those whose definition changed, those of new terms, those whose
+     * definition linked to a removed term and those whose definition may
+     * hold an added term. Returns null if so many terms were added that the
+     * whole reference graph is better built again.
+     *
+     * @param next
+     *            the new model
+     * @param nextDefinitions
+     *            the definition of every id of {@code next}
+     * @return the ids to tokenize again, or null for all
+     */
+    private BitSet stale(GlossaryModel next, String[] nextDefinitions) {
+        GlossaryModel previous = this.model;
+        boolean sameTerms = next.index() == previous.index();
+        BitSet stale = new BitSet(next.size());
+        int[] added = new int[MAX_ADDED_TERMS];
+        int addedCount = 0;
+        for (int id = 0; id < next.size(); id++) {
+            int old = sameTerms ? id : previous.id(next.term(id));
+            if (old == TermIndex.NOT_FOUND) {
+                stale.set(id);
+                if (addedCount < added.length) {
+                    added[addedCount] = id;
+                }
+                addedCount++;
+            } else if (!nextDefinitions[id].equals(this.definitions[old])) {
+                stale.set(id);
+            }
+        }
+        if (!sameTerms) {
+            //the definitions that linked to a removed term
+            for (int old = 0; old < previous.size(); old++) {
+                if (next.id(previous.term(old)) == TermIndex.NOT_FOUND) {
+                    for (int k = 0; k < this.graph.referrerCount(old); k++) {
+                        int id = next.id(previous.term(this.graph.referrer(old, k)));
+                        if (id != TermIndex.NOT_FOUND) {
+                            stale.set(id);
+                        }
+                    }
+                }
+            }
+            //the definitions that may hold an added term
+            for (int k = 0; k < Math.min(addedCount, added.length); k++) {
+                String term = next.term(added[k]);
+                for (int id = 0; id < next.size(); id++) {
+                    if (!stale.get(id) && this.mayHold(nextDefinitions[id], term)) {
+                        stale.set(id);
+                    }
+                }
+            }
+        }
+        BitSet result = null;
+        if (addedCount <= MAX_ADDED_TERMS) {
+            result = stale;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the linker may link a word of {@code definition} to
+     * {@code term}: whether the definition holds the term or, when the words
+     * are linked loosely, the term without its last character in any case, so
+     * that plurals such as "cities" for "city" are found too.
+     *
+     * @param definition
+     *            the definition
+     * @param term
+     *            the term
+     * @return false if no word of the definition can be the term
+     */
+    private boolean mayHold(String definition, String term) {
+        boolean found;
+        if (this.options.looseLinks()) {
+            int length = Math.max(term.length() - 1, 1);
+            found = false;
+            for (int i = 0; !found && i + length <= definition.length(); i++) {
+                found = definition.regionMatches(true, i, term, 0, length);
+            }
+        } else {
+            found = definition.contains(term);
+        }
+        return found;
+    }
+
+    /**
+     * Returns the ids of {@code next} whose manifest entry may have changed:
+     * the ids in {@code stale} and, when the pages have backlinks, the terms
+     * their definitions link to, before and after, and the terms the
+     * definitions of removed terms linked to.
+     *
+     * @param next
+     *            the new model
+     * @param nextGraph
+     *            the reference graph of {@code next}
+     * @param stale
+     *            the ids whose definition was tokenized again
+     * @return the ids whose manifest entry may have changed
+     */
+    private BitSet candidates(GlossaryModel next, ReferenceGraph nextGraph,
+            BitSet stale) {
+        GlossaryModel previous = this.model;
+        BitSet candidates = (BitSet) stale.clone();
+        if (this.options.backlinks()) {
+            for (int id = stale.nextSetBit(0); id >= 0; id = stale.nextSetBit(id + 1)) {
+                for (int k = 0; k < nextGraph.referenceCount(id); k++) {
+                    candidates.set(nextGraph.reference(id, k));
+                }
+                this.setReferences(previous.id(next.term(id)), next, candidates);
+            }
+            if (next.index() != previous.index()) {
+                for (int old = 0; old < previous.size(); old++) {
+                    if (next.id(previous.term(old)) == TermIndex.NOT_FOUND) {
+                        this.setReferences(old, next, candidates);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Adds to {@code ids} the ids in {@code next} of the terms that the
+     * definition of {@code old} linked to in the previous model, those that
+     * are still terms.
+     *
+     * @param old
+     *            an id of the previous model, or {@link TermIndex#NOT_FOUND}
+     * @param next
+     *            the new model
+     * @param ids
+     *            the set of ids of {@code next}
+     * @update ids
+     */
+    private void setReferences(int old, GlossaryModel next, BitSet ids) {
+        if (old != TermIndex.NOT_FOUND) {
+            for (int k = 0; k < this.graph.referenceCount(old); k++) {
+                int id = next.id(this.model.term(this.graph.reference(old, k)));
+                if (id != TermIndex.NOT_FOUND) {
+                    ids.set(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records decoded by the last refresh; the others
+     * were unchanged and reused.
+     *
+     * @return the number of records decoded
+     */
+    public int decoded() {
+        return this.decoded;
+    }
+
+    /**
+     * Refreshes the pages, then again every time the file changes, passing
+     * the summary of every refresh to {@code listener}. A refresh that fails,
+     * e.g. on a half written save or a malformed record, is passed to
+     * {@code errors} and the watch goes on, the next save refreshing the pages
+     * again. Returns when the thread is interrupted.
+     *
+     * @param listener
+     *            receives the summary of every refresh
+     * @param errors
+     *            receives the failure of every refresh that fails
+     * @throws UncheckedIOException
+     *             if the folder of the file cannot be watched
+     */
+    public void watch(Consumer<IncrementalBuild> listener,
+            Consumer<RuntimeException> errors) {
+        assert listener != null : "Violation of: listener is not null";
+        assert errors != null : "Violation of: errors is not null";
+
+        Path folder = this.file.getParent();
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            //editors save by writing the file or by renaming a new one over it
+            folder.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            this.refresh(listener, errors);
+            boolean watching = true;
+            while (watching) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                while (key != null) {
+                    changed |= this.concernsFile(key);
+                    watching = key.reset();
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (changed && Files.exists(this.file)) {
+                    this.refresh(listener, errors);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot watch " + folder, e);
+        }
+    }
+
+    /**
+     * Refreshes the pages, passing the summary to {@code listener} or the
+     * failure to {@code errors}. A violated precondition, reported by an
+     * AssertionError when assertions are enabled, is passed on as an
+     * IllegalArgumentException.
+     *
+     * @param listener
+     *            receives the summary of the refresh
+     * @param errors
+     *            receives the failure of the refresh
+     */
+    private void refresh(Consumer<IncrementalBuild> listener,
+            Consumer<RuntimeException> errors) {
+        IncrementalBuild build = null;
+        try {
+            build = this.refresh();
+        } catch (RuntimeException e) {
+            errors.accept(e);
+        } catch (AssertionError e) {
+            errors.accept(new IllegalArgumentException(e.getMessage(), e));
+        }
+        if (build != null) {
+            listener.accept(build);
+        }
+    }
+
+    /**
+     * Returns whether any event of {@code key} is about the watched file.
+     *
+     * @param key
+     *            the signalled key
+     * @return whether the file changed
+     */
+    private boolean concernsFile(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || this.file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Reads the file and appends the term and definition of each of its
+     * records to {@code fileTerms} and {@code fileDefinitions}, reusing the
+     * decoded records whose bytes did not change.
+     *
+     * @param fileTerms
+     *            receives the terms of the records in file order
+     * @param fileDefinitions
+     *            receives the definitions of the records in file order
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     * @update fileTerms, fileDefinitions
+     */
+    private void parse(List<String> fileTerms, List<String> fileDefinitions) {
+        byte[] next = this.readFile();
+        byte[] previous = this.bytes;
+        HashMap<Long, Record> reusable = this.records;
+        HashMap<Long, Record> found = new HashMap<>(reusable.size() * 2 + 1);
+        byte[] scratch = new byte[1 << 12];
+        this.decoded = 0;
+        MappedGlossaryReader.split(ByteBuffer.wrap(next), 0, next.length, true,
+                (buffer, termStart, termEnd, definitionStart, definitionEnd) -> {
+                    int end = Math.max(termEnd, definitionEnd);
+                    Long hash = IncrementalBuild.hash(next, termStart, end);
+                    Record record = reusable.get(hash);
+                    if (record == null || !Arrays.equals(previous, record.start,
+                            record.end, next, termStart, end)) {
+                        record = new Record(termStart, end,
+                                MappedGlossaryReader.decodeTerm(buffer, termStart,
+                                        termEnd),
+                                MappedGlossaryReader.decodeDefinition(buffer,
+                                        definitionStart, definitionEnd, scratch));
+                        this.decoded++;
+                    } else {
+                        record = new Record(termStart, end, record.term,
+                                record.definition);
+                    }
+                    found.put(hash, record);
+                    fileTerms.add(record.term);
+                    fileDefinitions.add(record.definition);
+                });
+        this.bytes = next;
+        this.records = found;
+    }
+
+    /**
+     * Reads all the bytes of the file.
+     *
+     * @return the bytes of the file
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     */
+    private byte[] readFile() {
+        try {
+            return Files.readAllBytes(this.file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + this.file, e);
+        }
+    }
+
+    /**
+     * One record of the file: the range of its bytes and its decoded term and
+     * definition.
+     */
+    private static final class Record {
+
+        /**
+         * Index of the first byte of the record.
+         */
+        private final int start;
+
+        /**
+         * Index past the last byte of the record.
+         */
+        private final int end;
+
+        /**
+         * The term.
+         */
+        private final String term;
+
+        /**
+         * The definition.
+         */
+        private final String definition;
+
+        /**
+         * Creates the record.
+         *
+         * @param start
+         *            index of the first byte of the record
+         * @param end
+         *            index past the last byte of the record
+         * @param term
+         *            the term
+         * @param definition
+         *            the definition
+         */
+        Record(int start, int end, String term, String definition) {
+            this.start = start;
+            this.end = end;
+            this.term = term;
+            this.definition = definition;
+        }
+
+    }
+
+}
@@ -0,0 +1,190 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes each page precompressed, as "name.gz" in an output folder, next to
+ * the uncompressed "name" or instead of it, so that a static server can send
+ * the compressed file as it is. A page is compressed right after it is
+ * rendered, from the bytes of its {@link PageBuffer}, by a {@link Deflater}
+ * and a buffer reused from page to page, at the default compression level so
+ * that compressing stays cheap next to rendering. A writing thread takes an
+ * idle compressor, or creates one if none is idle, and hands it back after
+ * the page, so there are never more compressors than threads writing at
+ * once; {@link #close()} frees their native memory. Safe to use from several
+ * threads at once.
+ */
+public final class GzipPageWriter implements PageWriter, Closeable {
+
+    /**
+     * The gzip header: magic number, deflate, no flags, no time, no extra
+     * flags, unknown operating system.
+     */
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0,
+            0, 0, 0, 0, 0, (byte) 0xff };
+
+    /**
+     * Length of the gzip trailer: CRC-32 and size of the page.
+     */
+    private static final int TRAILER_LENGTH = 8;
+
+    /**
+     * Initial capacity of the compressed page buffer of a compressor.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    /**
+     * The output folder.
+     */
+    private final Path folder;
+
+    /**
+     * The writer of the uncompressed pages, null to only write compressed
+     * pages.
+     */
+    private final PageWriter uncompressed;
+
+    /**
+     * The compressors not compressing a page, reset for every page.
+     */
+    private final Queue<Compressor> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates the writer of the compressed pages in {@code folderPath}, also
+     * writing the uncompressed pages if {@code keepUncompressed}.
+     *
+     * @param folderPath
+     *            the output folder
+     * @param keepUncompressed
+     *            whether the uncompressed pages are written too
+     * @requires {@code folderPath} is an existing folder
+     */
+    public GzipPageWriter(String folderPath, boolean keepUncompressed) {
+        assert folderPath != null : "Violation of: folderPath is not null";
+
+        this.folder = Paths.get(folderPath);
+        if (keepUncompressed) {
+            this.uncompressed = new FolderPageWriter(folderPath);
+        } else {
+            this.uncompressed = null;
+        }
+    }
+
+    @Override
+    public void write(String name, PageBuffer page) {
+        assert name != null : "Violation of: name is not null";
+        assert page != null : "Violation of: page is not null";
+
+        if (this.uncompressed != null) {
+            this.uncompressed.write(name, page);
+        }
+        Path file = this.folder.resolve(name + ".gz");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Compressor compressor = this.idle.poll();
+            if (compressor == null) {
+                compressor = new Compressor();
+            }
+            try {
+                ByteBuffer bytes = compressor.compress(page);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            } finally {
+                this.idle.add(compressor);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + file, e);
+        }
+    }
+
+    /**
+     * Frees the native memory of the compressors. Called once every write
+     * returned; a later write creates a new compressor that the garbage
+     * collector frees.
+     */
+    @Override
+    public void close() {
+        Compressor compressor = this.idle.poll();
+        while (compressor != null) {
+            compressor.deflater.end();
+            compressor = this.idle.poll();
+        }
+    }
+
+    /**
+     * The deflater, checksum and output buffer of one writing thread at a time.
+     */
+    private static final class Compressor {
+
+        /**
+         * The raw deflater, the gzip header and trailer being written here.
+         */
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION,
+                true);
+
+        /**
+         * The checksum of the page.
+         */
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * The compressed page, the first {@code length} bytes are used.
+         */
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+        /**
+         * Creates the compressor.
+         */
+        Compressor() {
+        }
+
+        /**
+         * Compresses {@code page} into a gzip member.
+         *
+         * @param page
+         *            the page
+         * @return the compressed page, valid until the next compression by
+         *         this compressor
+         */
+        ByteBuffer compress(PageBuffer page) {
+            this.deflater.reset();
+            this.crc.reset();
+            this.crc.update(page.asByteBuffer());
+            this.deflater.setInput(page.asByteBuffer());
+            this.deflater.finish();
+
+            System.arraycopy(HEADER, 0, this.bytes, 0, HEADER.length);
+            int length = HEADER.length;
+            while (!this.deflater.finished()) {
+                if (length == this.bytes.length) {
+                    this.bytes = Arrays.copyOf(this.bytes, length * 2);
+                }
+                length += this.deflater.deflate(this.bytes, length,
+                        this.bytes.length - length);
+            }
+
+            if (length + TRAILER_LENGTH > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, length + TRAILER_LENGTH);
+            }
+            ByteBuffer result = ByteBuffer.wrap(this.bytes, 0, length + TRAILER_LENGTH)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            result.putInt(length, (int) this.crc.getValue());
+            result.putInt(length + Integer.BYTES, page.length());
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,576 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Regenerates only the pages of an output folder that changed since the last
+ * run. A manifest kept in the folder records, for every term, a hash of its
+ * definition, whether its words were linked loosely (see
+ * {@link FoldedTermIndex}) and the terms its page links to, read off the
+ * {@link ReferenceGraph}, plus the terms linking back to it when the pages
+ * have backlinks. A term page is rewritten when any of these changed: the
+ * link mode is recorded on its own because a loose link to a term already
+ * linked exactly changes the page but not the terms it links to. The pages of
+ * removed terms are deleted, and the index page is rewritten only when the
+ * set of terms changed. A sharded index has a manifest of its own, with a
+ * hash of the terms of every shard, so that only the shards whose terms
+ * changed are rewritten.
+ */
+public final class IncrementalBuild {
+
+    /**
+     * Name of the manifest file in the output folder.
+     */
+    public static final String MANIFEST = ".glossary-manifest";
+
+    /**
+     * Name of the manifest of a sharded index in the output folder.
+     */
+    public static final String INDEX_MANIFEST = ".glossary-index-manifest";
+
+    /**
+     * First line of a manifest, identifying its format.
+     */
+    private static final String HEADER = "glossary-manifest 1";
+
+    /**
+     * Appended to the hash of a definition whose words are linked loosely.
+     */
+    private static final String LOOSE_MARK = " loose-links";
+
+    /**
+     * FNV-1a 64 bit offset basis, the hash of no bytes. The hashes of the
+     * input files and records start from it too, see {@link #hash(long, int)}.
+     */
+    static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64 bit prime.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Number of term pages rewritten.
+     */
+    private final int written;
+
+    /**
+     * Number of term pages deleted.
+     */
+    private final int deleted;
+
+    /**
+     * Whether the index page was rewritten.
+     */
+    private final boolean indexWritten;
+
+    /**
+     * Number of index shards rewritten.
+     */
+    private final int shardsWritten;
+
+    /**
+     * Creates the summary of a run.
+     *
+     * @param written
+     *            number of term pages rewritten
+     * @param deleted
+     *            number of term pages deleted
+     * @param indexWritten
+     *            whether the index page was rewritten
+     * @param shardsWritten
+     *            number of index shards rewritten
+     */
+    private IncrementalBuild(int written, int deleted, boolean indexWritten,
+            int shardsWritten) {
+        this.written = written;
+        this.deleted = deleted;
+        this.indexWritten = indexWritten;
+        this.shardsWritten = shardsWritten;
+    }
+
+    /**
+     * Brings the pages in {@code folderPath} up to date with {@code model},
+     * rewriting only what changed since the manifest was last written, and
+     * updates the manifest. Without a manifest every page is written.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param folderPath
+     *            the output folder
+     * @param workers
+     *            the number of threads writing pages
+     * @return the summary of what was rewritten
+     * @throws UncheckedIOException
+     *             if the manifest or a page cannot be read, written or deleted
+     * @requires {@code folderPath} is an existing folder, {@code linker} knows
+     *           the terms of {@code model} and workers > 0
+     * @ensures [the folder holds the pages of model and their manifest]
+     */
+    public static IncrementalBuild write(GlossaryModel model, TermLinker linker,
+            String folderPath, int workers) {
+        assert model != null : "Violation of: model is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert workers > 0 : "Violation of: workers > 0";
+
+        return write(model, linker, ReferenceGraph.build(model, linker, workers),
+                false, null, folderPath, workers);
+    }
+
+    /**
+     * Brings the pages in {@code folderPath} up to date with {@code model} as
+     * {@link #write(GlossaryModel, TermLinker, String, int)} does, reusing the
+     * reference graph {@code graph}, giving the pages "Referenced by" links
+     * if {@code backlinks} and splitting the index into {@code shards} if not
+     * null.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param graph
+     *            the reference graph of {@code model}
+     * @param backlinks
+     *            whether the pages list the terms referencing their term
+     * @param shards
+     *            the shards of the index of {@code model}, null for a single
+     *            index page
+     * @param folderPath
+     *            the output folder
+     * @param workers
+     *            the number of threads writing pages
+     * @return the summary of what was rewritten
+     * @throws UncheckedIOException
+     *             if the manifest or a page cannot be read, written or deleted
+     * @requires {@code folderPath} is an existing folder, {@code linker} and
+     *           {@code graph} are built from {@code model}, {@code shards} is
+     *           null or built from {@code model} and workers > 0
+     * @ensures [the folder holds the pages of model and their manifest]
+     */
+    public static IncrementalBuild write(GlossaryModel model, TermLinker linker,
+            ReferenceGraph graph, boolean backlinks, IndexShards shards,
+            String folderPath, int workers) {
+        assert model != null : "Violation of: model is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert graph != null : "Violation of: graph is not null";
+        assert folderPath != null : "Violation of: folderPath is not null";
+        assert workers > 0 : "Violation of: workers > 0";
+
+        return update(model, linker, graph, backlinks, shards, folderPath, workers,
+                readManifest(folderPath), null);
+    }
+
+    /**
+     * Brings the pages in {@code folderPath} up to date with {@code model} as
+     * {@link #write(GlossaryModel, TermLinker, ReferenceGraph, boolean,
+     * IndexShards, String, int)} does, the manifest of the folder being
+     * {@code manifest} instead of the one read from the folder. Only the
+     * entries of the ids in {@code candidates} are computed again, unless it
+     * is null; the other terms of {@code model} keep their entry, their page
+     * being taken to exist, and the index is only revisited if the set of
+     * terms changed. This lets a caller that keeps the manifest in memory
+     * between runs, such as {@link GlossaryWatcher}, pay for what changed
+     * only.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param graph
+     *            the reference graph of {@code model}
+     * @param backlinks
+     *            whether the pages list the terms referencing their term
+     * @param shards
+     *            the shards of the index of {@code model}, null for a single
+     *            index page
+     * @param folderPath
+     *            the output folder
+     * @param workers
+     *            the number of threads writing pages
+     * @param manifest
+     *            map from each term to its manifest entry, as last written to
+     *            the folder
+     * @param candidates
+     *            the ids whose manifest entry may have changed, null for all
+     * @return the summary of what was rewritten
+     * @throws UncheckedIOException
+     *             if the manifest cannot be written or a page cannot be
+     *             written or deleted
+     * @update manifest
+     * @requires the requirements of write and every term of {@code model}
+     *           whose id is not in {@code candidates} has its entry in
+     *           {@code manifest} and its page in the folder
+     * @ensures [the folder holds the pages of model and their manifest, and
+     *          manifest is that manifest]
+     */
+    static IncrementalBuild update(GlossaryModel model, TermLinker linker,
+            ReferenceGraph graph, boolean backlinks, IndexShards shards,
+            String folderPath, int workers, HashMap<String, String> manifest,
+            int[] candidates) {
+        assert manifest != null : "Violation of: manifest is not null";
+
+        Path folder = Paths.get(folderPath);
+        boolean termsChanged = candidates == null
+                && !Files.exists(folder.resolve("index.html"));
+
+        //find the pages whose definition or linked terms changed
+        int candidateCount = candidates == null ? model.size() : candidates.length;
+        int[] changed = new int[candidateCount];
+        int count = 0;
+        for (int k = 0; k < candidateCount; k++) {
+            int id = candidates == null ? k : candidates[k];
+            String term = model.term(id);
+            String entry = manifestEntry(model, graph, linker.loose(), backlinks, id);
+            String old = manifest.put(term, entry);
+            if (old == null) {
+                termsChanged = true;
+            }
+            if (!entry.equals(old) || !Files.exists(folder.resolve(term + ".html"))) {
+                changed[count] = id;
+                count++;
+            }
+        }
+        PageWriter pages = new FolderPageWriter(folderPath);
+        ReferenceGraph pageBacklinks = backlinks ? graph : null;
+        TermPages.write(model, Arrays.copyOf(changed, count), linker, pageBacklinks,
+                pages, workers);
+
+        //delete the pages of removed terms, the manifest has every term of
+        //model now, so it only has more entries if terms were removed
+        int deleted = 0;
+        if (manifest.size() > model.size()) {
+            termsChanged = true;
+            try {
+                Iterator<String> terms = manifest.keySet().iterator();
+                while (terms.hasNext()) {
+                    String term = terms.next();
+                    if (model.id(term) == TermIndex.NOT_FOUND) {
+                        Files.deleteIfExists(folder.resolve(term + ".html"));
+                        terms.remove();
+                        deleted++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete a page in " + folderPath,
+                        e);
+            }
+        }
+
+        //bring the single index page or the index shards up to date
+        boolean indexWritten = false;
+        int shardsWritten = 0;
+        if (candidates == null || termsChanged) {
+            Path indexManifest = folder.resolve(INDEX_MANIFEST);
+            boolean wasSharded = Files.exists(indexManifest);
+            HashMap<String, String> previousShards = readManifest(indexManifest);
+            if (shards == null) {
+                indexWritten = termsChanged || wasSharded;
+                deleteShards(folder, previousShards.keySet(), new HashMap<>());
+                if (indexWritten) {
+                    PageBuffer index = PageBuffer.forThread();
+                    Glossary.renderIndexPage(model, index);
+                    pages.write("index.html", index);
+                }
+                try {
+                    Files.deleteIfExists(indexManifest);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot delete " + indexManifest, e);
+                }
+            } else {
+                HashMap<String, String> currentShards = new HashMap<>(
+                        shards.count() * 2);
+                int[] changedShards = new int[shards.count()];
+                for (int shard = 0; shard < shards.count(); shard++) {
+                    String hash = shards.hash(shard);
+                    currentShards.put(shards.name(shard), hash);
+                    if (!hash.equals(previousShards.get(shards.name(shard)))
+                            || !Files.exists(folder.resolve(shards.name(shard)))) {
+                        changedShards[shardsWritten] = shard;
+                        shardsWritten++;
+                    }
+                }
+                int deletedShards = deleteShards(folder, previousShards.keySet(),
+                        currentShards);
+                shards.writeShards(Arrays.copyOf(changedShards, shardsWritten), pages,
+                        workers);
+                indexWritten = !wasSharded || shardsWritten > 0 || deletedShards > 0
+                        || !Files.exists(folder.resolve("index.html"));
+                if (indexWritten) {
+                    shards.writeNavigation(pages);
+                }
+                writeManifest(indexManifest, currentShards);
+            }
+        }
+
+        writeManifest(folder.resolve(MANIFEST), manifest);
+        return new IncrementalBuild(count, deleted, indexWritten, shardsWritten);
+    }
+
+    /**
+     * Deletes the index shards of the previous run that are not shards any
+     * more.
+     *
+     * @param folder
+     *            the output folder
+     * @param previous
+     *            the file names of the shards of the previous run
+     * @param current
+     *            map from the file name of each current shard to its hash
+     * @return the number of shards deleted
+     * @throws UncheckedIOException
+     *             if a shard cannot be deleted
+     */
+    private static int deleteShards(Path folder, Iterable<String> previous,
+            HashMap<String, String> current) {
+        int deleted = 0;
+        try {
+            for (String name : previous) {
+                if (!current.containsKey(name)) {
+                    Files.deleteIfExists(folder.resolve(name));
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete an index shard in " + folder,
+                    e);
+        }
+        return deleted;
+    }
+
+    /**
+     * Returns the manifest entry of the term with id {@code id}: the hash of
+     * its definition, marked if the words are linked loosely, followed by the
+     * terms it links to and, with backlinks, by the terms linking to it.
+     *
+     * @param model
+     *            the glossary
+     * @param graph
+     *            the reference graph of {@code model}
+     * @param loose
+     *            whether the case variants and plurals of the terms are linked
+     * @param backlinks
+     *            whether the pages list the terms referencing their term
+     * @param id
+     *            the id of the term
+     * @return the manifest entry of term id
+     */
+    private static String manifestEntry(GlossaryModel model, ReferenceGraph graph,
+            boolean loose, boolean backlinks, int id) {
+        long definitionHash = hash(model.definitions(), model.definitionStart(id),
+                model.definitionEnd(id));
+        StringBuilder entry = new StringBuilder(Long.toHexString(definitionHash));
+        if (loose) {
+            //the manifests of exact runs have no mark, as before the option
+            entry.append(LOOSE_MARK);
+        }
+        entry.append('\t');
+        for (int k = 0; k < graph.referenceCount(id); k++) {
+            if (k > 0) {
+                entry.append(' ');
+            }
+            entry.append(model.term(graph.reference(id, k)));
+        }
+        if (backlinks) {
+            entry.append('\t');
+            for (int k = 0; k < graph.referrerCount(id); k++) {
+                if (k > 0) {
+                    entry.append(' ');
+                }
+                entry.append(model.term(graph.referrer(id, k)));
+            }
+        }
+        return entry.toString();
+    }
+
+    /**
+     * Returns the FNV-1a 64 bit hash of the characters of {@code text}.
+     *
+     * @param text
+     *            the text to hash
+     * @return the hash of {@code text}
+     */
+    static long hash(CharSequence text) {
+        return hash(text, 0, text.length());
+    }
+
+    /**
+     * Returns the FNV-1a 64 bit hash of the characters of text[start, end).
+     *
+     * @param text
+     *            the text holding the characters to hash
+     * @param start
+     *            index of the first character to hash
+     * @param end
+     *            index past the last character to hash
+     * @return the hash of text[start, end)
+     */
+    static long hash(CharSequence text, int start, int end) {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            hash = hash(hash(hash, c & 0xff), c >>> 8);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the FNV-1a 64 bit hash of bytes [start, end) of {@code bytes}.
+     *
+     * @param bytes
+     *            the bytes
+     * @param start
+     *            index of the first byte to hash
+     * @param end
+     *            index past the last byte to hash
+     * @return the hash of bytes[start, end)
+     */
+    static long hash(byte[] bytes, int start, int end) {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            hash = hash(hash, bytes[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the FNV-1a 64 bit hash {@code hash} of some bytes extended with
+     * the low byte of {@code b}, so that bytes read in pieces can be hashed
+     * as they come, starting from {@link #FNV_OFFSET}.
+     *
+     * @param hash
+     *            the hash of the bytes before
+     * @param b
+     *            the next byte, in its low 8 bits
+     * @return the hash of the bytes before followed by b
+     */
+    static long hash(long hash, int b) {
+        return (hash ^ (b & 0xff)) * FNV_PRIME;
+    }
+
+    /**
+     * Reads the manifest of the term pages in {@code folderPath}, for
+     * {@link #update}.
+     *
+     * @param folderPath
+     *            the output folder
+     * @return map from each term to its manifest entry, empty if there is no
+     *         manifest or it has another format
+     * @throws UncheckedIOException
+     *             if the manifest cannot be read
+     */
+    static HashMap<String, String> readManifest(String folderPath) {
+        return readManifest(Paths.get(folderPath).resolve(MANIFEST));
+    }
+
+    /**
+     * Reads the manifest at {@code path}.
+     *
+     * @param path
+     *            the manifest file
+     * @return map from each term to its manifest entry, empty if there is no
+     *         manifest or it has another format
+     * @throws UncheckedIOException
+     *             if the manifest cannot be read
+     */
+    private static HashMap<String, String> readManifest(Path path) {
+        HashMap<String, String> manifest = new HashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader in = Files.newBufferedReader(path,
+                    StandardCharsets.UTF_8)) {
+                if (HEADER.equals(in.readLine())) {
+                    String line = in.readLine();
+                    while (line != null) {
+                        int tab = line.indexOf('\t');
+                        manifest.put(line.substring(0, tab), line.substring(tab + 1));
+                        line = in.readLine();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read " + path, e);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Replaces the manifest at {@code path} with {@code manifest}, through a
+     * temporary file so that an interrupted run leaves the old one.
+     *
+     * @param path
+     *            the manifest file
+     * @param manifest
+     *            map from each term to its manifest entry
+     * @throws UncheckedIOException
+     *             if the manifest cannot be written
+     */
+    private static void writeManifest(Path path, HashMap<String, String> manifest) {
+        //one temporary file per manifest, the term and index manifests are both
+        //written by a sharded run
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(temporary,
+                    StandardCharsets.UTF_8)) {
+                out.write(HEADER);
+                out.newLine();
+                for (java.util.Map.Entry<String, String> entry : manifest.entrySet()) {
+                    out.write(entry.getKey());
+                    out.write('\t');
+                    out.write(entry.getValue());
+                    out.newLine();
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + path, e);
+        }
+    }
+
+    /**
+     * Returns the number of term pages rewritten.
+     *
+     * @return the number of term pages rewritten
+     */
+    public int written() {
+        return this.written;
+    }
+
+    /**
+     * Returns the number of term pages deleted.
+     *
+     * @return the number of term pages deleted
+     */
+    public int deleted() {
+        return this.deleted;
+    }
+
+    /**
+     * Returns whether the index page, or the navigation page of a sharded
+     * index, was rewritten.
+     *
+     * @return whether the index page was rewritten
+     */
+    public boolean indexWritten() {
+        return this.indexWritten;
+    }
+
+    /**
+     * Returns the number of index shards rewritten.
+     *
+     * @return the number of index shards rewritten
+     */
+    public int shardsWritten() {
+        return this.shardsWritten;
+    }
+
+}
@@ -0,0 +1,366 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Index of a large glossary split into several pages, the shards: either one
+ * shard per initial letter ("index-A.html" ... "index-Z.html", then
+ * "index-other.html" for the terms not starting with a letter) or shards of a
+ * fixed number of terms in alphabetical order ("index-1.html", ...). A small
+ * "index.html" links to every shard. Shards are rendered independently, so
+ * they can be written in parallel and rewritten one by one.
+ */
+public final class IndexShards {
+
+    /**
+     * Spec of the shards by initial letter, see {@link #of(GlossaryModel,
+     * String)}.
+     */
+    public static final String BY_LETTER = "letter";
+
+    /**
+     * Number of letter shards, A to Z.
+     */
+    private static final int LETTERS = 26;
+
+    /**
+     * The glossary.
+     */
+    private final GlossaryModel model;
+
+    /**
+     * File name of each shard.
+     */
+    private final String[] names;
+
+    /**
+     * Heading of each shard, shown on the shard and on the navigation page.
+     */
+    private final String[] labels;
+
+    /**
+     * Ids of the terms of each shard, in id order.
+     */
+    private final int[][] ids;
+
+    /**
+     * Creates the shards.
+     *
+     * @param model
+     *            the glossary
+     * @param names
+     *            file name of each shard
+     * @param labels
+     *            heading of each shard
+     * @param ids
+     *            ids of the terms of each shard
+     */
+    private IndexShards(GlossaryModel model, String[] names, String[] labels,
+            int[][] ids) {
+        this.model = model;
+        this.names = names;
+        this.labels = labels;
+        this.ids = ids;
+    }
+
+    /**
+     * Shards the index of {@code model} as described by {@code spec}:
+     * {@link #BY_LETTER} for one shard per initial letter, or a positive
+     * number for shards of that many terms.
+     *
+     * @param model
+     *            the glossary
+     * @param spec
+     *            "letter" or the number of terms of a shard
+     * @return the shards of the index of model
+     * @throws IllegalArgumentException
+     *             if spec is neither "letter" nor a positive number
+     */
+    public static IndexShards of(GlossaryModel model, String spec) {
+        assert model != null : "Violation of: model is not null";
+        assert spec != null : "Violation of: spec is not null";
+
+        if (BY_LETTER.equals(spec)) {
+            return byLetter(model);
+        }
+        int size;
+        try {
+            size = Integer.parseInt(spec);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not an index shard spec: " + spec, e);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Not an index shard spec: " + spec);
+        }
+        return bySize(model, size);
+    }
+
+    /**
+     * Shards the index of {@code model} by the initial letter of the terms,
+     * ignoring case. Letters without terms get no shard.
+     *
+     * @param model
+     *            the glossary
+     * @return the shards of the index of model
+     */
+    public static IndexShards byLetter(GlossaryModel model) {
+        assert model != null : "Violation of: model is not null";
+
+        //count the terms of each letter, the last bucket is for the others
+        int[] counts = new int[LETTERS + 1];
+        for (int id = 0; id < model.size(); id++) {
+            counts[bucket(model.term(id))]++;
+        }
+        int shards = 0;
+        int[][] buckets = new int[LETTERS + 1][];
+        for (int b = 0; b <= LETTERS; b++) {
+            buckets[b] = new int[counts[b]];
+            if (counts[b] > 0) {
+                shards++;
+            }
+        }
+
+        //ids are visited in order, so every bucket comes out sorted
+        int[] filled = new int[LETTERS + 1];
+        for (int id = 0; id < model.size(); id++) {
+            int b = bucket(model.term(id));
+            buckets[b][filled[b]] = id;
+            filled[b]++;
+        }
+
+        String[] names = new String[shards];
+        String[] labels = new String[shards];
+        int[][] ids = new int[shards][];
+        int shard = 0;
+        for (int b = 0; b <= LETTERS; b++) {
+            if (counts[b] > 0) {
+                if (b < LETTERS) {
+                    labels[shard] = String.valueOf((char) ('A' + b));
+                    names[shard] = "index-" + labels[shard] + ".html";
+                } else {
+                    labels[shard] = "Other";
+                    names[shard] = "index-other.html";
+                }
+                ids[shard] = buckets[b];
+                shard++;
+            }
+        }
+        return new IndexShards(model, names, labels, ids);
+    }
+
+    /**
+     * Returns the letter bucket of {@code term}: 0 to 25 for the terms
+     * starting with an ASCII letter, 26 for the others.
+     *
+     * @param term
+     *            the term
+     * @return the bucket of term
+     */
+    private static int bucket(String term) {
+        int bucket = LETTERS;
+        if (!term.isEmpty()) {
+            char c = Character.toUpperCase(term.charAt(0));
+            if ('A' <= c && c <= 'Z') {
+                bucket = c - 'A';
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Shards the index of {@code model} into shards of {@code size} terms in
+     * alphabetical order, the last one possibly smaller.
+     *
+     * @param model
+     *            the glossary
+     * @param size
+     *            the number of terms of a shard
+     * @return the shards of the index of model
+     * @requires size > 0
+     */
+    public static IndexShards bySize(GlossaryModel model, int size) {
+        assert model != null : "Violation of: model is not null";
+        assert size > 0 : "Violation of: size > 0";
+
+        int shards = (model.size() + size - 1) / size;
+        String[] names = new String[shards];
+        String[] labels = new String[shards];
+        int[][] ids = new int[shards][];
+        for (int shard = 0; shard < shards; shard++) {
+            int from = shard * size;
+            int to = Math.min(from + size, model.size());
+            names[shard] = "index-" + (shard + 1) + ".html";
+            labels[shard] = model.term(from) + " - " + model.term(to - 1);
+            ids[shard] = new int[to - from];
+            for (int id = from; id < to; id++) {
+                ids[shard][id - from] = id;
+            }
+        }
+        return new IndexShards(model, names, labels, ids);
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int count() {
+        return this.names.length;
+    }
+
+    /**
+     * Returns the file name of shard {@code shard}, e.g. "index-A.html".
+     *
+     * @param shard
+     *            the shard
+     * @return the file name of the shard
+     * @requires 0 <= shard < count
+     */
+    public String name(int shard) {
+        return this.names[shard];
+    }
+
+    /**
+     * Returns the heading of shard {@code shard}, e.g. "A".
+     *
+     * @param shard
+     *            the shard
+     * @return the heading of the shard
+     * @requires 0 <= shard < count
+     */
+    public String label(int shard) {
+        return this.labels[shard];
+    }
+
+    /**
+     * Returns the number of terms of shard {@code shard}.
+     *
+     * @param shard
+     *            the shard
+     * @return the number of terms of the shard
+     * @requires 0 <= shard < count
+     */
+    public int size(int shard) {
+        return this.ids[shard].length;
+    }
+
+    /**
+     * Returns the id of the k-th term of shard {@code shard}.
+     *
+     * @param shard
+     *            the shard
+     * @param k
+     *            the position of the term in the shard
+     * @return the id of the term
+     * @requires 0 <= shard < count and 0 <= k < size(shard)
+     */
+    public int id(int shard, int k) {
+        return this.ids[shard][k];
+    }
+
+    /**
+     * Returns a hash of the terms of shard {@code shard}, which changes when
+     * the page of the shard changes.
+     *
+     * @param shard
+     *            the shard
+     * @return the hash of the terms of the shard
+     * @requires 0 <= shard < count
+     */
+    public String hash(int shard) {
+        StringBuilder terms = new StringBuilder(this.labels[shard]);
+        for (int id : this.ids[shard]) {
+            terms.append('\n').append(this.model.term(id));
+        }
+        return Long.toHexString(IncrementalBuild.hash(terms));
+    }
+
+    /**
+     * Writes the navigation page "index.html" and every shard to
+     * {@code pages}, the shards on {@code workers} threads.
+     *
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing shards
+     * @requires workers > 0
+     * @ensures [pages has the navigation page and every shard]
+     */
+    public void write(PageWriter pages, int workers) {
+        int[] all = new int[this.count()];
+        for (int shard = 0; shard < all.length; shard++) {
+            all[shard] = shard;
+        }
+        this.writeNavigation(pages);
+        this.writeShards(all, pages, workers);
+    }
+
+    /**
+     * Writes the navigation page "index.html" to {@code pages}.
+     *
+     * @param pages
+     *            the destination of the page
+     * @ensures [pages has the navigation page]
+     */
+    public void writeNavigation(PageWriter pages) {
+        assert pages != null : "Violation of: pages is not null";
+
+        PageBuffer page = PageBuffer.forThread();
+        Glossary.renderIndexNavigation(this, page);
+        pages.write("index.html", page);
+    }
+
+    /**
+     * Writes the given shards to {@code pages}, on {@code workers} threads.
+     *
+     * @param shards
+     *            the shards to write
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing shards
+     * @requires every entry of shards is in [0, count) and workers > 0
+     * @ensures [pages has every shard in shards]
+     */
+    public void writeShards(int[] shards, PageWriter pages, int workers) {
+        assert shards != null : "Violation of: shards is not null";
+        assert pages != null : "Violation of: pages is not null";
+        assert workers > 0 : "Violation of: workers > 0";
+
+        if (workers == 1) {
+            for (int shard : shards) {
+                this.writeShard(shard, pages);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[shards.length];
+                for (int i = 0; i < shards.length; i++) {
+                    int shard = shards[i];
+                    tasks[i] = pool.submit(() -> this.writeShard(shard, pages));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Writes one shard.
+     *
+     * @param shard
+     *            the shard
+     * @param pages
+     *            the destination of the page
+     */
+    private void writeShard(int shard, PageWriter pages) {
+        PageBuffer page = PageBuffer.forThread();
+        Glossary.renderIndexShard(this.model, this, shard, page);
+        pages.write(this.names[shard], page);
+    }
+
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Reads a glossary input file through a memory map of the file instead of line
+ * by line. Records are split on empty lines directly over the mapped bytes and
+ * only the term and the definition of each record are decoded, the definition
+ * with a single copy of its bytes. The input has the format described in
+ * {@link Glossary#createGlossary(String)} and is read as UTF-8.
+ */
+public final class MappedGlossaryReader {
+
+    /**
+     * Largest number of bytes mapped at once; a file larger than this is read
+     * through successive windows starting at record boundaries.
+     */
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private MappedGlossaryReader() {
+    }
+
+    /**
+     * Receives the records found by {@link MappedGlossaryReader#split}.
+     */
+    public interface RecordVisitor {
+
+        /**
+         * Visits one record of the file. All positions are indexes of
+         * {@code bytes}; the definition range holds its lines with their line
+         * breaks and is empty if the term has no definition line.
+         *
+         * @param bytes
+         *            the bytes of the file
+         * @param termStart
+         *            index of the first byte of the term
+         * @param termEnd
+         *            index past the last byte of the term
+         * @param definitionStart
+         *            index of the first byte of the definition
+         * @param definitionEnd
+         *            index past the last byte of the definition
+         */
+        void record(ByteBuffer bytes, int termStart, int termEnd,
+                int definitionStart, int definitionEnd);
+
+    }
+
+    /**
+     * Splits bytes [from, to) of {@code bytes} into records and visits each
+     * complete one in order. A record is complete once its empty line is found,
+     * or when {@code last} and the range ends.
+     *
+     * @param bytes
+     *            the bytes of (part of) a glossary file
+     * @param from
+     *            index of the first byte of a record
+     * @param to
+     *            index past the last byte to split
+     * @param last
+     *            whether the range ends with the end of the file
+     * @param visitor
+     *            the visitor of the records
+     * @return index past the last complete record, where the next window must
+     *         start
+     * @requires 0 <= from <= to <= bytes.limit and {@code from} is the start of
+     *           a line
+     */
+    public static int split(ByteBuffer bytes, int from, int to, boolean last,
+            RecordVisitor visitor) {
+        assert bytes != null : "Violation of: bytes is not null";
+        assert visitor != null : "Violation of: visitor is not null";
+        assert 0 <= from && from <= to : "Violation of: 0 <= from <= to";
+        assert to <= bytes.limit() : "Violation of: to <= |bytes|";
+
+        int consumed = from;
+        int termStart = -1;
+        int termEnd = -1;
+        int definitionStart = -1;
+        int definitionEnd = -1;
+        int lineStart = from;
+        while (lineStart < to) {
+            //find the end of the line, and of its content without \r\n
+            int lineEnd = lineStart;
+            while (lineEnd < to && bytes.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            boolean complete = lineEnd < to || last;
+            int next = Math.min(lineEnd + 1, to);
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && bytes.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            if (!complete) {
+                //the window ends inside this line
+                lineStart = to;
+            } else if (termStart < 0) {
+                //a term line, stray empty lines are skipped
+                if (contentEnd > lineStart) {
+                    termStart = lineStart;
+                    termEnd = contentEnd;
+                    definitionStart = next;
+                    definitionEnd = next;
+                } else {
+                    consumed = next;
+                }
+                lineStart = next;
+            } else if (contentEnd == lineStart) {
+                //the empty line ends the record
+                visitor.record(bytes, termStart, termEnd, definitionStart,
+                        definitionEnd);
+                termStart = -1;
+                consumed = next;
+                lineStart = next;
+            } else {
+                definitionEnd = contentEnd;
+                lineStart = next;
+            }
+        }
+        if (last && termStart >= 0) {
+            visitor.record(bytes, termStart, termEnd, definitionStart,
+                    Math.min(definitionEnd, to));
+            consumed = to;
+        }
+        return consumed;
+    }
+
+    /**
+     * Decodes the bytes [start, end) of {@code bytes} as a term.
+     *
+     * @param bytes
+     *            the bytes of the file
+     * @param start
+     *            index of the first byte of the term
+     * @param end
+     *            index past the last byte of the term
+     * @return the term
+     */
+    public static String decodeTerm(ByteBuffer bytes, int start, int end) {
+        byte[] term = new byte[end - start];
+        bytes.get(start, term);
+        return new String(term, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the bytes [start, end) of {@code bytes} as a definition, joining
+     * its lines with single spaces as {@link Glossary#createGlossary(String)}
+     * does. The bytes are copied once into {@code scratch} if it is large
+     * enough, replacing the line breaks on the way.
+     *
+     * @param bytes
+     *            the bytes of the file
+     * @param start
+     *            index of the first byte of the definition
+     * @param end
+     *            index past the last byte of the definition
+     * @param scratch
+     *            a reusable array for the bytes, may be too small
+     * @return the definition
+     */
+    public static String decodeDefinition(ByteBuffer bytes, int start, int end,
+            byte[] scratch) {
+        byte[] copy = scratch;
+        if (copy.length < end - start) {
+            copy = new byte[end - start];
+        }
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == '\n') {
+                copy[length] = ' ';
+                length++;
+            } else if (b != '\r' || i + 1 == end || bytes.get(i + 1) != '\n') {
+                copy[length] = b;
+                length++;
+            }
+        }
+        return new String(copy, 0, length, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Maps the file at {@code filePath} one window at a time and visits all of
+     * its records in file order.
+     *
+     * @param filePath
+     *            the filePath of the file with terms and definitions
+     * @param visitor
+     *            the visitor of the records
+     * @throws UncheckedIOException
+     *             if the file cannot be read or has a record larger than a
+     *             window
+     */
+    public static void read(String filePath, RecordVisitor visitor) {
+        assert filePath != null : "Violation of: filePath is not null";
+        assert visitor != null : "Violation of: visitor is not null";
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            long base = 0;
+            while (base < size) {
+                int length = (int) Math.min(size - base, WINDOW_SIZE);
+                boolean last = base + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        base, length);
+                int consumed = split(window, 0, length, last, visitor);
+                if (consumed == 0 && !last) {
+                    throw new IOException("Record at byte " + base
+                            + " is larger than " + WINDOW_SIZE + " bytes");
+                }
+                base += consumed;
+                if (last) {
+                    base = size;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + filePath, e);
+        }
+    }
+
+    /**
+     * Create a glossary map (term to definition) based on the file on
+     * {@code filePath}, as {@link Glossary#createGlossary(String)} does.
+     *
+     * @param filePath
+     *            the filePath of the file with terms and definitions
+     * @return A map: words->its definition
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     * @requires the file has the format described in
+     *           {@link Glossary#createGlossary(String)}
+     * @ensures [returned Map contains words->its definition]
+     */
+    public static Map<String, String> createGlossary(String filePath) {
+        assert filePath != null : "Violation of: filePath is not null";
+
+        Map<String, String> glossary = new Map1L<>();
+        byte[] scratch = new byte[1 << 12];
+        read(filePath, (bytes, termStart, termEnd, definitionStart,
+                definitionEnd) -> glossary.add(decodeTerm(bytes, termStart, termEnd),
+                        decodeDefinition(bytes, definitionStart, definitionEnd,
+                                scratch)));
+        return glossary;
+    }
+
+}
@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable buffer holding a page as UTF-8 bytes while it is rendered, so that
+ * the whole page can then be written with a single write. A buffer is meant to
+ * be reused for page after page; {@link #forThread()} gives each thread its
+ * own.
+ */
+public final class PageBuffer {
+
+    /**
+     * Initial capacity of a buffer, enough for most pages.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    /**
+     * Largest number of UTF-8 bytes a {@code char} is encoded to.
+     */
+    private static final int MAX_BYTES_PER_CHAR = 3;
+
+    /**
+     * The line separator written by {@link #newLine()}, the same one
+     * {@code SimpleWriter.println} writes.
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * The buffer of each thread.
+     */
+    private static final ThreadLocal<PageBuffer> BUFFERS = ThreadLocal
+            .withInitial(PageBuffer::new);
+
+    /**
+     * The bytes of the page, the first {@code length} are used.
+     */
+    private byte[] bytes;
+
+    /**
+     * Number of bytes of the page.
+     */
+    private int length;
+
+    /**
+     * Creates an empty buffer.
+     */
+    public PageBuffer() {
+        this.bytes = new byte[INITIAL_CAPACITY];
+        this.length = 0;
+    }
+
+    /**
+     * Returns the buffer of the calling thread, emptied.
+     *
+     * @return the empty buffer of the calling thread
+     * @ensures forThread.length = 0
+     */
+    public static PageBuffer forThread() {
+        PageBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Makes room for {@code extra} more bytes.
+     *
+     * @param extra
+     *            number of bytes about to be appended
+     */
+    private void reserve(int extra) {
+        if (this.length + extra > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes,
+                    Math.max(this.bytes.length * 2, this.length + extra));
+        }
+    }
+
+    /**
+     * Empties this.
+     *
+     * @ensures this.length = 0
+     */
+    public void clear() {
+        this.length = 0;
+    }
+
+    /**
+     * Returns the number of bytes of the page.
+     *
+     * @return the number of bytes of the page
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of {@code text}.
+     *
+     * @param text
+     *            the text to append
+     * @return this
+     * @update this
+     */
+    public PageBuffer append(CharSequence text) {
+        return this.append(text, 0, text.length());
+    }
+
+    /**
+     * Appends the UTF-8 encoding of text[start, end).
+     *
+     * @param text
+     *            the text to append a part of
+     * @param start
+     *            index of the first character to append
+     * @param end
+     *            index past the last character to append
+     * @return this
+     * @requires 0 <= start <= end <= |text|
+     * @update this
+     */
+    public PageBuffer append(CharSequence text, int start, int end) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= start && start <= end : "Violation of: 0 <= start <= end";
+        assert end <= text.length() : "Violation of: end <= |text|";
+
+        this.reserve((end - start) * MAX_BYTES_PER_CHAR);
+        byte[] b = this.bytes;
+        int n = this.length;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                b[n] = (byte) c;
+                n++;
+            } else if (c < 0x800) {
+                b[n] = (byte) (0xc0 | (c >>> 6));
+                b[n + 1] = (byte) (0x80 | (c & 0x3f));
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, text.charAt(i + 1));
+                b[n] = (byte) (0xf0 | (code >>> 18));
+                b[n + 1] = (byte) (0x80 | ((code >>> 12) & 0x3f));
+                b[n + 2] = (byte) (0x80 | ((code >>> 6) & 0x3f));
+                b[n + 3] = (byte) (0x80 | (code & 0x3f));
+                n += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                //an unpaired surrogate, encoded as String.getBytes does
+                b[n] = '?';
+                n++;
+            } else {
+                b[n] = (byte) (0xe0 | (c >>> 12));
+                b[n + 1] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+                b[n + 2] = (byte) (0x80 | (c & 0x3f));
+                n += 3;
+            }
+            i++;
+        }
+        this.length = n;
+        return this;
+    }
+
+    /**
+     * Appends bytes that are already UTF-8 encoded.
+     *
+     * @param encoded
+     *            the bytes to append
+     * @return this
+     * @update this
+     */
+    public PageBuffer append(byte[] encoded) {
+        assert encoded != null : "Violation of: encoded is not null";
+
+        this.reserve(encoded.length);
+        System.arraycopy(encoded, 0, this.bytes, this.length, encoded.length);
+        this.length += encoded.length;
+        return this;
+    }
+
+    /**
+     * Appends the bytes of another page.
+     *
+     * @param page
+     *            the page to append
+     * @return this
+     * @update this
+     * @requires page is not this
+     */
+    public PageBuffer append(PageBuffer page) {
+        assert page != null : "Violation of: page is not null";
+        assert page != this : "Violation of: page is not this";
+
+        this.reserve(page.length);
+        System.arraycopy(page.bytes, 0, this.bytes, this.length, page.length);
+        this.length += page.length;
+        return this;
+    }
+
+    /**
+     * Appends {@code line} followed by the line separator, as
+     * {@code SimpleWriter.println} would write it.
+     *
+     * @param line
+     *            the line to append
+     * @return this
+     * @update this
+     */
+    public PageBuffer println(CharSequence line) {
+        return this.append(line).newLine();
+    }
+
+    /**
+     * Appends the line separator.
+     *
+     * @return this
+     * @update this
+     */
+    public PageBuffer newLine() {
+        return this.append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Returns a view of the bytes of the page, valid until this changes.
+     *
+     * @return a buffer whose remaining bytes are the page
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(this.bytes, 0, this.length);
+    }
+
+    /**
+     * Writes the bytes of the page to {@code out}.
+     *
+     * @param out
+     *            the stream the page is written to
+     * @throws IOException
+     *             if {@code out} cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        assert out != null : "Violation of: out is not null";
+
+        out.write(this.bytes, 0, this.length);
+    }
+
+    /**
+     * Returns a copy of the bytes of the page.
+     *
+     * @return the bytes of the page
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.bytes, this.length);
+    }
+
+    /**
+     * Returns the page decoded back to text.
+     *
+     * @return the text of the page
+     */
+    @Override
+    public String toString() {
+        return new String(this.bytes, 0, this.length, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A page layout compiled once into constant UTF-8 segments between slots. The
+ * layout is any text with slots such as {@code {{term}}} where the variable
+ * parts of a page go; the text between the slots is encoded once when the
+ * layout is compiled, so that rendering a page only copies the prepared bytes
+ * and lets a {@link SlotWriter} fill each slot. Immutable, so a template can be
+ * shared by all the workers.
+ */
+public final class PageTemplate {
+
+    /**
+     * The slots a layout can have.
+     */
+    public enum Slot {
+
+        /**
+         * The term of a term page.
+         */
+        TERM("term"),
+
+        /**
+         * The linked definition of a term page.
+         */
+        DEFINITION("definition"),
+
+        /**
+         * The hyperlink back to the index page.
+         */
+        INDEX_LINK("index"),
+
+        /**
+         * The anchors to the terms whose definitions link to the term of a
+         * term page, separated by commas, nothing if there are none.
+         */
+        BACKLINKS("backlinks"),
+
+        /**
+         * The list items of the index page, one per term.
+         */
+        ENTRIES("entries");
+
+        /**
+         * The name of the slot in a layout, between double braces.
+         */
+        private final String name;
+
+        /**
+         * Creates the slot named {@code name}.
+         *
+         * @param name
+         *            the name of the slot in a layout
+         */
+        Slot(String name) {
+            this.name = name;
+        }
+
+    }
+
+    /**
+     * Writes the variable part of a page for a slot.
+     */
+    @FunctionalInterface
+    public interface SlotWriter {
+
+        /**
+         * Appends the text of {@code slot} to {@code page}.
+         *
+         * @param slot
+         *            the slot
+         * @param page
+         *            the buffer the page is rendered into
+         * @update page
+         */
+        void write(Slot slot, PageBuffer page);
+
+    }
+
+    /**
+     * Opening of a slot.
+     */
+    private static final String OPEN = "{{";
+
+    /**
+     * Closing of a slot.
+     */
+    private static final String CLOSE = "}}";
+
+    /**
+     * The encoded text around the slots, segments[k] coming before slots[k]
+     * and the last one ending the page.
+     */
+    private final byte[][] segments;
+
+    /**
+     * The slots, in layout order.
+     */
+    private final Slot[] slots;
+
+    /**
+     * Creates the template of the given segments and slots.
+     *
+     * @param segments
+     *            the encoded text around the slots
+     * @param slots
+     *            the slots
+     */
+    private PageTemplate(byte[][] segments, Slot[] slots) {
+        this.segments = segments;
+        this.slots = slots;
+    }
+
+    /**
+     * Compiles {@code layout}, which may only have the slots in
+     * {@code allowed}.
+     *
+     * @param layout
+     *            the text of the layout
+     * @param allowed
+     *            the slots the pages of the template can fill
+     * @return the compiled template
+     * @throws IllegalArgumentException
+     *             if the layout has a slot not in {@code allowed}
+     */
+    public static PageTemplate compile(String layout, Set<Slot> allowed) {
+        assert layout != null : "Violation of: layout is not null";
+        assert allowed != null : "Violation of: allowed is not null";
+
+        ArrayList<byte[]> segments = new ArrayList<>();
+        ArrayList<Slot> slots = new ArrayList<>();
+        int segmentStart = 0;
+        int open = layout.indexOf(OPEN);
+        while (open >= 0) {
+            int close = layout.indexOf(CLOSE, open + OPEN.length());
+            Slot slot = null;
+            if (close >= 0) {
+                slot = slot(layout.substring(open + OPEN.length(), close), allowed);
+            }
+            if (slot != null) {
+                segments.add(layout.substring(segmentStart, open)
+                        .getBytes(StandardCharsets.UTF_8));
+                slots.add(slot);
+                segmentStart = close + CLOSE.length();
+                open = layout.indexOf(OPEN, segmentStart);
+            } else {
+                //not a slot, e.g. "{{" in a script, keep it as text
+                open = layout.indexOf(OPEN, open + 1);
+            }
+        }
+        segments.add(layout.substring(segmentStart).getBytes(StandardCharsets.UTF_8));
+        return new PageTemplate(segments.toArray(new byte[0][]),
+                slots.toArray(new Slot[0]));
+    }
+
+    /**
+     * Reads and compiles the layout in the file at {@code filePath}, which
+     * may only have the slots in {@code allowed}.
+     *
+     * @param filePath
+     *            the path of the UTF-8 layout file
+     * @param allowed
+     *            the slots the pages of the template can fill
+     * @return the compiled template
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if the layout has a slot not in {@code allowed}
+     */
+    public static PageTemplate read(String filePath, Set<Slot> allowed) {
+        assert filePath != null : "Violation of: filePath is not null";
+
+        String layout;
+        try {
+            layout = new String(Files.readAllBytes(Paths.get(filePath)),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + filePath, e);
+        }
+        PageTemplate template;
+        try {
+            template = compile(layout, allowed);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(filePath + ": " + e.getMessage(), e);
+        }
+        return template;
+    }
+
+    /**
+     * Returns the slot named {@code name}, null if there is none.
+     *
+     * @param name
+     *            the text between the braces
+     * @param allowed
+     *            the slots the pages of the template can fill
+     * @return the slot, null if {@code name} names none
+     * @throws IllegalArgumentException
+     *             if the slot is not in {@code allowed}
+     */
+    private static Slot slot(String name, Set<Slot> allowed) {
+        Slot result = null;
+        for (Slot slot : Slot.values()) {
+            if (slot.name.equals(name.trim())) {
+                result = slot;
+            }
+        }
+        if (result != null && !allowed.contains(result)) {
+            throw new IllegalArgumentException("The slot " + OPEN + result.name
+                    + CLOSE + " cannot be filled on this page");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the slots of the term pages.
+     *
+     * @return the slots of the term pages
+     */
+    public static Set<Slot> termSlots() {
+        return EnumSet.of(Slot.TERM, Slot.DEFINITION, Slot.INDEX_LINK,
+                Slot.BACKLINKS);
+    }
+
+    /**
+     * Returns the slots of the index page.
+     *
+     * @return the slots of the index page
+     */
+    public static Set<Slot> indexSlots() {
+        return EnumSet.of(Slot.ENTRIES);
+    }
+
+    /**
+     * Renders a page of the template into {@code page}, {@code writer}
+     * filling the slots.
+     *
+     * @param writer
+     *            writes the text of each slot
+     * @param page
+     *            the buffer the page is rendered into
+     * @update page
+     * @ensures page = #page * [the layout, its slots filled by writer]
+     */
+    public void render(SlotWriter writer, PageBuffer page) {
+        assert writer != null : "Violation of: writer is not null";
+        assert page != null : "Violation of: page is not null";
+
+        page.append(this.segments[0]);
+        for (int k = 0; k < this.slots.length; k++) {
+            writer.write(this.slots[k], page);
+            page.append(this.segments[k + 1]);
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+/**
+ * Destination of the pages of a generated glossary. Each page is handed over
+ * whole, already rendered, so an implementation can store it with a single
+ * write; tests can plug in their own implementation to capture the pages.
+ */
+public interface PageWriter {
+
+    /**
+     * Stores the page named {@code name}, e.g. "index.html", whose bytes are in
+     * {@code page}. The buffer may be reused as soon as this returns.
+     *
+     * @param name
+     *            the file name of the page
+     * @param page
+     *            the bytes of the page
+     * @throws java.io.UncheckedIOException
+     *             if the page cannot be stored
+     */
+    void write(String name, PageBuffer page);
+
+}
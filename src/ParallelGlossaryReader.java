@@ -0,0 +1,356 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads a glossary input file on several threads. The memory map of the file
+ * is cut into chunks that start right after an empty line, so that every
+ * chunk holds whole records, and each chunk is split and decoded by
+ * {@link MappedGlossaryReader} on its own thread into one concurrent term
+ * table. When a term has several records, the last one in file order wins:
+ * every record carries its position in the file and the table keeps the
+ * definition with the latest position, whatever order the chunks finish in.
+ * On a file with distinct terms the model is the same as the one of
+ * {@link GlossaryModel#read(String)}.
+ */
+public final class ParallelGlossaryReader {
+
+    /**
+     * Largest number of bytes mapped at once; a file larger than this is read
+     * through successive windows starting at record boundaries.
+     */
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Number of chunks of a window per worker, so that a worker done early
+     * takes another chunk.
+     */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /**
+     * Smallest number of bytes worth a chunk of its own.
+     */
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private ParallelGlossaryReader() {
+    }
+
+    /**
+     * Reads the model of the file at {@code filePath} on {@code workers}
+     * threads, the last record of a term in file order giving its definition.
+     *
+     * @param filePath
+     *            the filePath of the file with terms and definitions
+     * @param workers
+     *            the number of threads splitting and decoding records
+     * @return the model of the file
+     * @throws UncheckedIOException
+     *             if the file cannot be read or has a record larger than a
+     *             window
+     * @requires the file has the format described in
+     *           {@link Glossary#createGlossary(String)} and workers > 0
+     * @ensures [read has the terms of the file, each with the definition of
+     *          its last record]
+     */
+    public static GlossaryModel read(String filePath, int workers) {
+        assert filePath != null : "Violation of: filePath is not null";
+        assert workers > 0 : "Violation of: workers > 0";
+
+        ConcurrentHashMap<String, Definition> table = new ConcurrentHashMap<>();
+        ForkJoinPool pool = null;
+        if (workers > 1) {
+            pool = new ForkJoinPool(workers);
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath),
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            long base = 0;
+            int firstChunk = 0;
+            while (base < size) {
+                int length = (int) Math.min(size - base, WINDOW_SIZE);
+                boolean last = base + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        base, length);
+                int chunks = Math.max(1,
+                        Math.min(workers * CHUNKS_PER_WORKER, length / MIN_CHUNK_SIZE));
+                int[] bounds = chunkBounds(window, length, chunks);
+                int consumed = readChunks(window, bounds, last, firstChunk, table,
+                        pool);
+                if (consumed == 0 && !last) {
+                    throw new IOException("Record at byte " + base
+                            + " is larger than " + WINDOW_SIZE + " bytes");
+                }
+                firstChunk += chunks;
+                base += consumed;
+                if (last) {
+                    base = size;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + filePath, e);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        ArrayList<String> terms = new ArrayList<>(table.size());
+        ArrayList<String> definitions = new ArrayList<>(table.size());
+        table.forEach((term, definition) -> {
+            terms.add(term);
+            definitions.add(definition.text);
+        });
+        return GlossaryModel.of(terms, definitions);
+    }
+
+    /**
+     * Returns the bounds of {@code chunks} chunks of bytes [0, length) of
+     * {@code bytes}, every bound but the first one and the last one being the
+     * start of a line right after an empty line.
+     *
+     * @param bytes
+     *            the bytes of (part of) a glossary file
+     * @param length
+     *            the number of bytes to cut
+     * @param chunks
+     *            the number of chunks
+     * @return the chunk bounds, chunk k being [bounds[k], bounds[k + 1])
+     * @requires chunks > 0
+     * @ensures bounds[0] = 0 and bounds[chunks] = length and bounds is
+     *          nondecreasing
+     */
+    static int[] chunkBounds(ByteBuffer bytes, int length, int chunks) {
+        int[] bounds = new int[chunks + 1];
+        for (int k = 1; k < chunks; k++) {
+            int from = Math.max(bounds[k - 1], (int) ((long) length * k / chunks));
+            bounds[k] = recordStart(bytes, from, length);
+        }
+        bounds[chunks] = length;
+        return bounds;
+    }
+
+    /**
+     * Returns the start of the first line at or after {@code from} that comes
+     * right after an empty line, where a record or stray empty lines start.
+     *
+     * @param bytes
+     *            the bytes of (part of) a glossary file
+     * @param from
+     *            index to search from
+     * @param to
+     *            index past the last byte to search
+     * @return the start of that line, {@code to} if there is none
+     */
+    private static int recordStart(ByteBuffer bytes, int from, int to) {
+        //go back to the start of the line ending at or after from - 1
+        int lineStart = Math.max(from - 1, 0);
+        while (lineStart > 0 && bytes.get(lineStart - 1) != '\n') {
+            lineStart--;
+        }
+        int result = to;
+        while (lineStart < to && result == to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && bytes.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            boolean empty = lineEnd == lineStart
+                    || (lineEnd == lineStart + 1 && bytes.get(lineStart) == '\r');
+            if (empty && lineEnd < to) {
+                result = lineEnd + 1;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Splits and decodes the chunks of a window into {@code table}, on the
+     * threads of {@code pool} if not null.
+     *
+     * @param window
+     *            the bytes of the window
+     * @param bounds
+     *            the bounds of the chunks of the window
+     * @param last
+     *            whether the window ends with the end of the file
+     * @param firstChunk
+     *            the position in the file of the first chunk of the window
+     * @param table
+     *            the term table
+     * @param pool
+     *            the workers, null to read the chunks on this thread
+     * @return index past the last complete record of the window
+     * @update table
+     */
+    private static int readChunks(ByteBuffer window, int[] bounds, boolean last,
+            int firstChunk, ConcurrentHashMap<String, Definition> table,
+            ForkJoinPool pool) {
+        int chunks = bounds.length - 1;
+        int[] ends = new int[chunks];
+        if (pool == null) {
+            for (int k = 0; k < chunks; k++) {
+                ends[k] = readChunk(window, bounds[k], bounds[k + 1],
+                        last && k == chunks - 1, firstChunk + k, table);
+            }
+        } else {
+            ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+            for (int k = 0; k < chunks; k++) {
+                int chunk = k;
+                tasks[k] = pool.submit(() -> readChunk(window, bounds[chunk],
+                        bounds[chunk + 1], last && chunk == chunks - 1,
+                        firstChunk + chunk, table));
+            }
+            for (int k = 0; k < chunks; k++) {
+                ends[k] = (Integer) tasks[k].join();
+            }
+        }
+
+        //the window is consumed up to the end of its last chunk with records
+        int consumed = ends[0];
+        for (int k = 1; k < chunks; k++) {
+            if (bounds[k] < bounds[k + 1]) {
+                consumed = ends[k];
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * Splits and decodes the records of one chunk into {@code table}.
+     *
+     * @param window
+     *            the bytes of the window
+     * @param from
+     *            index of the first byte of the chunk
+     * @param to
+     *            index past the last byte of the chunk
+     * @param last
+     *            whether the chunk ends with the end of the file
+     * @param chunk
+     *            the position of the chunk in the file
+     * @param table
+     *            the term table
+     * @return index past the last complete record of the chunk
+     * @update table
+     */
+    private static int readChunk(ByteBuffer window, int from, int to, boolean last,
+            int chunk, ConcurrentHashMap<String, Definition> table) {
+        return MappedGlossaryReader.split(window, from, to, last,
+                new ChunkVisitor(chunk, table));
+    }
+
+    /**
+     * Decodes the records of one chunk into the term table, numbering them in
+     * file order.
+     */
+    private static final class ChunkVisitor
+            implements MappedGlossaryReader.RecordVisitor {
+
+        /**
+         * The position of the chunk in the file.
+         */
+        private final int chunk;
+
+        /**
+         * The term table.
+         */
+        private final ConcurrentHashMap<String, Definition> table;
+
+        /**
+         * A reusable array for the bytes of a definition.
+         */
+        private final byte[] scratch = new byte[1 << 12];
+
+        /**
+         * Number of records of the chunk visited so far.
+         */
+        private int records = 0;
+
+        /**
+         * Creates the visitor of chunk {@code chunk}.
+         *
+         * @param chunk
+         *            the position of the chunk in the file
+         * @param table
+         *            the term table
+         */
+        ChunkVisitor(int chunk, ConcurrentHashMap<String, Definition> table) {
+            this.chunk = chunk;
+            this.table = table;
+        }
+
+        @Override
+        public void record(ByteBuffer bytes, int termStart, int termEnd,
+                int definitionStart, int definitionEnd) {
+            Definition definition = new Definition(
+                    ((long) this.chunk << Integer.SIZE) | this.records,
+                    MappedGlossaryReader.decodeDefinition(bytes, definitionStart,
+                            definitionEnd, this.scratch));
+            this.records++;
+            this.table.merge(MappedGlossaryReader.decodeTerm(bytes, termStart, termEnd),
+                    definition, Definition::later);
+        }
+
+    }
+
+    /**
+     * A definition and the position of its record in the file.
+     */
+    private static final class Definition {
+
+        /**
+         * Position of the record: the chunk in the high bits and the record
+         * in the chunk in the low bits.
+         */
+        private final long position;
+
+        /**
+         * The definition.
+         */
+        private final String text;
+
+        /**
+         * Creates the definition.
+         *
+         * @param position
+         *            position of the record in the file
+         * @param text
+         *            the definition
+         */
+        Definition(long position, String text) {
+            this.position = position;
+            this.text = text;
+        }
+
+        /**
+         * Returns whichever of two definitions of a term comes later in the
+         * file.
+         *
+         * @param a
+         *            a definition
+         * @param b
+         *            another definition of the same term
+         * @return the later of a and b
+         */
+        static Definition later(Definition a, Definition b) {
+            Definition result = a;
+            if (b.position > a.position) {
+                result = b;
+            }
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,253 @@
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes the pages on to another page writer from a stage of writer threads,
+ * so that the threads rendering pages never wait for the disk. A rendered page
+ * is copied into one of a fixed number of buffers and queued; writer threads,
+ * virtual threads when the JVM has them, take the pages off the queue, write
+ * them and hand their buffers back. When every buffer is queued or being
+ * written the rendering threads wait, so the pages in flight, and the memory
+ * they use, stay bounded however slow the output volume is. Safe to use from
+ * several threads at once.
+ */
+public final class PipelinedPageWriter implements PageWriter, Closeable {
+
+    /**
+     * Default number of writer threads.
+     */
+    public static final int DEFAULT_WRITERS = 16;
+
+    /**
+     * Number of page buffers per writer thread, so that a page is ready as
+     * soon as a writer is done with the previous one.
+     */
+    private static final int BUFFERS_PER_WRITER = 2;
+
+    /**
+     * Queued in place of a page to stop a writer thread.
+     */
+    private static final Page END = new Page(null, null);
+
+    /**
+     * The destination of the pages.
+     */
+    private final PageWriter pages;
+
+    /**
+     * The buffers not holding a page.
+     */
+    private final BlockingQueue<PageBuffer> free;
+
+    /**
+     * The pages waiting for a writer thread.
+     */
+    private final BlockingQueue<Page> queue;
+
+    /**
+     * The writer threads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The loop of every writer thread.
+     */
+    private final Future<?>[] writers;
+
+    /**
+     * The first failure of a writer thread, a RuntimeException or an Error,
+     * null if none.
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Starts {@code writers} writer threads passing the pages on to
+     * {@code pages}.
+     *
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code writers} threads
+     * @param writers
+     *            the number of writer threads
+     * @requires writers > 0
+     */
+    public PipelinedPageWriter(PageWriter pages, int writers) {
+        assert pages != null : "Violation of: pages is not null";
+        assert writers > 0 : "Violation of: writers > 0";
+
+        this.pages = pages;
+        int buffers = writers * BUFFERS_PER_WRITER;
+        this.free = new ArrayBlockingQueue<>(buffers);
+        for (int k = 0; k < buffers; k++) {
+            this.free.add(new PageBuffer());
+        }
+        //room for every buffer plus the end of every writer
+        this.queue = new ArrayBlockingQueue<>(buffers + writers);
+        this.executor = newVirtualThreadExecutor();
+        this.writers = new Future<?>[writers];
+        for (int k = 0; k < writers; k++) {
+            this.writers[k] = this.executor.submit(this::writeQueued);
+        }
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task when the JVM has
+     * virtual threads (Java 21 and later), a cached pool of platform threads
+     * otherwise.
+     *
+     * @return the executor
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        ExecutorService executor;
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService) virtual.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException
+                | InvocationTargetException e) {
+            executor = Executors.newCachedThreadPool();
+        }
+        return executor;
+    }
+
+    /**
+     * Queues a copy of {@code page} for a writer thread, waiting for a free
+     * buffer if there is none.
+     *
+     * @throws IllegalStateException
+     *             if a writer thread failed, see {@link #close()}
+     * @throws UncheckedIOException
+     *             if the thread is interrupted while waiting
+     */
+    @Override
+    public void write(String name, PageBuffer page) {
+        assert name != null : "Violation of: name is not null";
+        assert page != null : "Violation of: page is not null";
+
+        if (this.failure.get() != null) {
+            //stop rendering pages that would not be written
+            throw new IllegalStateException("Cannot write " + name
+                    + " after a failed write", this.failure.get());
+        }
+        try {
+            PageBuffer buffer = this.free.take();
+            buffer.append(page);
+            this.queue.put(new Page(name, buffer));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException("Cannot write " + name,
+                    new InterruptedIOException("Interrupted"));
+        }
+    }
+
+    /**
+     * Loop of a writer thread: writes the queued pages until the end is
+     * queued. After a failure, an Error included, the pages are dropped and
+     * their buffers handed back, so that no rendering thread waits forever.
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    private Void writeQueued() throws InterruptedException {
+        Page page = this.queue.take();
+        while (page != END) {
+            if (this.failure.get() == null) {
+                try {
+                    this.pages.write(page.name, page.buffer);
+                } catch (RuntimeException | Error e) {
+                    this.failure.compareAndSet(null, e);
+                }
+            }
+            page.buffer.clear();
+            this.free.put(page.buffer);
+            page = this.queue.take();
+        }
+        return null;
+    }
+
+    /**
+     * Waits for the queued pages to be written and stops the writer threads.
+     *
+     * @throws RuntimeException
+     *             the first failure of a writer thread, e.g. an
+     *             {@link UncheckedIOException} if a page cannot be written
+     * @throws Error
+     *             the first failure of a writer thread, if it is an Error
+     */
+    @Override
+    public void close() {
+        try {
+            for (int k = 0; k < this.writers.length; k++) {
+                this.queue.put(END);
+            }
+            for (Future<?> writer : this.writers) {
+                writer.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.failure.compareAndSet(null, new UncheckedIOException(
+                    "Cannot complete the writes", new InterruptedIOException()));
+        } catch (ExecutionException e) {
+            this.failure.compareAndSet(null,
+                    new IllegalStateException("A writer thread failed", e.getCause()));
+        } finally {
+            this.executor.shutdownNow();
+        }
+        Throwable failed = this.failure.get();
+        if (failed instanceof Error) {
+            throw (Error) failed;
+        }
+        if (failed != null) {
+            throw (RuntimeException) failed;
+        }
+    }
+
+    /**
+     * Stops the writer threads without waiting for the queued pages, which are
+     * not written, after a failed run. Never throws, so that the failure of
+     * the run is the one reported.
+     */
+    public void cancel() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * A page waiting for a writer thread.
+     */
+    private static final class Page {
+
+        /**
+         * The name of the page.
+         */
+        private final String name;
+
+        /**
+         * The buffer holding the page.
+         */
+        private final PageBuffer buffer;
+
+        /**
+         * Creates the page.
+         *
+         * @param name
+         *            the name of the page
+         * @param buffer
+         *            the buffer holding the page
+         */
+        Page(String name, PageBuffer buffer) {
+            this.name = name;
+            this.buffer = buffer;
+        }
+
+    }
+
+}
@@ -0,0 +1,459 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * The term to term reference graph of a glossary: term a references term b
+ * when the definition of a links to b. Every definition is tokenized once, when
+ * the graph is built, and the graph is kept in compressed sparse row form, one
+ * array of offsets and one array of term ids for each direction, so that both
+ * the terms a definition links to and the terms whose definitions link back to
+ * a term ("referenced by") are found without scanning any definition again.
+ * Ids are the ids of the {@link GlossaryModel} the graph is built from.
+ */
+public final class ReferenceGraph {
+
+    /**
+     * Number of definitions below which a task tokenizes them itself instead
+     * of splitting them with another worker.
+     */
+    private static final int THRESHOLD = 256;
+
+    /**
+     * Initial capacity of the rows of a task.
+     */
+    private static final int INITIAL_ROWS_CAPACITY = 1 << 10;
+
+    /**
+     * Offsets in {@code references}: the terms referenced by id are
+     * references[referenceStarts[id], referenceStarts[id + 1]).
+     */
+    private final int[] referenceStarts;
+
+    /**
+     * The distinct ids referenced by each term, in increasing order.
+     */
+    private final int[] references;
+
+    /**
+     * Offsets in {@code referrers}: the terms referencing id are
+     * referrers[referrerStarts[id], referrerStarts[id + 1]).
+     */
+    private final int[] referrerStarts;
+
+    /**
+     * The distinct ids of the other terms referencing each term, in
+     * increasing order.
+     */
+    private final int[] referrers;
+
+    /**
+     * Creates the graph from its forward rows and derives the reverse rows.
+     *
+     * @param referenceStarts
+     *            offsets of the forward rows
+     * @param references
+     *            the forward rows
+     */
+    private ReferenceGraph(int[] referenceStarts, int[] references) {
+        int size = referenceStarts.length - 1;
+        this.referenceStarts = referenceStarts;
+        this.references = references;
+
+        //count the referrers of each term, a term does not refer back to itself
+        this.referrerStarts = new int[size + 1];
+        for (int from = 0; from < size; from++) {
+            for (int k = referenceStarts[from]; k < referenceStarts[from + 1]; k++) {
+                if (references[k] != from) {
+                    this.referrerStarts[references[k] + 1]++;
+                }
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            this.referrerStarts[id + 1] += this.referrerStarts[id];
+        }
+
+        //sources are visited in increasing order, so every row comes out sorted
+        this.referrers = new int[this.referrerStarts[size]];
+        int[] next = Arrays.copyOf(this.referrerStarts, size);
+        for (int from = 0; from < size; from++) {
+            for (int k = referenceStarts[from]; k < referenceStarts[from + 1]; k++) {
+                int to = references[k];
+                if (to != from) {
+                    this.referrers[next[to]] = from;
+                    next[to]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the reference graph of {@code model}, tokenizing the definitions
+     * on {@code workers} threads.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker of {@code model}
+     * @param workers
+     *            the number of threads tokenizing definitions
+     * @return the reference graph of model
+     * @requires {@code linker} is built from {@code model} and workers > 0
+     * @ensures [build has an edge from a to b iff the definition of a links
+     *          to b]
+     */
+    public static ReferenceGraph build(GlossaryModel model, TermLinker linker,
+            int workers) {
+        assert model != null : "Violation of: model is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert workers > 0 : "Violation of: workers > 0";
+
+        RowsTask all = new RowsTask(model, linker, 0, model.size());
+        Rows rows;
+        if (workers == 1) {
+            //on the calling thread only: computing the task would fork it
+            rows = all.tokenize();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                rows = pool.invoke(all);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new ReferenceGraph(rows.starts, Arrays.copyOf(rows.ids, rows.count));
+    }
+
+    /**
+     * Returns the reference graph of {@code model} from {@code graph}, the
+     * graph of an earlier version {@code previous} of the glossary, tokenizing
+     * only the definitions of the ids in {@code stale}: the row of any other
+     * id is the row of the same term in {@code graph}. When the terms are the
+     * same, the model sharing the term index of {@code previous}, the ids are
+     * too and the rows are copied as they are; otherwise every id of a row is
+     * mapped through its term.
+     *
+     * @param graph
+     *            the reference graph of {@code previous}
+     * @param previous
+     *            the earlier version of the glossary
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker of {@code model}
+     * @param stale
+     *            the ids of {@code model} whose row may have changed
+     * @return the reference graph of model
+     * @requires {@code linker} is built from {@code model}, every term of
+     *           {@code model} whose id is not in {@code stale} is a term of
+     *           {@code previous} and the terms its definition links to are
+     *           the same in both
+     * @ensures [update has an edge from a to b iff the definition of a links
+     *          to b]
+     */
+    static ReferenceGraph update(ReferenceGraph graph, GlossaryModel previous,
+            GlossaryModel model, TermLinker linker, BitSet stale) {
+        assert graph.size() == previous.size() : "Violation of: "
+                + "graph is the reference graph of previous";
+
+        boolean sameTerms = model.index() == previous.index();
+        int[] starts = new int[model.size() + 1];
+        int[] ids = new int[graph.references.length + INITIAL_ROWS_CAPACITY];
+        int count = 0;
+        for (int id = 0; id < model.size(); id++) {
+            starts[id] = count;
+            int[] row;
+            int rowStart;
+            int rowEnd;
+            if (stale.get(id)) {
+                Rows rows = new RowsTask(model, linker, id, id + 1).tokenize();
+                row = rows.ids;
+                rowStart = 0;
+                rowEnd = rows.count;
+            } else {
+                int old = sameTerms ? id : previous.id(model.term(id));
+                row = graph.references;
+                rowStart = graph.referenceStarts[old];
+                rowEnd = graph.referenceStarts[old + 1];
+            }
+            if (count + rowEnd - rowStart > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2,
+                        count + rowEnd - rowStart));
+            }
+            for (int k = rowStart; k < rowEnd; k++) {
+                //ids follow the alphabetical order in both models, so a mapped
+                //row stays sorted
+                int to = row[k];
+                if (!stale.get(id) && !sameTerms) {
+                    to = model.id(previous.term(to));
+                    assert to != TermIndex.NOT_FOUND : "Violation of: the terms "
+                            + "linked from the ids not in stale are the same in both";
+                }
+                ids[count] = to;
+                count++;
+            }
+        }
+        starts[model.size()] = count;
+        return new ReferenceGraph(starts, Arrays.copyOf(ids, count));
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return the number of terms
+     */
+    public int size() {
+        return this.referenceStarts.length - 1;
+    }
+
+    /**
+     * Returns the number of distinct terms the definition of {@code id} links
+     * to, itself included.
+     *
+     * @param id
+     *            the id of the term
+     * @return the number of terms referenced by id
+     * @requires 0 <= id < size
+     */
+    public int referenceCount(int id) {
+        return this.referenceStarts[id + 1] - this.referenceStarts[id];
+    }
+
+    /**
+     * Returns the id of the k-th term, in id order, the definition of
+     * {@code id} links to.
+     *
+     * @param id
+     *            the id of the term
+     * @param k
+     *            the position of the reference
+     * @return the id of the referenced term
+     * @requires 0 <= id < size and 0 <= k < referenceCount(id)
+     */
+    public int reference(int id, int k) {
+        assert 0 <= k && k < this.referenceCount(id) : "Violation of: "
+                + "0 <= k < referenceCount(id)";
+
+        return this.references[this.referenceStarts[id] + k];
+    }
+
+    /**
+     * Returns the number of other terms whose definition links to {@code id}.
+     *
+     * @param id
+     *            the id of the term
+     * @return the number of terms referencing id
+     * @requires 0 <= id < size
+     */
+    public int referrerCount(int id) {
+        return this.referrerStarts[id + 1] - this.referrerStarts[id];
+    }
+
+    /**
+     * Returns the id of the k-th other term, in id order, whose definition
+     * links to {@code id}.
+     *
+     * @param id
+     *            the id of the term
+     * @param k
+     *            the position of the referrer
+     * @return the id of the referencing term
+     * @requires 0 <= id < size and 0 <= k < referrerCount(id)
+     */
+    public int referrer(int id, int k) {
+        assert 0 <= k && k < this.referrerCount(id) : "Violation of: "
+                + "0 <= k < referrerCount(id)";
+
+        return this.referrers[this.referrerStarts[id] + k];
+    }
+
+    /**
+     * Forward rows of a range of terms, in compressed sparse row form with
+     * offsets relative to the range.
+     */
+    private static final class Rows {
+
+        /**
+         * Offsets of the rows in {@code ids}, one more than the terms.
+         */
+        private final int[] starts;
+
+        /**
+         * The rows, the first {@code count} entries are used.
+         */
+        private final int[] ids;
+
+        /**
+         * Number of entries of {@code ids} used.
+         */
+        private final int count;
+
+        /**
+         * Creates the rows.
+         *
+         * @param starts
+         *            offsets of the rows
+         * @param ids
+         *            the rows
+         * @param count
+         *            number of entries of ids used
+         */
+        Rows(int[] starts, int[] ids, int count) {
+            this.starts = starts;
+            this.ids = ids;
+            this.count = count;
+        }
+
+    }
+
+    /**
+     * Task tokenizing the definitions of a range of ids into their forward
+     * rows, halving the range between workers while it is large.
+     */
+    private static final class RowsTask extends RecursiveTask<Rows>
+            implements IntConsumer {
+
+        /**
+         * Serialization id.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The glossary.
+         */
+        private final transient GlossaryModel model;
+
+        /**
+         * The term linker.
+         */
+        private final transient TermLinker linker;
+
+        /**
+         * First id of the range.
+         */
+        private final int from;
+
+        /**
+         * Id past the end of the range.
+         */
+        private final int to;
+
+        /**
+         * The rows being tokenized, the first {@code count} entries are used.
+         */
+        private int[] ids;
+
+        /**
+         * Number of entries of {@code ids} used.
+         */
+        private int count;
+
+        /**
+         * Creates the task tokenizing the definitions of ids [from, to).
+         *
+         * @param model
+         *            the glossary
+         * @param linker
+         *            the term linker
+         * @param from
+         *            first id of the range
+         * @param to
+         *            id past the end of the range
+         */
+        RowsTask(GlossaryModel model, TermLinker linker, int from, int to) {
+            this.model = model;
+            this.linker = linker;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Rows compute() {
+            Rows rows;
+            if (this.to - this.from <= THRESHOLD) {
+                rows = this.tokenize();
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                RowsTask right = new RowsTask(this.model, this.linker, middle,
+                        this.to);
+                right.fork();
+                Rows left = new RowsTask(this.model, this.linker, this.from, middle)
+                        .compute();
+                rows = concatenate(left, right.join());
+            }
+            return rows;
+        }
+
+        /**
+         * Tokenizes the definitions of the range.
+         *
+         * @return the forward rows of the range
+         */
+        private Rows tokenize() {
+            int[] starts = new int[this.to - this.from + 1];
+            this.ids = new int[INITIAL_ROWS_CAPACITY];
+            this.count = 0;
+            String definitions = this.model.definitions();
+            for (int id = this.from; id < this.to; id++) {
+                int rowStart = this.count;
+                starts[id - this.from] = rowStart;
+                this.linker.forEachLinked(definitions, this.model.definitionStart(id),
+                        this.model.definitionEnd(id), this);
+
+                //sort the row, then drop the repeated ids
+                Arrays.sort(this.ids, rowStart, this.count);
+                int distinct = rowStart;
+                for (int k = rowStart; k < this.count; k++) {
+                    if (distinct == rowStart || this.ids[k] != this.ids[distinct - 1]) {
+                        this.ids[distinct] = this.ids[k];
+                        distinct++;
+                    }
+                }
+                this.count = distinct;
+            }
+            starts[this.to - this.from] = this.count;
+            return new Rows(starts, this.ids, this.count);
+        }
+
+        /**
+         * Appends the id of a term found in the definition being tokenized to
+         * its row.
+         *
+         * @param linked
+         *            the id of the term found
+         */
+        @Override
+        public void accept(int linked) {
+            if (this.count == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.count * 2);
+            }
+            this.ids[this.count] = linked;
+            this.count++;
+        }
+
+        /**
+         * Returns the rows of two adjacent ranges as the rows of their union.
+         *
+         * @param left
+         *            the rows of the first range
+         * @param right
+         *            the rows of the range that follows it
+         * @return the rows of both ranges
+         */
+        private static Rows concatenate(Rows left, Rows right) {
+            int leftSize = left.starts.length - 1;
+            int[] starts = Arrays.copyOf(left.starts,
+                    leftSize + right.starts.length);
+            for (int i = 1; i < right.starts.length; i++) {
+                starts[leftSize + i] = left.count + right.starts[i];
+            }
+            int[] ids = Arrays.copyOf(left.ids, left.count + right.count);
+            System.arraycopy(right.ids, 0, ids, left.count, right.count);
+            return new Rows(starts, ids, left.count + right.count);
+        }
+
+    }
+
+}
@@ -0,0 +1,368 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Instrumentation of a generation run: the wall and CPU time and the bytes
+ * allocated of every stage ("read", "link", "index", "term pages", ...), and
+ * run-wide counters of the bytes read and written, the files written and the
+ * tokens scanned and links emitted by the {@link TermLinker}. The profile is
+ * printed as a summary, can be written as JSON, and every stage is also
+ * committed as a "glossary.Stage" JFR event, recorded whenever the JVM runs a
+ * flight recording (e.g. -XX:StartFlightRecording).
+ *
+ * <p>
+ * CPU time is the CPU time of the whole process, all workers included.
+ * Allocations are those of the thread running the stages, so they are an
+ * estimate, low when a stage runs on several workers.
+ */
+public final class RunProfile {
+
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * The stages ended so far, in order.
+     */
+    private final ArrayList<Stage> stages = new ArrayList<>();
+
+    /**
+     * The stage running, null if none.
+     */
+    private Stage current = null;
+
+    /**
+     * The bytes of input read.
+     */
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * The bytes of pages written.
+     */
+    private final LongAdder bytesWritten = new LongAdder();
+
+    /**
+     * The files written.
+     */
+    private final LongAdder filesWritten = new LongAdder();
+
+    /**
+     * The words and separator strings scanned by the linker.
+     */
+    private final LongAdder tokens = new LongAdder();
+
+    /**
+     * The hyperlinks emitted by the linker.
+     */
+    private final LongAdder links = new LongAdder();
+
+    /**
+     * Creates an empty profile.
+     */
+    public RunProfile() {
+    }
+
+    /**
+     * Starts stage {@code name}, ending the running stage if any.
+     *
+     * @param name
+     *            the name of the stage
+     */
+    public void begin(String name) {
+        assert name != null : "Violation of: name is not null";
+
+        this.end();
+        this.current = new Stage(name);
+        this.current.event.begin();
+        this.current.wallNanos = System.nanoTime();
+        this.current.cpuNanos = processCpuNanos();
+        this.current.allocatedBytes = threadAllocatedBytes();
+    }
+
+    /**
+     * Ends the running stage, if any.
+     */
+    public void end() {
+        Stage stage = this.current;
+        if (stage != null) {
+            stage.wallNanos = System.nanoTime() - stage.wallNanos;
+            stage.cpuNanos = processCpuNanos() - stage.cpuNanos;
+            stage.allocatedBytes = threadAllocatedBytes() - stage.allocatedBytes;
+            stage.event.stage = stage.name;
+            stage.event.cpuTime = stage.cpuNanos;
+            stage.event.allocated = stage.allocatedBytes;
+            stage.event.commit();
+            this.stages.add(stage);
+            this.current = null;
+        }
+    }
+
+    /**
+     * Counts {@code bytes} bytes of input read.
+     *
+     * @param bytes
+     *            the number of bytes read
+     */
+    public void read(long bytes) {
+        this.bytesRead.add(bytes);
+    }
+
+    /**
+     * Counts the tokens scanned and the links emitted by the linker for one
+     * text.
+     *
+     * @param scanned
+     *            the number of words and separator strings scanned
+     * @param linked
+     *            the number of hyperlinks emitted
+     */
+    public void linked(int scanned, int linked) {
+        this.tokens.add(scanned);
+        this.links.add(linked);
+    }
+
+    /**
+     * Returns a page writer passing every page on to {@code pages} and
+     * counting the files and bytes written.
+     *
+     * @param pages
+     *            the destination of the pages
+     * @return the counting page writer
+     */
+    public PageWriter counting(PageWriter pages) {
+        assert pages != null : "Violation of: pages is not null";
+
+        return (name, page) -> {
+            pages.write(name, page);
+            this.filesWritten.increment();
+            this.bytesWritten.add(page.length());
+        };
+    }
+
+    /**
+     * Returns the number of stages ended.
+     *
+     * @return the number of stages
+     */
+    public int stages() {
+        return this.stages.size();
+    }
+
+    /**
+     * Returns the name of the k-th stage.
+     *
+     * @param k
+     *            the position of the stage
+     * @return the name of the stage
+     * @requires 0 <= k < stages
+     */
+    public String stage(int k) {
+        return this.stages.get(k).name;
+    }
+
+    /**
+     * Returns the number of files written.
+     *
+     * @return the number of files written
+     */
+    public long filesWritten() {
+        return this.filesWritten.sum();
+    }
+
+    /**
+     * Returns the number of hyperlinks emitted by the linker.
+     *
+     * @return the number of links
+     */
+    public long links() {
+        return this.links.sum();
+    }
+
+    /**
+     * Returns the profile as a summary of one line per stage followed by the
+     * counters.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (Stage stage : this.stages) {
+            summary.append(String.format("%-14s %10.1f ms wall %10.1f ms cpu %12d B "
+                    + "allocated%n", stage.name, stage.wallNanos / NANOS_PER_MILLI,
+                    stage.cpuNanos / NANOS_PER_MILLI, stage.allocatedBytes));
+        }
+        summary.append(String.format("%d B read, %d B written in %d files, "
+                + "%d tokens scanned, %d links", this.bytesRead.sum(),
+                this.bytesWritten.sum(), this.filesWritten.sum(), this.tokens.sum(),
+                this.links.sum()));
+        return summary.toString();
+    }
+
+    /**
+     * Returns the profile as a JSON object, times in nanoseconds.
+     *
+     * @return the JSON text of the profile
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"stages\":[");
+        for (int k = 0; k < this.stages.size(); k++) {
+            Stage stage = this.stages.get(k);
+            if (k > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(stage.name)
+                    .append("\",\"wallNanos\":").append(stage.wallNanos)
+                    .append(",\"cpuNanos\":").append(stage.cpuNanos)
+                    .append(",\"allocatedBytes\":").append(stage.allocatedBytes)
+                    .append('}');
+        }
+        json.append("],\"bytesRead\":").append(this.bytesRead.sum())
+                .append(",\"bytesWritten\":").append(this.bytesWritten.sum())
+                .append(",\"filesWritten\":").append(this.filesWritten.sum())
+                .append(",\"tokens\":").append(this.tokens.sum())
+                .append(",\"links\":").append(this.links.sum()).append('}');
+        return json.toString();
+    }
+
+    /**
+     * Writes {@link #toJson()} to the file at {@code filePath}.
+     *
+     * @param filePath
+     *            the path of the JSON file
+     * @throws UncheckedIOException
+     *             if the file cannot be written
+     */
+    public void writeJson(String filePath) {
+        assert filePath != null : "Violation of: filePath is not null";
+
+        try {
+            Files.write(Paths.get(filePath),
+                    this.toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + filePath, e);
+        }
+    }
+
+    /**
+     * Returns the CPU time used by the process so far, or 0 if the JVM does
+     * not report it.
+     *
+     * @return the CPU time of the process in nanoseconds
+     */
+    private static long processCpuNanos() {
+        OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+        long nanos = 0;
+        if (system instanceof com.sun.management.OperatingSystemMXBean) {
+            nanos = Math.max(0, ((com.sun.management.OperatingSystemMXBean) system)
+                    .getProcessCpuTime());
+        }
+        return nanos;
+    }
+
+    /**
+     * Returns the bytes allocated by the calling thread so far, or 0 if the
+     * JVM does not report them.
+     *
+     * @return the bytes allocated by the thread
+     */
+    private static long threadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long bytes = 0;
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            bytes = Math.max(0, ((com.sun.management.ThreadMXBean) threads)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId()));
+        }
+        return bytes;
+    }
+
+    /**
+     * One stage of a run; while it runs, its measures hold their values at its
+     * start.
+     */
+    private static final class Stage {
+
+        /**
+         * The name of the stage.
+         */
+        private final String name;
+
+        /**
+         * The JFR event of the stage.
+         */
+        private final StageEvent event = new StageEvent();
+
+        /**
+         * Wall time of the stage in nanoseconds.
+         */
+        private long wallNanos;
+
+        /**
+         * CPU time of the process during the stage in nanoseconds.
+         */
+        private long cpuNanos;
+
+        /**
+         * Bytes allocated by the thread running the stage.
+         */
+        private long allocatedBytes;
+
+        /**
+         * Creates the stage.
+         *
+         * @param name
+         *            the name of the stage
+         */
+        Stage(String name) {
+            this.name = name;
+        }
+
+    }
+
+    /**
+     * JFR event of one stage of a run, its duration being the wall time of
+     * the stage.
+     */
+    @Name("glossary.Stage")
+    @Label("Glossary Stage")
+    @Category("Glossary")
+    static final class StageEvent extends Event {
+
+        /**
+         * The name of the stage.
+         */
+        @Label("Stage")
+        private String stage;
+
+        /**
+         * CPU time of the process during the stage.
+         */
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        private long cpuTime;
+
+        /**
+         * Bytes allocated by the thread running the stage.
+         */
+        @Label("Allocated")
+        @DataAmount(DataAmount.BYTES)
+        private long allocated;
+
+    }
+
+}
@@ -0,0 +1,216 @@
+/**
+ * Compact JSON search index of the terms, written next to the HTML pages so
+ * that a client-side search can find a term without downloading the index
+ * page. The terms are front coded in blocks of {@link #BLOCK_SIZE}: the first
+ * term of a block is written whole, and every other term as the length of the
+ * prefix it shares with the term before it followed by the rest of it:
+ *
+ * <pre>
+ * {"version":1,"count":3,"block":16,"blocks":[["book",0,"term",1,"ree"]]}
+ * </pre>
+ *
+ * Terms are in id order, which is the UTF-16 code unit order JavaScript
+ * compares strings in, so a client finds a term by a binary search over the
+ * first terms of the blocks and a scan of one block; the page of a term is
+ * "term.html". When the index is sharded, "search-index.json" lists the
+ * shards instead, each with the same table in its own file:
+ *
+ * <pre>
+ * {"version":1,"shards":[{"label":"A","file":"search-A.json","count":2}]}
+ * </pre>
+ *
+ * The index is written in one pass over the sorted terms.
+ */
+public final class SearchIndex {
+
+    /**
+     * Name of the search index file.
+     */
+    public static final String FILE = "search-index.json";
+
+    /**
+     * Number of terms of a front coded block.
+     */
+    public static final int BLOCK_SIZE = 16;
+
+    /**
+     * Version of the format of the search index.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private SearchIndex() {
+    }
+
+    /**
+     * Writes the search index of {@code model} to {@code pages}, sharded like
+     * {@code shards} if not null.
+     *
+     * @param model
+     *            the glossary
+     * @param shards
+     *            the shards of the index of {@code model}, null for a single
+     *            table
+     * @param pages
+     *            the destination of the files
+     * @requires {@code shards} is null or built from {@code model}
+     * @ensures [pages has the search index of model]
+     */
+    public static void write(GlossaryModel model, IndexShards shards,
+            PageWriter pages) {
+        assert model != null : "Violation of: model is not null";
+        assert pages != null : "Violation of: pages is not null";
+
+        PageBuffer file = PageBuffer.forThread();
+        if (shards == null) {
+            renderTable(model, null, model.size(), file);
+            pages.write(FILE, file);
+        } else {
+            file.append("{\"version\":").append(Integer.toString(VERSION))
+                    .append(",\"shards\":[");
+            for (int shard = 0; shard < shards.count(); shard++) {
+                if (shard > 0) {
+                    file.append(",");
+                }
+                file.append("{\"label\":");
+                appendString(shards.label(shard), 0, file);
+                file.append(",\"file\":");
+                appendString(shardFile(shards, shard), 0, file);
+                file.append(",\"count\":").append(Integer.toString(shards.size(shard)))
+                        .append("}");
+            }
+            file.append("]}");
+            pages.write(FILE, file);
+
+            for (int shard = 0; shard < shards.count(); shard++) {
+                int[] ids = new int[shards.size(shard)];
+                for (int k = 0; k < ids.length; k++) {
+                    ids[k] = shards.id(shard, k);
+                }
+                file.clear();
+                renderTable(model, ids, ids.length, file);
+                pages.write(shardFile(shards, shard), file);
+            }
+        }
+    }
+
+    /**
+     * Returns the file name of the search table of shard {@code shard}, e.g.
+     * "search-A.json" for "index-A.html".
+     *
+     * @param shards
+     *            the shards of the index
+     * @param shard
+     *            the shard
+     * @return the file name of the search table of the shard
+     */
+    public static String shardFile(IndexShards shards, int shard) {
+        String name = shards.name(shard);
+        return "search-" + name.substring("index-".length(), name.length()
+                - ".html".length()) + ".json";
+    }
+
+    /**
+     * Renders the front coded table of the given terms of {@code model}.
+     *
+     * @param model
+     *            the glossary
+     * @param ids
+     *            the ids of the terms in increasing order, null for all the
+     *            terms of model
+     * @param count
+     *            the number of terms
+     * @param file
+     *            the buffer the table is rendered into
+     * @update file
+     */
+    private static void renderTable(GlossaryModel model, int[] ids, int count,
+            PageBuffer file) {
+        file.append("{\"version\":").append(Integer.toString(VERSION))
+                .append(",\"count\":").append(Integer.toString(count))
+                .append(",\"block\":").append(Integer.toString(BLOCK_SIZE))
+                .append(",\"blocks\":[");
+        String previous = null;
+        for (int k = 0; k < count; k++) {
+            String term;
+            if (ids == null) {
+                term = model.term(k);
+            } else {
+                term = model.term(ids[k]);
+            }
+            if (k % BLOCK_SIZE == 0) {
+                //a block starts with its first term whole
+                if (k > 0) {
+                    file.append("],");
+                }
+                file.append("[");
+                appendString(term, 0, file);
+            } else {
+                int shared = sharedPrefix(previous, term);
+                file.append(",").append(Integer.toString(shared)).append(",");
+                appendString(term, shared, file);
+            }
+            previous = term;
+        }
+        if (count > 0) {
+            file.append("]");
+        }
+        file.append("]}");
+    }
+
+    /**
+     * Returns the length of the longest common prefix of {@code a} and
+     * {@code b} that does not end in the middle of a surrogate pair.
+     *
+     * @param a
+     *            a string
+     * @param b
+     *            another string
+     * @return the length of their common prefix
+     */
+    static int sharedPrefix(String a, String b) {
+        int limit = Math.min(a.length(), b.length());
+        int shared = 0;
+        while (shared < limit && a.charAt(shared) == b.charAt(shared)) {
+            shared++;
+        }
+        if (shared > 0 && Character.isHighSurrogate(a.charAt(shared - 1))) {
+            shared--;
+        }
+        return shared;
+    }
+
+    /**
+     * Appends text[start, |text|) as a JSON string literal.
+     *
+     * @param text
+     *            the text
+     * @param start
+     *            index of the first character to append
+     * @param file
+     *            the buffer the literal is appended to
+     * @update file
+     */
+    private static void appendString(String text, int start, PageBuffer file) {
+        final int firstPrintable = 0x20;
+        file.append("\"");
+        int plain = start;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\' || c < firstPrintable) {
+                file.append(text, plain, i);
+                if (c == '"' || c == '\\') {
+                    file.append("\\").append(text, i, i + 1);
+                } else {
+                    file.append(String.format("\\u%04x", (int) c));
+                }
+                plain = i + 1;
+            }
+        }
+        file.append(text, plain, text.length());
+        file.append("\"");
+    }
+
+}
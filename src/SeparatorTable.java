@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+/**
+ * Immutable table of the characters that separate words. Characters below
+ * {@code 256} are tested with a bit lookup and all others with a binary search
+ * of the (usually empty) sorted array of wider separators, so a test never
+ * boxes a {@code Character} or allocates.
+ */
+public final class SeparatorTable {
+
+    /**
+     * The table of {@link Glossary#SEPARATORS}, shared by the whole run.
+     */
+    public static final SeparatorTable DEFAULT = new SeparatorTable(
+            Glossary.SEPARATORS);
+
+    /**
+     * Number of characters covered by the bit lookup.
+     */
+    private static final int TABLE_SIZE = 256;
+
+    /**
+     * Bits of the separators below {@code TABLE_SIZE}.
+     */
+    private final long[] bits;
+
+    /**
+     * Sorted separators at or above {@code TABLE_SIZE}.
+     */
+    private final char[] wide;
+
+    /**
+     * Builds the table of the characters in {@code str}.
+     *
+     * @param str
+     *            the separator characters
+     * @ensures [this contains exactly entries(str)]
+     */
+    public SeparatorTable(String str) {
+        assert str != null : "Violation of: str is not null";
+
+        this.bits = new long[TABLE_SIZE / Long.SIZE];
+        char[] others = new char[str.length()];
+        int count = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < TABLE_SIZE) {
+                this.bits[c >>> 6] |= 1L << c;
+            } else {
+                others[count] = c;
+                count++;
+            }
+        }
+        this.wide = Arrays.copyOf(others, count);
+        Arrays.sort(this.wide);
+    }
+
+    /**
+     * Reports whether {@code c} is a separator.
+     *
+     * @param c
+     *            the character to test
+     * @return true iff {@code c} is a separator
+     */
+    public boolean isSeparator(char c) {
+        boolean result;
+        if (c < TABLE_SIZE) {
+            result = (this.bits[c >>> 6] & (1L << c)) != 0;
+        } else {
+            result = this.wide.length > 0 && Arrays.binarySearch(this.wide, c) >= 0;
+        }
+        return result;
+    }
+
+}
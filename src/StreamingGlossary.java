@@ -0,0 +1,407 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Glossary generation in two passes over the input file, so that the whole
+ * glossary text is never held in memory. The first pass ({@link #scan(String)})
+ * only keeps the terms and the byte range of each definition; the second pass
+ * ({@link #write(PageWriter)}) reads the definitions back from the file one at a
+ * time while writing the term pages. The input has the format described in
+ * {@link Glossary#createGlossary(String)} and is read as UTF-8.
+ */
+public final class StreamingGlossary {
+
+    /**
+     * Size of the buffer the file is scanned with.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Path of the input file.
+     */
+    private final String filePath;
+
+    /**
+     * Terms in file order.
+     */
+    private final String[] terms;
+
+    /**
+     * Byte offset of the definition of each term.
+     */
+    private final long[] starts;
+
+    /**
+     * Byte length of the definition of each term, line breaks included.
+     */
+    private final int[] lengths;
+
+    /**
+     * Creates the record index of a scanned file.
+     *
+     * @param filePath
+     *            path of the input file
+     * @param terms
+     *            terms in file order
+     * @param starts
+     *            byte offset of each definition
+     * @param lengths
+     *            byte length of each definition
+     */
+    private StreamingGlossary(String filePath, String[] terms, long[] starts,
+            int[] lengths) {
+        this.filePath = filePath;
+        this.terms = terms;
+        this.starts = starts;
+        this.lengths = lengths;
+    }
+
+    /**
+     * First pass: collects the terms of the file at {@code filePath} and the
+     * byte range of each definition, without decoding the definitions.
+     *
+     * @param filePath
+     *            the filePath of the file with terms and definitions
+     * @return the record index of the file
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     * @requires the file has the format described in
+     *           {@link Glossary#createGlossary(String)}
+     * @ensures [scan knows every term of the file and where its definition is]
+     */
+    public static StreamingGlossary scan(String filePath) {
+        assert filePath != null : "Violation of: filePath is not null";
+
+        Records records = new Records();
+        long lineStart = 0;
+        long position = 0;
+        byte previous = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = new FileInputStream(filePath)) {
+            int read = input.read(buffer);
+            while (read >= 0) {
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        //a line ends here, without its \r if it has one
+                        long lineEnd = position;
+                        if (previous == '\r') {
+                            lineEnd--;
+                        }
+                        records.line(lineStart, lineEnd);
+                        lineStart = position + 1;
+                    } else {
+                        records.lineByte(b);
+                    }
+                    previous = b;
+                    position++;
+                }
+                read = input.read(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + filePath, e);
+        }
+
+        //the last line and record may end with the file
+        if (position > lineStart) {
+            long lineEnd = position;
+            if (previous == '\r') {
+                lineEnd--;
+            }
+            records.line(lineStart, lineEnd);
+        }
+        records.line(position, position);
+
+        return new StreamingGlossary(filePath,
+                Arrays.copyOf(records.terms, records.count),
+                Arrays.copyOf(records.starts, records.count),
+                Arrays.copyOf(records.lengths, records.count));
+    }
+
+    /**
+     * Decodes the bytes of a term line, without its trailing \r if any.
+     *
+     * @param bytes
+     *            the bytes of the line
+     * @param length
+     *            number of bytes of the line in {@code bytes}
+     * @return the term
+     */
+    private static String decodeTerm(byte[] bytes, int length) {
+        int end = length;
+        if (end > 0 && bytes[end - 1] == '\r') {
+            end--;
+        }
+        return new String(bytes, 0, end, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of records of the file.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return this.terms.length;
+    }
+
+    /**
+     * Returns the term of record {@code i}.
+     *
+     * @param i
+     *            index of the record in file order
+     * @return the term of record {@code i}
+     * @requires 0 <= i < size
+     */
+    public String term(int i) {
+        assert 0 <= i && i < this.terms.length : "Violation of: 0 <= i < size";
+
+        return this.terms[i];
+    }
+
+    /**
+     * Returns a copy of the terms of the file, in file order.
+     *
+     * @return the terms of the file
+     */
+    public String[] terms() {
+        return this.terms.clone();
+    }
+
+    /**
+     * Reads the definition of record {@code i} back from {@code channel}. The
+     * lines of the definition are joined with single spaces as
+     * {@link Glossary#createGlossary(String)} does.
+     *
+     * @param channel
+     *            a channel open on the scanned file
+     * @param i
+     *            index of the record in file order
+     * @param buffer
+     *            a buffer to reuse for the bytes, or null
+     * @return the buffer holding the bytes of the definition, which is
+     *         {@code buffer} if it is large enough
+     * @throws IOException
+     *             if the file cannot be read
+     * @requires 0 <= i < size
+     */
+    private ByteBuffer readDefinition(FileChannel channel, int i, ByteBuffer buffer)
+            throws IOException {
+        ByteBuffer result = buffer;
+        if (result == null || result.capacity() < this.lengths[i]) {
+            result = ByteBuffer.allocate(Math.max(this.lengths[i], BUFFER_SIZE));
+        }
+        result.clear();
+        result.limit(this.lengths[i]);
+        long position = this.starts[i];
+        while (result.hasRemaining()) {
+            int read = channel.read(result, position);
+            if (read < 0) {
+                throw new IOException(this.filePath + " changed while reading it");
+            }
+            position += read;
+        }
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Decodes a definition read by {@link #readDefinition}, replacing each line
+     * break by a single space.
+     *
+     * @param bytes
+     *            the bytes of the definition
+     * @return the definition
+     */
+    private static String decodeDefinition(ByteBuffer bytes) {
+        String text = new String(bytes.array(), bytes.arrayOffset() + bytes.position(),
+                bytes.remaining(), StandardCharsets.UTF_8);
+        StringBuilder definition = new StringBuilder(text.length());
+        for (int j = 0; j < text.length(); j++) {
+            char c = text.charAt(j);
+            if (c == '\n') {
+                definition.append(' ');
+            } else if (c != '\r' || j + 1 == text.length()
+                    || text.charAt(j + 1) != '\n') {
+                definition.append(c);
+            }
+        }
+        return definition.toString().trim();
+    }
+
+    /**
+     * Reads the definition of record {@code i} back from the file.
+     *
+     * @param i
+     *            index of the record in file order
+     * @return the definition of record {@code i}
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     * @requires 0 <= i < size
+     */
+    public String definition(int i) {
+        assert 0 <= i && i < this.terms.length : "Violation of: 0 <= i < size";
+
+        try (FileChannel channel = FileChannel.open(Paths.get(this.filePath),
+                StandardOpenOption.READ)) {
+            return decodeDefinition(this.readDefinition(channel, i, null));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + this.filePath, e);
+        }
+    }
+
+    /**
+     * Second pass: writes the index page and the page of every term to
+     * {@code pages}, reading one definition at a time from the file.
+     *
+     * @param pages
+     *            the destination of the pages
+     * @throws UncheckedIOException
+     *             if the file cannot be read
+     * @ensures [pages has the same pages as a run of
+     *          {@link Glossary#main(String[])} on the file]
+     */
+    public void write(PageWriter pages) {
+        assert pages != null : "Violation of: pages is not null";
+
+        //the terms are all the linker and the index page need
+        TermLinker linker = new TermLinker(this.terms, SeparatorTable.DEFAULT);
+        String[] sortedTerms = this.terms();
+        Arrays.sort(sortedTerms, new Glossary.StringLT());
+        PageBuffer page = PageBuffer.forThread();
+        Glossary.renderIndexPage(sortedTerms, linker, page);
+        pages.write("index.html", page);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(this.filePath),
+                StandardOpenOption.READ)) {
+            ByteBuffer buffer = null;
+            for (int i = 0; i < this.terms.length; i++) {
+                buffer = this.readDefinition(channel, i, buffer);
+                page.clear();
+                Glossary.renderTermPage(this.terms[i], decodeDefinition(buffer),
+                        linker, page);
+                pages.write(this.terms[i] + ".html", page);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + this.filePath, e);
+        }
+    }
+
+    /**
+     * Records collected by {@link StreamingGlossary#scan(String)}, fed one line
+     * at a time.
+     */
+    private static final class Records {
+
+        /**
+         * Terms in file order.
+         */
+        private String[] terms = new String[16];
+
+        /**
+         * Byte offset of the definition of each term.
+         */
+        private long[] starts = new long[16];
+
+        /**
+         * Byte length of the definition of each term.
+         */
+        private int[] lengths = new int[16];
+
+        /**
+         * Number of records collected.
+         */
+        private int count = 0;
+
+        /**
+         * Bytes of the current line while a term is expected.
+         */
+        private byte[] term = new byte[64];
+
+        /**
+         * Number of bytes in {@code term}.
+         */
+        private int termLength = 0;
+
+        /**
+         * Whether the lines are part of a definition.
+         */
+        private boolean inDefinition = false;
+
+        /**
+         * Byte offset of the current definition, -1 before its first line.
+         */
+        private long definitionStart = -1;
+
+        /**
+         * Byte offset past the last line of the current definition.
+         */
+        private long definitionEnd = -1;
+
+        /**
+         * Adds a byte of the current line (other than its \n).
+         *
+         * @param b
+         *            the byte
+         */
+        void lineByte(byte b) {
+            if (!this.inDefinition) {
+                if (this.termLength == this.term.length) {
+                    this.term = Arrays.copyOf(this.term, this.termLength * 2);
+                }
+                this.term[this.termLength] = b;
+                this.termLength++;
+            }
+        }
+
+        /**
+         * Ends the current line, which holds bytes [start, end) of the file.
+         *
+         * @param start
+         *            byte offset of the line
+         * @param end
+         *            byte offset past the line, without its line break
+         */
+        void line(long start, long end) {
+            if (!this.inDefinition) {
+                //a term line, stray empty lines are skipped
+                if (end > start) {
+                    this.inDefinition = true;
+                    this.definitionStart = -1;
+                } else {
+                    this.termLength = 0;
+                }
+            } else if (end == start) {
+                //the empty line ends the record
+                if (this.count == this.terms.length) {
+                    this.terms = Arrays.copyOf(this.terms, this.count * 2);
+                    this.starts = Arrays.copyOf(this.starts, this.count * 2);
+                    this.lengths = Arrays.copyOf(this.lengths, this.count * 2);
+                }
+                this.terms[this.count] = decodeTerm(this.term, this.termLength);
+                if (this.definitionStart >= 0) {
+                    this.starts[this.count] = this.definitionStart;
+                    this.lengths[this.count] = (int) (this.definitionEnd
+                            - this.definitionStart);
+                }
+                this.count++;
+                this.termLength = 0;
+                this.inDefinition = false;
+            } else {
+                if (this.definitionStart < 0) {
+                    this.definitionStart = start;
+                }
+                this.definitionEnd = end;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,242 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact lookup from the terms of a glossary to dense integer ids, an open
+ * addressing hash table of ids over an array of the terms. A single probe with
+ * a range of a definition answers whether that word is a term and which one,
+ * without cutting the word out of the definition. The table only holds
+ * references to the term strings, never copies of them nor their hyperlink
+ * tags, which are written on the fly by {@link #appendAnchor(int, PageBuffer)}.
+ */
+public final class TermIndex {
+
+    /**
+     * Returned by the lookups for words that are not terms.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * Encoded start of a hyperlink tag to a term page, up to the file name.
+     */
+    private static final byte[] ANCHOR_START = "<a href=\""
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Encoded part of a hyperlink tag between the term and its anchor text.
+     */
+    private static final byte[] ANCHOR_MIDDLE = ".html\">"
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Encoded end of a hyperlink tag.
+     */
+    private static final byte[] ANCHOR_END = "</a>"
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The terms, terms[id] is the term with that id.
+     */
+    private final String[] terms;
+
+    /**
+     * The hash table, each slot holds an id plus one, 0 for an empty slot.
+     */
+    private final int[] slots;
+
+    /**
+     * slots.length - 1, slots.length being a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Builds the index of {@code terms}, the id of each term being its
+     * position in the array.
+     *
+     * @param terms
+     *            the distinct terms
+     * @requires the entries of terms are distinct
+     * @ensures [term(i) = terms[i] and id(terms[i]) = i]
+     */
+    public TermIndex(String[] terms) {
+        assert terms != null : "Violation of: terms is not null";
+
+        this.terms = terms.clone();
+        //keep the table at most half full so that probe sequences stay short
+        this.slots = new int[Integer.highestOneBit(Math.max(terms.length, 1) * 2) * 2];
+        this.mask = this.slots.length - 1;
+        for (int id = 0; id < terms.length; id++) {
+            String term = terms[id];
+            int slot = spread(term.hashCode()) & this.mask;
+            while (this.slots[slot] != 0) {
+                assert !term.equals(this.terms[this.slots[slot] - 1])
+                        : "Violation of: the entries of terms are distinct";
+                slot = (slot + 1) & this.mask;
+            }
+            this.slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Restores the index of {@code terms} from the hash table {@code slots}
+     * built by {@link #TermIndex(String[])} for the same terms, e.g. as saved
+     * by {@link GlossarySnapshot}, without hashing the terms again.
+     *
+     * @param terms
+     *            the distinct terms
+     * @param slots
+     *            the hash table of the index of terms, see {@link #slots()}
+     * @requires slots = [the slots of new TermIndex(terms)]
+     * @ensures [term(i) = terms[i] and id(terms[i]) = i]
+     */
+    TermIndex(String[] terms, int[] slots) {
+        assert terms != null : "Violation of: terms is not null";
+        assert Integer.bitCount(slots.length) == 1 : "Violation of: "
+                + "|slots| is a power of two";
+
+        this.terms = terms.clone();
+        this.slots = slots;
+        this.mask = slots.length - 1;
+    }
+
+    /**
+     * Spreads the high bits of a hash code over the low bits the table
+     * indexes with.
+     *
+     * @param hash
+     *            the hash code
+     * @return the spread hash code
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns the number of terms.
+     *
+     * @return the number of terms
+     */
+    public int size() {
+        return this.terms.length;
+    }
+
+    /**
+     * Returns the hash table of this, each slot holding an id plus one or 0.
+     * The array is not copied and must not be modified.
+     *
+     * @return the slots of the hash table
+     */
+    int[] slots() {
+        return this.slots;
+    }
+
+    /**
+     * Returns the term with id {@code id}.
+     *
+     * @param id
+     *            the id of the term
+     * @return the term
+     * @requires 0 <= id < size
+     */
+    public String term(int id) {
+        return this.terms[id];
+    }
+
+    /**
+     * Returns the id of the term text[start, end), or {@link #NOT_FOUND} if
+     * that word is not a term.
+     *
+     * @param text
+     *            the text holding the word
+     * @param start
+     *            index of the first character of the word
+     * @param end
+     *            index past the last character of the word
+     * @return the id of the word, or NOT_FOUND
+     * @requires 0 <= start <= end <= |text|
+     */
+    public int id(String text, int start, int end) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= start && start <= end : "Violation of: 0 <= start <= end";
+        assert end <= text.length() : "Violation of: end <= |text|";
+
+        //same hash code as text.substring(start, end).hashCode()
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int length = end - start;
+        int slot = spread(hash) & this.mask;
+        int id = this.slots[slot] - 1;
+        while (id != NOT_FOUND) {
+            String term = this.terms[id];
+            if (term.length() == length && term.hashCode() == hash
+                    && term.regionMatches(0, text, start, length)) {
+                return id;
+            }
+            slot = (slot + 1) & this.mask;
+            id = this.slots[slot] - 1;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Returns the id of {@code word}, or {@link #NOT_FOUND} if it is not a
+     * term.
+     *
+     * @param word
+     *            the word
+     * @return the id of the word, or NOT_FOUND
+     */
+    public int id(String word) {
+        return this.id(word, 0, word.length());
+    }
+
+    /**
+     * Appends the HTML hyperlink tag to the detailed page of the term with id
+     * {@code id}, the same tag as {@link Glossary#termLink(String)}.
+     *
+     * @param id
+     *            the id of the term
+     * @param out
+     *            the buffer the tag is appended to
+     * @requires 0 <= id < size
+     * @update out
+     * @ensures out = #out * [the hyperlink tag to the page of term(id)]
+     */
+    public void appendAnchor(int id, PageBuffer out) {
+        assert out != null : "Violation of: out is not null";
+
+        String term = this.terms[id];
+        out.append(ANCHOR_START).append(term).append(ANCHOR_MIDDLE).append(term)
+                .append(ANCHOR_END);
+    }
+
+    /**
+     * Appends the HTML hyperlink tag to the detailed page of the term with id
+     * {@code id} whose text is the word text[start, end), e.g. a plural of
+     * the term.
+     *
+     * @param id
+     *            the id of the term
+     * @param text
+     *            the text holding the word
+     * @param start
+     *            index of the first character of the word
+     * @param end
+     *            index past the last character of the word
+     * @param out
+     *            the buffer the tag is appended to
+     * @requires 0 <= id < size and 0 <= start <= end <= |text|
+     * @update out
+     * @ensures out = #out * [the hyperlink tag to the page of term(id), with
+     *          text[start, end) as its text]
+     */
+    public void appendAnchor(int id, String text, int start, int end,
+            PageBuffer out) {
+        assert out != null : "Violation of: out is not null";
+
+        out.append(ANCHOR_START).append(this.terms[id]).append(ANCHOR_MIDDLE)
+                .append(text, start, end).append(ANCHOR_END);
+    }
+
+}
@@ -0,0 +1,371 @@
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+import components.map.Map;
+
+/**
+ * Adds hyperlinks to the glossary terms found in a definition. The term lookup
+ * is precompiled once per glossary into a {@link TermIndex}, so linking a
+ * definition tokenizes it a single time, probes the index once per word and
+ * costs time linear in its length, no matter how many terms it contains or how
+ * often they repeat.
+ */
+public final class TermLinker {
+
+    /**
+     * Term to id lookup, also writing the hyperlink tags of the terms.
+     */
+    private final TermIndex index;
+
+    /**
+     * Term lookup ignoring case and plural endings, null to only link the
+     * words that are terms exactly.
+     */
+    private final FoldedTermIndex folded;
+
+    /**
+     * HTML hyperlink tag to the index page.
+     */
+    private final String indexLink;
+
+    /**
+     * Characters that separate the words of a definition.
+     */
+    private final SeparatorTable separators;
+
+    /**
+     * Counts the tokens scanned and the links emitted, null for no counting.
+     */
+    private final RunProfile profile;
+
+    /**
+     * Builds the term lookup of a glossary, splitting words at
+     * {@link SeparatorTable#DEFAULT}.
+     *
+     * @param glossary
+     *            the term to definition
+     * @ensures [this links exactly the terms of {@code glossary}]
+     */
+    public TermLinker(Map<String, String> glossary) {
+        this(glossary, SeparatorTable.DEFAULT);
+    }
+
+    /**
+     * Builds the term lookup of a glossary.
+     *
+     * @param glossary
+     *            the term to definition
+     * @param separators
+     *            the characters that separate the words of a definition
+     * @ensures [this links exactly the terms of {@code glossary}]
+     */
+    public TermLinker(Map<String, String> glossary, SeparatorTable separators) {
+        this(keys(glossary), separators);
+    }
+
+    /**
+     * Builds the term lookup of a glossary model, sharing its term index so
+     * that the ids of the linker are the ids of the model, and splitting words
+     * at {@link SeparatorTable#DEFAULT}.
+     *
+     * @param model
+     *            the glossary
+     * @ensures [this links exactly the terms of {@code model}]
+     */
+    public TermLinker(GlossaryModel model) {
+        this(model, null);
+    }
+
+    /**
+     * Builds the term lookup of a glossary model as
+     * {@link #TermLinker(GlossaryModel)} does, counting the tokens scanned
+     * and the links emitted by {@link #appendLinked} in {@code profile}.
+     *
+     * @param model
+     *            the glossary
+     * @param profile
+     *            the profile of the run, null for no counting
+     * @ensures [this links exactly the terms of {@code model}]
+     */
+    public TermLinker(GlossaryModel model, RunProfile profile) {
+        this(model, profile, false);
+    }
+
+    /**
+     * Builds the term lookup of a glossary model as
+     * {@link #TermLinker(GlossaryModel, RunProfile)} does, also linking the
+     * words that are terms up to case and plural endings if {@code loose},
+     * see {@link FoldedTermIndex}.
+     *
+     * @param model
+     *            the glossary
+     * @param profile
+     *            the profile of the run, null for no counting
+     * @param loose
+     *            whether case variants and plurals of the terms are linked
+     * @ensures [this links the terms of {@code model}, and their case
+     *          variants and plurals if loose]
+     */
+    public TermLinker(GlossaryModel model, RunProfile profile, boolean loose) {
+        assert model != null : "Violation of: model is not null";
+
+        this.index = model.index();
+        this.folded = loose ? new FoldedTermIndex(this.index) : null;
+        this.indexLink = Glossary.INDEX_LINK;
+        this.separators = SeparatorTable.DEFAULT;
+        this.profile = profile;
+    }
+
+    /**
+     * Builds the term lookup of the glossary with the given terms, linking
+     * them as {@link Glossary#createLinkMap(Map)} does.
+     *
+     * @param terms
+     *            the terms of the glossary
+     * @param separators
+     *            the characters that separate the words of a definition
+     * @requires the entries of terms are distinct
+     * @ensures [this links exactly the entries of {@code terms}]
+     */
+    public TermLinker(String[] terms, SeparatorTable separators) {
+        this(terms, separators, false);
+    }
+
+    /**
+     * Builds the term lookup of the glossary with the given terms as
+     * {@link #TermLinker(String[], SeparatorTable)} does, also linking the
+     * words that are terms up to case and plural endings if {@code loose}.
+     *
+     * @param terms
+     *            the terms of the glossary
+     * @param separators
+     *            the characters that separate the words of a definition
+     * @param loose
+     *            whether case variants and plurals of the terms are linked
+     * @requires the entries of terms are distinct
+     * @ensures [this links the entries of {@code terms}, and their case
+     *          variants and plurals if loose]
+     */
+    public TermLinker(String[] terms, SeparatorTable separators, boolean loose) {
+        assert terms != null : "Violation of: terms is not null";
+        assert separators != null : "Violation of: separators is not null";
+
+        this.index = new TermIndex(terms);
+        this.folded = loose ? new FoldedTermIndex(this.index) : null;
+        this.indexLink = Glossary.INDEX_LINK;
+        this.separators = separators;
+        this.profile = null;
+    }
+
+    /**
+     * Returns the terms of {@code glossary}.
+     *
+     * @param glossary
+     *            the term to definition
+     * @return the keys of glossary, in iteration order
+     */
+    private static String[] keys(Map<String, String> glossary) {
+        assert glossary != null : "Violation of: glossary is not null";
+
+        String[] terms = new String[glossary.size()];
+        int i = 0;
+        for (Map.Pair<String, String> pair : glossary) {
+            terms[i] = pair.key();
+            i++;
+        }
+        return terms;
+    }
+
+    /**
+     * Appends the HTML hyperlink tag to the detailed page of {@code term}.
+     *
+     * @param term
+     *            the term
+     * @param out
+     *            the buffer the tag is appended to
+     * @requires {@code term} is a term of this
+     * @update out
+     * @ensures out = #out * [the hyperlink tag to the page of term]
+     */
+    public void appendAnchor(String term, PageBuffer out) {
+        int id = this.index.id(term);
+        assert id != TermIndex.NOT_FOUND : "Violation of: term is a term of this";
+
+        this.index.appendAnchor(id, out);
+    }
+
+    /**
+     * Returns the HTML hyperlink tag to the index page.
+     *
+     * @return the HTML hyperlink tag to the index page
+     */
+    public String indexLink() {
+        return this.indexLink;
+    }
+
+    /**
+     * Returns whether this also links the case variants and plurals of the
+     * terms, see {@link FoldedTermIndex}.
+     *
+     * @return whether this links loosely
+     */
+    public boolean loose() {
+        return this.folded != null;
+    }
+
+    /**
+     * Returns {@code definition} with every word that is a glossary term
+     * replaced by the HTML hyperlink to its detailed page.
+     *
+     * @param definition
+     *            the string whose words need to be add link to
+     * @return {@code definition} with hyperlinks added to its terms
+     * @ensures link = [definition with every term replaced by its hyperlink]
+     */
+    public String link(String definition) {
+        assert definition != null : "Violation of: definition is not null";
+
+        PageBuffer result = new PageBuffer();
+        this.appendLinked(definition, result);
+        return result.toString();
+    }
+
+    /**
+     * Appends {@code definition} to {@code out}, replacing every word that is
+     * a glossary term with the HTML hyperlink to its detailed page.
+     *
+     * @param definition
+     *            the string whose words need to be add link to
+     * @param out
+     *            the buffer the linked definition is appended to
+     * @update out
+     * @ensures out = #out * [definition with every term replaced by its
+     *          hyperlink]
+     */
+    public void appendLinked(String definition, PageBuffer out) {
+        assert definition != null : "Violation of: definition is not null";
+
+        this.appendLinked(definition, 0, definition.length(), out);
+    }
+
+    /**
+     * Appends text[start, end) to {@code out}, replacing every word that is a
+     * glossary term with the HTML hyperlink to its detailed page. Words end at
+     * {@code end} even if the text goes on, so a definition can be linked in
+     * place inside the definition arena of a {@link GlossaryModel}.
+     *
+     * @param text
+     *            the text holding the definition
+     * @param start
+     *            index of the first character of the definition
+     * @param end
+     *            index past the last character of the definition
+     * @param out
+     *            the buffer the linked definition is appended to
+     * @requires 0 <= start <= end <= |text|
+     * @update out
+     * @ensures out = #out * [text[start, end) with every term replaced by its
+     *          hyperlink]
+     */
+    public void appendLinked(String text, int start, int end, PageBuffer out) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= start && start <= end : "Violation of: 0 <= start <= end";
+        assert end <= text.length() : "Violation of: end <= |text|";
+        assert out != null : "Violation of: out is not null";
+
+        int position = start;
+        int tokens = 0;
+        int links = 0;
+        while (position < end) {
+            //find the end of the word or separator string starting at position
+            boolean isWord = !this.separators.isSeparator(text.charAt(position));
+            int next = Glossary.nextWordOrSeparator(text, position, end,
+                    this.separators);
+
+            //only words can be terms, separators are copied as they are
+            int id = TermIndex.NOT_FOUND;
+            boolean exact = true;
+            if (isWord) {
+                id = this.index.id(text, position, next);
+                if (id == TermIndex.NOT_FOUND && this.folded != null) {
+                    id = this.folded.id(text, position, next);
+                    exact = false;
+                }
+            }
+            if (id == TermIndex.NOT_FOUND) {
+                out.append(text, position, next);
+            } else if (exact) {
+                this.index.appendAnchor(id, out);
+                links++;
+            } else {
+                //keep the word as it is written as the text of the link
+                this.index.appendAnchor(id, text, position, next, out);
+                links++;
+            }
+            tokens++;
+            position = next;
+        }
+        if (this.profile != null) {
+            this.profile.linked(tokens, links);
+        }
+    }
+
+    /**
+     * Performs {@code action} on the id of every word of text[start, end)
+     * that is a glossary term, in text order, repeats included. The ids are
+     * the ids of the {@link TermIndex} of this.
+     *
+     * @param text
+     *            the text holding the definition
+     * @param start
+     *            index of the first character of the definition
+     * @param end
+     *            index past the last character of the definition
+     * @param action
+     *            the action performed on the id of each term found
+     * @requires 0 <= start <= end <= |text|
+     */
+    public void forEachLinked(String text, int start, int end, IntConsumer action) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= start && start <= end : "Violation of: 0 <= start <= end";
+        assert end <= text.length() : "Violation of: end <= |text|";
+        assert action != null : "Violation of: action is not null";
+
+        int position = start;
+        while (position < end) {
+            boolean isWord = !this.separators.isSeparator(text.charAt(position));
+            int next = Glossary.nextWordOrSeparator(text, position, end,
+                    this.separators);
+            if (isWord) {
+                int id = this.index.id(text, position, next);
+                if (id == TermIndex.NOT_FOUND && this.folded != null) {
+                    id = this.folded.id(text, position, next);
+                }
+                if (id != TermIndex.NOT_FOUND) {
+                    action.accept(id);
+                }
+            }
+            position = next;
+        }
+    }
+
+    /**
+     * Returns the distinct terms that {@link #link(String)} would link in
+     * {@code definition}, in alphabetical order.
+     *
+     * @param definition
+     *            the definition to scan
+     * @return the terms linked from {@code definition}, sorted and distinct
+     * @ensures linkedTerms = [the sorted distinct words of definition that are
+     *          terms of this]
+     */
+    public String[] linkedTerms(String definition) {
+        assert definition != null : "Violation of: definition is not null";
+
+        TreeSet<String> linked = new TreeSet<>();
+        this.forEachLinked(definition, 0, definition.length(),
+                id -> linked.add(this.index.term(id)));
+        return linked.toArray(new String[linked.size()]);
+    }
+
+}
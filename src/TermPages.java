@@ -0,0 +1,320 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes the detailed page of every term of a glossary, sequentially or split
+ * across a pool of worker threads. Workers only read the immutable
+ * {@link GlossaryModel} and {@link TermLinker} and address the terms by id, so
+ * the pages are the same whatever the number of workers.
+ */
+public final class TermPages {
+
+    /**
+     * Number of pages below which a task writes its pages itself instead of
+     * splitting them with another worker.
+     */
+    private static final int THRESHOLD = 64;
+
+    /**
+     * Private constructor so this utility class cannot be instantiated.
+     */
+    private TermPages() {
+    }
+
+    /**
+     * Writes the page of every term in {@code model} to {@code pages} as
+     * "term.html". Each worker renders into its own reused buffer and hands
+     * every page over whole.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing pages
+     * @requires {@code linker} knows the terms of {@code model} and workers > 0
+     * @ensures [pages has the page of every term in model]
+     */
+    public static void write(GlossaryModel model, TermLinker linker, PageWriter pages,
+            int workers) {
+        write(model, linker, null, pages, workers);
+    }
+
+    /**
+     * Writes the page of every term in {@code model} to {@code pages} as
+     * "term.html", with "Referenced by" links if {@code backlinks} is not
+     * null.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing pages
+     * @requires {@code linker} knows the terms of {@code model},
+     *           {@code backlinks} is null or built from {@code model} and
+     *           workers > 0
+     * @ensures [pages has the page of every term in model]
+     */
+    public static void write(GlossaryModel model, TermLinker linker,
+            ReferenceGraph backlinks, PageWriter pages, int workers) {
+        write(model, linker, backlinks, null, pages, workers);
+    }
+
+    /**
+     * Writes the page of the terms of {@code model} with the given ids to
+     * {@code pages} as "term.html", with "Referenced by" links if
+     * {@code backlinks} is not null.
+     *
+     * @param model
+     *            the glossary
+     * @param ids
+     *            the ids of the terms whose page is written
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing pages
+     * @requires every entry of ids is in [0, model.size), {@code linker} knows
+     *           the terms of {@code model}, {@code backlinks} is null or built
+     *           from {@code model} and workers > 0
+     * @ensures [pages has the page of every term with an id in ids]
+     */
+    public static void write(GlossaryModel model, int[] ids, TermLinker linker,
+            ReferenceGraph backlinks, PageWriter pages, int workers) {
+        write(model, ids, linker, backlinks, null, pages, workers);
+    }
+
+    /**
+     * Writes the page of every term in {@code model} to {@code pages} as
+     * "term.html", in the layout of {@code template} if not null.
+     *
+     * @param model
+     *            the glossary
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param template
+     *            the compiled layout of the term pages, null for the built-in
+     *            one
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing pages
+     * @requires {@code linker} knows the terms of {@code model},
+     *           {@code backlinks} is null or built from {@code model} and
+     *           workers > 0
+     * @ensures [pages has the page of every term in model]
+     */
+    public static void write(GlossaryModel model, TermLinker linker,
+            ReferenceGraph backlinks, PageTemplate template, PageWriter pages,
+            int workers) {
+        assert model != null : "Violation of: model is not null";
+
+        int[] ids = new int[model.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = id;
+        }
+        write(model, ids, linker, backlinks, template, pages, workers);
+    }
+
+    /**
+     * Writes the page of the terms of {@code model} with the given ids to
+     * {@code pages} as "term.html", in the layout of {@code template} if not
+     * null.
+     *
+     * @param model
+     *            the glossary
+     * @param ids
+     *            the ids of the terms whose page is written
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param template
+     *            the compiled layout of the term pages, null for the built-in
+     *            one
+     * @param pages
+     *            the destination of the pages, safe to use from
+     *            {@code workers} threads
+     * @param workers
+     *            the number of threads writing pages
+     * @requires every entry of ids is in [0, model.size), {@code linker} knows
+     *           the terms of {@code model}, {@code backlinks} is null or built
+     *           from {@code model} and workers > 0
+     * @ensures [pages has the page of every term with an id in ids]
+     */
+    public static void write(GlossaryModel model, int[] ids, TermLinker linker,
+            ReferenceGraph backlinks, PageTemplate template, PageWriter pages,
+            int workers) {
+        assert model != null : "Violation of: model is not null";
+        assert ids != null : "Violation of: ids is not null";
+        assert linker != null : "Violation of: linker is not null";
+        assert pages != null : "Violation of: pages is not null";
+        assert workers > 0 : "Violation of: workers > 0";
+
+        if (workers == 1) {
+            //on the calling thread only: computing the task would fork it
+            for (int id : ids) {
+                writePage(model, id, linker, backlinks, template, pages);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(workers);
+            try {
+                pool.invoke(new WriteTask(model, ids, linker, backlinks, template,
+                        pages, 0, ids.length));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Writes the page of one term.
+     *
+     * @param model
+     *            the glossary
+     * @param id
+     *            the id of the term
+     * @param linker
+     *            the term linker built once for the whole glossary
+     * @param backlinks
+     *            the reference graph of {@code model}, null for no backlinks
+     * @param template
+     *            the compiled layout of the page, null for the built-in one
+     * @param pages
+     *            the destination of the page
+     */
+    private static void writePage(GlossaryModel model, int id, TermLinker linker,
+            ReferenceGraph backlinks, PageTemplate template, PageWriter pages) {
+        PageBuffer page = PageBuffer.forThread();
+        if (template == null) {
+            Glossary.renderTermPage(model, id, linker, backlinks, page);
+        } else {
+            Glossary.renderTermPage(template, model, id, linker, backlinks, page);
+        }
+        pages.write(model.term(id) + ".html", page);
+    }
+
+    /**
+     * Task writing the pages of the terms in a range of the ids, halving the
+     * range between workers while it is large.
+     */
+    private static final class WriteTask extends RecursiveAction {
+
+        /**
+         * Serialization id.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The glossary.
+         */
+        private final transient GlossaryModel model;
+
+        /**
+         * Ids of the terms whose page is written.
+         */
+        private final int[] ids;
+
+        /**
+         * The term linker.
+         */
+        private final transient TermLinker linker;
+
+        /**
+         * The reference graph, null for no backlinks.
+         */
+        private final transient ReferenceGraph backlinks;
+
+        /**
+         * The compiled layout of the pages, null for the built-in one.
+         */
+        private final transient PageTemplate template;
+
+        /**
+         * The destination of the pages.
+         */
+        private final transient PageWriter pages;
+
+        /**
+         * First index of the range.
+         */
+        private final int from;
+
+        /**
+         * Index past the end of the range.
+         */
+        private final int to;
+
+        /**
+         * Creates the task writing the pages of the terms with ids ids[from,
+         * to).
+         *
+         * @param model
+         *            the glossary
+         * @param ids
+         *            ids of the terms whose page is written
+         * @param linker
+         *            the term linker
+         * @param backlinks
+         *            the reference graph, null for no backlinks
+         * @param template
+         *            the compiled layout of the pages, null for the built-in
+         *            one
+         * @param pages
+         *            the destination of the pages
+         * @param from
+         *            first index of the range
+         * @param to
+         *            index past the end of the range
+         */
+        WriteTask(GlossaryModel model, int[] ids, TermLinker linker,
+                ReferenceGraph backlinks, PageTemplate template, PageWriter pages,
+                int from, int to) {
+            this.model = model;
+            this.ids = ids;
+            this.linker = linker;
+            this.backlinks = backlinks;
+            this.template = template;
+            this.pages = pages;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= THRESHOLD) {
+                for (int i = this.from; i < this.to; i++) {
+                    writePage(this.model, this.ids[i], this.linker, this.backlinks,
+                            this.template, this.pages);
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(
+                        new WriteTask(this.model, this.ids, this.linker,
+                                this.backlinks, this.template, this.pages, this.from,
+                                middle),
+                        new WriteTask(this.model, this.ids, this.linker,
+                                this.backlinks, this.template, this.pages, middle,
+                                this.to));
+            }
+        }
+
+    }
+
+}
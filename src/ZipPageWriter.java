@@ -0,0 +1,120 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes all the pages into a single ZIP archive instead of one file each. The
+ * pages are entries at the root of the archive, so the relative
+ * {@code href="term.html"} links between them keep resolving when the archive
+ * is served. Entries are appended one after another as pages arrive; several
+ * threads may write pages at once.
+ */
+public final class ZipPageWriter implements PageWriter, Closeable {
+
+    /**
+     * The archive being written.
+     */
+    private final ZipOutputStream zip;
+
+    /**
+     * The path of the archive.
+     */
+    private final String archivePath;
+
+    /**
+     * Whether entries are stored instead of deflated.
+     */
+    private final boolean stored;
+
+    /**
+     * Checksum of the stored entries, reused from entry to entry.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Creates the archive at {@code archivePath}, replacing any existing file.
+     *
+     * @param archivePath
+     *            the path of the archive
+     * @param stored
+     *            whether entries are stored instead of deflated
+     * @throws UncheckedIOException
+     *             if the archive cannot be created
+     */
+    public ZipPageWriter(String archivePath, boolean stored) {
+        assert archivePath != null : "Violation of: archivePath is not null";
+
+        try {
+            this.zip = new ZipOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(archivePath)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create " + archivePath, e);
+        }
+        this.archivePath = archivePath;
+        this.stored = stored;
+        if (stored) {
+            this.zip.setMethod(ZipOutputStream.STORED);
+        }
+    }
+
+    @Override
+    public synchronized void write(String name, PageBuffer page) {
+        assert name != null : "Violation of: name is not null";
+        assert page != null : "Violation of: page is not null";
+
+        ZipEntry entry = new ZipEntry(name);
+        if (this.stored) {
+            //stored entries need their size and checksum up front
+            this.crc.reset();
+            this.crc.update(page.asByteBuffer());
+            entry.setSize(page.length());
+            entry.setCompressedSize(page.length());
+            entry.setCrc(this.crc.getValue());
+        }
+        try {
+            this.zip.putNextEntry(entry);
+            page.writeTo(this.zip);
+            this.zip.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write " + name, e);
+        }
+    }
+
+    /**
+     * Writes the central directory and closes the archive.
+     *
+     * @throws UncheckedIOException
+     *             if the archive cannot be completed
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            this.zip.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot complete the archive", e);
+        }
+    }
+
+    /**
+     * Closes the archive and deletes it, after a failed run, so that no
+     * archive missing pages is left behind. Never throws, so that the failure
+     * of the run is the one reported.
+     *
+     * @ensures [the archive does not exist, unless it cannot be deleted]
+     */
+    public synchronized void discard() {
+        try {
+            this.zip.close();
+        } catch (IOException | RuntimeException e) {
+            //the archive is deleted anyway
+        }
+        new File(this.archivePath).delete();
+    }
+
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test methods in FoldedTermIndex.
+ */
+public class TestFoldedTermIndex {
+
+    /**
+     * The index of a few terms.
+     *
+     * @return the folded index of the terms
+     */
+    private static FoldedTermIndex index() {
+        return new FoldedTermIndex(new TermIndex(new String[] { "glossary", "term",
+            "box", "Word", "caf\u00e9" }));
+    }
+
+    /**
+     * Test id finds the terms whatever their case.
+     */
+    @Test
+    public void testIdCase() {
+        FoldedTermIndex index = index();
+
+        assertEquals(0, index.id("the Glossary.", 4, 12));
+        assertEquals(1, index.id("TERM", 0, 4));
+        assertEquals(3, index.id("word", 0, 4));
+        assertEquals(4, index.id("CAF\u00c9", 0, 4));
+
+    }
+
+    /**
+     * Test id finds the terms from their plurals.
+     */
+    @Test
+    public void testIdPlural() {
+        FoldedTermIndex index = index();
+
+        assertEquals(1, index.id("Terms", 0, 5));
+        assertEquals(2, index.id("boxes", 0, 5));
+        assertEquals(0, index.id("glossaries", 0, 10));
+        assertEquals(0, index.id("GLOSSARIES", 0, 10));
+
+    }
+
+    /**
+     * Test id does not find other words.
+     */
+    @Test
+    public void testIdNotFound() {
+        FoldedTermIndex index = index();
+
+        assertEquals(TermIndex.NOT_FOUND, index.id("terminal", 0, 8));
+        assertEquals(TermIndex.NOT_FOUND, index.id("ter", 0, 3));
+        assertEquals(TermIndex.NOT_FOUND, index.id("termss", 0, 6));
+        assertEquals(TermIndex.NOT_FOUND, index.id("glossari", 0, 8));
+        assertEquals(TermIndex.NOT_FOUND, index.id("", 0, 0));
+
+    }
+
+    /**
+     * Test the term with the smallest id is found among terms that only
+     * differ by case.
+     */
+    @Test
+    public void testIdCaseVariants() {
+        FoldedTermIndex index = new FoldedTermIndex(
+                new TermIndex(new String[] { "Book", "book" }));
+
+        assertEquals(0, index.id("BOOKS", 0, 5));
+
+    }
+
+    /**
+     * Test a loose linker links case variants and plurals with the word as
+     * the text of the link, and exact terms as before.
+     */
+    @Test
+    public void testLinkLoose() {
+        GlossaryModel model = GlossaryModel.read("data/terms.txt");
+        TermLinker linker = new TermLinker(model, null, true);
+
+        assertEquals("<a href=\"glossary.html\">Glossary</a> of "
+                + "<a href=\"term.html\">terms</a> and a "
+                + "<a href=\"word.html\">word</a>",
+                linker.link("Glossary of terms and a word"));
+        assertEquals("Glossary of terms", new TermLinker(model).link(
+                "Glossary of terms"));
+
+    }
+
+}
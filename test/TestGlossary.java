@@ -562,4 +562,60 @@ public class TestGlossary {
 
     }
 
+    /**
+     * Test the offset returning nextWordOrSeparator method gives the same
+     * token boundaries as the substring returning one.
+     */
+    @Test
+    public void testNextWordOrSeparator5() {
+        String text = "\"Because Mary and Samantha arrived at the bus station before "
+                + "noon, I did not see them at the station\".";
+        String separatorInString = "\" ,.";
+        Set<Character> separator = new Set1L<>();
+        Glossary.generateElements(separatorInString, separator);
+        SeparatorTable table = new SeparatorTable(separatorInString);
+
+        int position = 0;
+        while (position < text.length()) {
+            String token = Glossary.nextWordOrSeparator(text, position, separator);
+            int end = Glossary.nextWordOrSeparator(text, position, table);
+            assertEquals(token, text.substring(position, end));
+            position = end;
+        }
+
+    }
+
+    /**
+     * Test method sortedTerms with a glossary of multiple terms.
+     */
+    @Test
+    public void testSortedTerms() {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        Map<String, String> glossaryExpected = Glossary.createGlossary("data/terms.txt");
+        String[] expected = { "book", "definition", "glossary", "language", "meaning",
+            "term", "word" };
+
+        String[] actual = Glossary.sortedTerms(glossary);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i]);
+        }
+        assertEquals(glossaryExpected, glossary);
+
+    }
+
+    /**
+     * Test method sortedTerms with a glossary of one term.
+     */
+    @Test
+    public void testSortedTerms2() {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("term", "a word whose definition is in a glossary");
+
+        String[] actual = Glossary.sortedTerms(glossary);
+        assertEquals(1, actual.length);
+        assertEquals("term", actual[0]);
+
+    }
+
 }
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test methods in GlossaryBatch.
+ */
+public class TestGlossaryBatch {
+
+    /**
+     * Test readJobs skips empty lines and comments and splits the others on
+     * the tab.
+     *
+     * @throws IOException
+     *             if the job file cannot be created
+     */
+    @Test
+    public void testReadJobs() throws IOException {
+        Path jobsFile = Files.createTempFile("jobs", ".txt");
+        Files.write(jobsFile, ("# the books\nbooks/a b.txt\tsite/a\n\n"
+                + "books/c.txt\tsite/c\n").getBytes(StandardCharsets.UTF_8));
+
+        List<String[]> jobs = GlossaryBatch.readJobs(jobsFile.toString());
+
+        assertEquals(2, jobs.size());
+        assertEquals("books/a b.txt", jobs.get(0)[0]);
+        assertEquals("site/a", jobs.get(0)[1]);
+        assertEquals("site/c", jobs.get(1)[1]);
+
+    }
+
+    /**
+     * Test run writes the pages of every job into its own new folder on
+     * several workers, and a failing job does not stop the others.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    @Test
+    public void testRun() throws IOException {
+        Path site = Files.createTempDirectory("batch");
+        List<String[]> jobs = List.of(
+                new String[] {"data/terms.txt", site.resolve("a").toString() },
+                new String[] {"data/missing.txt", site.resolve("b").toString() },
+                new String[] {"data/terms.txt", site.resolve("c").toString() });
+
+        GlossaryBatch batch = GlossaryBatch.run(jobs,
+                GlossaryOptions.parse(new String[] {"--mapped", "--workers=2" }));
+
+        assertEquals(3, batch.size());
+        assertEquals(1, batch.failures());
+        assertEquals("data/missing.txt", batch.input(1));
+        assertEquals(null, batch.failure(0));
+        assertEquals(true, batch.failure(1) != null);
+        assertEquals(null, batch.build(0));
+        assertEquals(true, Files.exists(site.resolve("a").resolve("index.html")));
+        assertEquals(true, Files.exists(site.resolve("c").resolve("book.html")));
+
+    }
+
+    /**
+     * Test a job whose input violates a precondition fails on its own, with
+     * assertions enabled.
+     *
+     * @throws IOException
+     *             if the files cannot be created
+     */
+    @Test
+    public void testRunMalformed() throws IOException {
+        Path site = Files.createTempDirectory("batch");
+        Path input = site.resolve("twice.txt");
+        Files.write(input, "term\na word\n\nterm\nanother word\n\n"
+                .getBytes(StandardCharsets.UTF_8));
+        List<String[]> jobs = List.of(
+                new String[] {input.toString(), site.resolve("a").toString() },
+                new String[] {"data/terms.txt", site.resolve("b").toString() });
+
+        GlossaryBatch batch = GlossaryBatch.run(jobs,
+                GlossaryOptions.parse(new String[] {"--workers=2" }));
+
+        boolean asserts = false;
+        assert asserts = true;
+        assertEquals(asserts ? 1 : 0, batch.failures());
+        assertEquals(null, batch.failure(1));
+        assertEquals(true, Files.exists(site.resolve("b").resolve("book.html")));
+
+    }
+
+}
@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in GlossaryModel.
+ */
+public class TestGlossaryModel {
+
+    /**
+     * Test of gives the terms ids in alphabetical order with their
+     * definitions.
+     */
+    @Test
+    public void testOf() {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("word", "a string of characters");
+        glossary.add("book", "a printed work");
+        glossary.add("term", "a word in a book");
+        GlossaryModel model = GlossaryModel.of(glossary);
+
+        assertEquals(3, model.size());
+        assertEquals("book", model.term(0));
+        assertEquals("term", model.term(1));
+        assertEquals("word", model.term(2));
+        assertEquals(1, model.id("term"));
+        assertEquals(TermIndex.NOT_FOUND, model.id("page"));
+        assertEquals("a word in a book", model.definition(1));
+        assertEquals("a printed work", model.definitions().substring(
+                model.definitionStart(0), model.definitionEnd(0)));
+
+    }
+
+    /**
+     * Test read has the same terms and definitions as createGlossary.
+     */
+    @Test
+    public void testRead() {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        GlossaryModel model = GlossaryModel.read("data/terms.txt");
+        String[] sorted = Glossary.sortedTerms(glossary);
+
+        assertEquals(sorted.length, model.size());
+        for (int id = 0; id < model.size(); id++) {
+            assertEquals(sorted[id], model.term(id));
+            assertEquals(glossary.value(sorted[id]), model.definition(id));
+        }
+
+    }
+
+    /**
+     * Test read keeps the last definition in file order of a repeated term,
+     * as a parallel read does.
+     *
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    @Test
+    public void testReadRepeated() throws IOException {
+        Path file = Files.createTempFile("model", ".txt");
+        Files.write(file, ("book\nthe first\n\nterm\na word\n\nbook\nthe last\n\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        GlossaryModel model = GlossaryModel.read(file.toString());
+        GlossaryModel parallel = ParallelGlossaryReader.read(file.toString(), 2);
+
+        assertEquals(2, model.size());
+        assertEquals("book", model.term(0));
+        assertEquals("the last", model.definition(model.id("book")));
+        assertEquals(parallel.definition(parallel.id("book")),
+                model.definition(model.id("book")));
+
+    }
+
+    /**
+     * Test checkLength accepts definitions up to the limit of the arena and
+     * rejects the first character past it.
+     */
+    @Test
+    public void testCheckLength() {
+        GlossaryModel.checkLength(GlossaryModel.MAX_DEFINITIONS_LENGTH - 1, 1);
+        String message = null;
+        try {
+            GlossaryModel.checkLength(GlossaryModel.MAX_DEFINITIONS_LENGTH - 1, 2);
+        } catch (IllegalArgumentException e) {
+            message = e.getMessage();
+        }
+
+        assertEquals("The definitions total more than "
+                + GlossaryModel.MAX_DEFINITIONS_LENGTH
+                + " characters, more than a glossary model can hold", message);
+
+    }
+
+    /**
+     * Test the pages rendered by id are the ones rendered from strings, even
+     * though a definition ending in a word is followed by the next one in the
+     * arena.
+     */
+    @Test
+    public void testRenderTermPage() {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("a", "see b");
+        glossary.add("b", "term");
+        glossary.add("term", "a");
+        GlossaryModel model = GlossaryModel.of(glossary);
+        TermLinker linker = new TermLinker(model);
+        PageBuffer byId = new PageBuffer();
+        PageBuffer byString = new PageBuffer();
+
+        for (int id = 0; id < model.size(); id++) {
+            byId.clear();
+            byString.clear();
+            Glossary.renderTermPage(model, id, linker, byId);
+            Glossary.renderTermPage(model.term(id), model.definition(id), linker,
+                    byString);
+            assertEquals(byString.toString(), byId.toString());
+        }
+        PageBuffer index = new PageBuffer();
+        Glossary.renderIndexPage(model, index);
+        byString.clear();
+        Glossary.renderIndexPage(Glossary.sortedTerms(glossary), linker, byString);
+        assertEquals(byString.toString(), index.toString());
+
+    }
+
+}
@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test methods in GlossaryServer.
+ */
+public class TestGlossaryServer {
+
+    /**
+     * Creates the server of data/terms.txt.
+     *
+     * @param cacheSize
+     *            the number of rendered pages kept
+     * @return the server
+     */
+    private static GlossaryServer createServer(int cacheSize) {
+        GlossaryModel model = GlossaryModel.read("data/terms.txt");
+        return new GlossaryServer(model, new TermLinker(model), null, null,
+                cacheSize);
+    }
+
+    /**
+     * Test page renders the same pages as writePages, and nothing for an
+     * unknown name.
+     */
+    @Test
+    public void testPage() {
+        GlossaryModel model = GlossaryModel.read("data/terms.txt");
+        HashMap<String, byte[]> written = new HashMap<>();
+        Glossary.writePages(model, new TermLinker(model),
+                (name, page) -> written.put(name, page.toByteArray()), 1);
+        GlossaryServer server = createServer(GlossaryServer.DEFAULT_CACHE_SIZE);
+
+        assertEquals(true, Arrays.equals(written.get("index.html"),
+                server.page("index.html")));
+        assertEquals(true, Arrays.equals(written.get("book.html"),
+                server.page("book.html")));
+        assertEquals(null, server.page("nothing.html"));
+        assertEquals(null, server.page("book"));
+
+    }
+
+    /**
+     * Test page renders a page once while it stays in the cache, and again
+     * after it was evicted.
+     */
+    @Test
+    public void testPageCache() {
+        GlossaryServer server = createServer(2);
+
+        server.page("book.html");
+        server.page("book.html");
+        assertEquals(1, server.rendered());
+        server.page("term.html");
+        server.page("book.html");
+        server.page("word.html");
+        assertEquals(3, server.rendered());
+        server.page("term.html");
+        assertEquals(4, server.rendered());
+
+    }
+
+    /**
+     * Test start answers requests for pages and unknown pages over HTTP.
+     *
+     * @throws IOException
+     *             if a request fails
+     */
+    @Test
+    public void testStart() throws IOException {
+        GlossaryServer server = createServer(GlossaryServer.DEFAULT_CACHE_SIZE);
+        HttpServer http = server.start(0);
+        try {
+            String base = "http://localhost:" + http.getAddress().getPort() + "/";
+            HttpURLConnection book = (HttpURLConnection) new URL(base + "book.html")
+                    .openConnection();
+            assertEquals(200, book.getResponseCode());
+            try (InputStream body = book.getInputStream()) {
+                assertEquals(true, Arrays.equals(server.page("book.html"),
+                        body.readAllBytes()));
+            }
+            HttpURLConnection missing = (HttpURLConnection) new URL(
+                    base + "nothing.html").openConnection();
+            assertEquals(404, missing.getResponseCode());
+        } finally {
+            http.stop(0);
+        }
+
+    }
+
+}
@@ -0,0 +1,139 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test methods in GlossarySnapshot.
+ */
+public class TestGlossarySnapshot {
+
+    /**
+     * Asserts that two models have the same terms and definitions, and that
+     * the term index of {@code actual} finds every term.
+     *
+     * @param expected
+     *            the expected model
+     * @param actual
+     *            the actual model
+     */
+    private static void assertSameModel(GlossaryModel expected,
+            GlossaryModel actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); id++) {
+            assertEquals(expected.term(id), actual.term(id));
+            assertEquals(expected.definition(id), actual.definition(id));
+            assertEquals(id, actual.id(expected.term(id)));
+        }
+    }
+
+    /**
+     * Returns a copy of data/terms.txt in a temporary folder.
+     *
+     * @return the path of the copy
+     * @throws IOException
+     *             if the copy cannot be created
+     */
+    private static Path copyTerms() throws IOException {
+        Path file = Files.createTempDirectory("snapshot").resolve("terms.txt");
+        Files.copy(Paths.get("data/terms.txt"), file);
+        return file;
+    }
+
+    /**
+     * Test load gives the model written by write.
+     *
+     * @throws IOException
+     *             if the input cannot be copied
+     */
+    @Test
+    public void testLoad() throws IOException {
+        Path file = copyTerms();
+        String snapshot = GlossarySnapshot.defaultPath(file.toString());
+        GlossaryModel model = GlossaryModel.read(file.toString());
+
+        GlossarySnapshot.write(model, file.toString(), snapshot);
+
+        assertSameModel(model, GlossarySnapshot.load(file.toString(), snapshot));
+        assertEquals(TermIndex.NOT_FOUND,
+                GlossarySnapshot.load(file.toString(), snapshot).id("nothing"));
+
+    }
+
+    /**
+     * Test load gives null without a snapshot or with a stale one.
+     *
+     * @throws IOException
+     *             if the input cannot be copied or changed
+     */
+    @Test
+    public void testLoadStale() throws IOException {
+        Path file = copyTerms();
+        String snapshot = GlossarySnapshot.defaultPath(file.toString());
+
+        assertEquals(null, GlossarySnapshot.load(file.toString(), snapshot));
+
+        GlossarySnapshot.write(GlossaryModel.read(file.toString()), file.toString(),
+                snapshot);
+        Files.write(file, "sum\nall of it\n\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        assertEquals(null, GlossarySnapshot.load(file.toString(), snapshot));
+
+    }
+
+    /**
+     * Test read parses and saves a stale snapshot, then loads it.
+     *
+     * @throws IOException
+     *             if the input cannot be copied or changed
+     */
+    @Test
+    public void testRead() throws IOException {
+        Path file = copyTerms();
+        String snapshot = GlossarySnapshot.defaultPath(file.toString());
+        int[] parses = new int[1];
+
+        GlossaryModel model = GlossarySnapshot.read(file.toString(), snapshot, () -> {
+            parses[0]++;
+            return GlossaryModel.read(file.toString());
+        });
+        GlossaryModel loaded = GlossarySnapshot.read(file.toString(), snapshot, () -> {
+            parses[0]++;
+            return GlossaryModel.read(file.toString());
+        });
+
+        assertEquals(1, parses[0]);
+        assertSameModel(model, loaded);
+
+    }
+
+    /**
+     * Test load gives null for a truncated snapshot.
+     *
+     * @throws IOException
+     *             if the input cannot be copied or the snapshot truncated
+     */
+    @Test
+    public void testLoadTruncated() throws IOException {
+        Path file = copyTerms();
+        Path snapshot = Paths.get(GlossarySnapshot.defaultPath(file.toString()));
+        GlossarySnapshot.write(GlossaryModel.read(file.toString()), file.toString(),
+                snapshot.toString());
+        byte[] bytes = Files.readAllBytes(snapshot);
+        final int cut = 80;
+
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - cut));
+
+        assertEquals(null, GlossarySnapshot.load(file.toString(), snapshot.toString()));
+
+    }
+
+}
@@ -0,0 +1,169 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test methods in GlossaryWatcher.
+ */
+public class TestGlossaryWatcher {
+
+    /**
+     * Test refresh writes every page first, then only decodes the edited
+     * record and rewrites its page.
+     *
+     * @throws IOException
+     *             if the files cannot be created
+     */
+    @Test
+    public void testRefresh() throws IOException {
+        Path folder = Files.createTempDirectory("watch");
+        Path input = folder.resolve("terms.txt");
+        Files.write(input, ("term\na word in a glossary\n\nword\na string\n\n"
+                + "book\na printed work\n\n").getBytes(StandardCharsets.UTF_8));
+        GlossaryWatcher watcher = new GlossaryWatcher(input.toString(),
+                folder.toString(), GlossaryOptions.parse(new String[0]));
+
+        IncrementalBuild first = watcher.refresh();
+        assertEquals(3, watcher.decoded());
+        assertEquals(3, first.written());
+        assertEquals(true, first.indexWritten());
+
+        Files.write(input, ("term\na word in a glossary\n\nword\na string\n\n"
+                + "book\na printed\nor written work\n\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        IncrementalBuild second = watcher.refresh();
+        assertEquals(1, watcher.decoded());
+        assertEquals(1, second.written());
+        assertEquals(false, second.indexWritten());
+        String book = new String(Files.readAllBytes(folder.resolve("book.html")),
+                StandardCharsets.UTF_8);
+        assertEquals(true, book.contains("a printed or written work"));
+
+    }
+
+    /**
+     * Test refresh finds records that only moved in the file, deletes the page
+     * of a removed record and rewrites the page linking to it.
+     *
+     * @throws IOException
+     *             if the files cannot be created
+     */
+    @Test
+    public void testRefresh2() throws IOException {
+        Path folder = Files.createTempDirectory("watch");
+        Path input = folder.resolve("terms.txt");
+        Files.write(input, "term\na word\n\nword\na string\n\nbook\npages\n\n"
+                .getBytes(StandardCharsets.UTF_8));
+        GlossaryWatcher watcher = new GlossaryWatcher(input.toString(),
+                folder.toString(), GlossaryOptions.parse(new String[0]));
+        watcher.refresh();
+
+        Files.write(input, "book\npages\n\nterm\na word\n\n"
+                .getBytes(StandardCharsets.UTF_8));
+        IncrementalBuild build = watcher.refresh();
+        assertEquals(0, watcher.decoded());
+        assertEquals(1, build.written());
+        assertEquals(1, build.deleted());
+        assertEquals(true, build.indexWritten());
+        assertEquals(false, Files.exists(folder.resolve("word.html")));
+
+    }
+
+    /**
+     * Test refresh, when a term is added and another removed with loose
+     * links and backlinks, leaves the same pages as a first refresh of the
+     * new file into another folder.
+     *
+     * @throws IOException
+     *             if the files cannot be created
+     */
+    @Test
+    public void testRefresh3() throws IOException {
+        Path folder = Files.createTempDirectory("watch");
+        Path input = folder.resolve("terms.txt");
+        String[] args = { "--loose-links", "--backlinks" };
+        Files.write(input, ("term\na word in a glossary\n\nword\na string\n\n"
+                + "book\npages\n\nglossary\na list of terms\n\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        GlossaryWatcher watcher = new GlossaryWatcher(input.toString(),
+                folder.toString(), GlossaryOptions.parse(args));
+        watcher.refresh();
+
+        byte[] edited = ("term\na word in a glossary\n\nword\na string\n\n"
+                + "string\nsome characters\n\nbook\nprinted Words\n\n")
+                        .getBytes(StandardCharsets.UTF_8);
+        Files.write(input, edited);
+        IncrementalBuild build = watcher.refresh();
+        assertEquals(1, build.deleted());
+        assertEquals(true, build.indexWritten());
+
+        Path expected = Files.createTempDirectory("watch");
+        Path expectedInput = expected.resolve("terms.txt");
+        Files.write(expectedInput, edited);
+        new GlossaryWatcher(expectedInput.toString(), expected.toString(),
+                GlossaryOptions.parse(args)).refresh();
+        for (String page : new String[] { "index.html", "term.html", "word.html",
+                "string.html", "book.html" }) {
+            assertEquals(
+                    new String(Files.readAllBytes(expected.resolve(page)),
+                            StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(folder.resolve(page)),
+                            StandardCharsets.UTF_8));
+        }
+        assertEquals(false, Files.exists(folder.resolve("glossary.html")));
+
+    }
+
+    /**
+     * Test watch reports a refresh that fails and keeps watching, the next
+     * save refreshing the pages.
+     *
+     * @throws IOException
+     *             if the files cannot be created
+     * @throws InterruptedException
+     *             if the test is interrupted while waiting
+     */
+    @Test
+    public void testWatchFailure() throws IOException, InterruptedException {
+        Path folder = Files.createTempDirectory("watch");
+        Path input = folder.resolve("terms.txt");
+        Path output = folder.resolve("site");
+        Files.write(input, "term\na word\n\n".getBytes(StandardCharsets.UTF_8));
+        GlossaryWatcher watcher = new GlossaryWatcher(input.toString(),
+                output.toString(), GlossaryOptions.parse(new String[0]));
+        BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        Thread watching = new Thread(() -> watcher.watch(events::add, events::add));
+        watching.start();
+        final long timeout = 10;
+
+        try {
+            //the output folder does not exist yet, the first refresh fails
+            Object first = events.poll(timeout, TimeUnit.SECONDS);
+            assertEquals(true, first instanceof RuntimeException);
+
+            Files.createDirectories(output);
+            Files.write(input, "term\na word\n\nword\na string\n\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            Object second = events.poll(timeout, TimeUnit.SECONDS);
+            while (second instanceof RuntimeException) {
+                //a refresh may still see the folder missing
+                second = events.poll(timeout, TimeUnit.SECONDS);
+            }
+            assertEquals(true, second instanceof IncrementalBuild);
+            assertEquals(true, Files.exists(output.resolve("word.html")));
+        } finally {
+            watching.interrupt();
+            watching.join();
+        }
+
+    }
+
+}
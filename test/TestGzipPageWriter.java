@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+/**
+ * Test methods in GzipPageWriter.
+ */
+public class TestGzipPageWriter {
+
+    /**
+     * Returns the text of the gzip file at {@code file}.
+     *
+     * @param file
+     *            the gzip file
+     * @return the uncompressed text
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), "UTF-8");
+        }
+    }
+
+    /**
+     * Test write writes the compressed page next to the uncompressed one.
+     *
+     * @throws IOException
+     *             if the output folder cannot be created
+     */
+    @Test
+    public void testWrite() throws IOException {
+        Path folder = Files.createTempDirectory("gzip");
+        GzipPageWriter pages = new GzipPageWriter(folder.toString(), true);
+
+        PageBuffer page = new PageBuffer().println("<p>caf\u00e9</p>");
+
+        pages.write("book.html", page);
+
+        assertEquals(page.toString(), gunzip(folder.resolve("book.html.gz")));
+        assertEquals(true, Files.exists(folder.resolve("book.html")));
+
+    }
+
+    /**
+     * Test write of pages larger than the buffer of the compressor, one after
+     * the other, with the uncompressed pages left out.
+     *
+     * @throws IOException
+     *             if the output folder cannot be created
+     */
+    @Test
+    public void testWrite2() throws IOException {
+        Path folder = Files.createTempDirectory("gzip");
+        GzipPageWriter pages = new GzipPageWriter(folder.toString(), false);
+        PageBuffer page = new PageBuffer();
+        final int lines = 5000;
+        for (int i = 0; i < lines; i++) {
+            page.println("<li>term" + (i * i) + "</li>");
+        }
+
+        pages.write("index.html", page);
+        pages.write("a.html", new PageBuffer().append("a"));
+
+        assertEquals(page.toString(), gunzip(folder.resolve("index.html.gz")));
+        assertEquals("a", gunzip(folder.resolve("a.html.gz")));
+        assertEquals(false, Files.exists(folder.resolve("index.html")));
+
+    }
+
+    /**
+     * Test close frees the compressors and a later write still compresses the
+     * page with a new one.
+     *
+     * @throws IOException
+     *             if the output folder cannot be created
+     */
+    @Test
+    public void testClose() throws IOException {
+        Path folder = Files.createTempDirectory("gzip");
+        GzipPageWriter pages = new GzipPageWriter(folder.toString(), false);
+
+        pages.write("a.html", new PageBuffer().append("a"));
+        pages.close();
+        pages.write("b.html", new PageBuffer().append("b"));
+        pages.close();
+
+        assertEquals("a", gunzip(folder.resolve("a.html.gz")));
+        assertEquals("b", gunzip(folder.resolve("b.html.gz")));
+
+    }
+
+    /**
+     * Test generate with --gzip=only writes the compressed pages only.
+     *
+     * @throws IOException
+     *             if the output folder cannot be created
+     */
+    @Test
+    public void testGenerate() throws IOException {
+        Path folder = Files.createTempDirectory("gzip");
+
+        Glossary.generate("data/terms.txt", folder.toString(),
+                GlossaryOptions.parse(new String[] { "--gzip=only" }), 2);
+
+        assertEquals(new String(Files.readAllBytes(Paths.get("data/index.html")),
+                "UTF-8").replace("\r", ""),
+                gunzip(folder.resolve("index.html.gz")).replace("\r", ""));
+        assertEquals(false, Files.exists(folder.resolve("index.html")));
+
+    }
+
+}
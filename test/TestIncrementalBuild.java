@@ -0,0 +1,244 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in IncrementalBuild.
+ */
+public class TestIncrementalBuild {
+
+    /**
+     * Builds the pages of {@code glossary} in {@code folder}.
+     *
+     * @param glossary
+     *            the term to definition
+     * @param folder
+     *            the output folder
+     * @return the summary of the build
+     */
+    private static IncrementalBuild build(Map<String, String> glossary, Path folder) {
+        GlossaryModel model = GlossaryModel.of(glossary);
+        return IncrementalBuild.write(model, new TermLinker(model), folder.toString(),
+                1);
+    }
+
+    /**
+     * Builds the pages of {@code glossary} in {@code folder}, with the index
+     * split by initial letter.
+     *
+     * @param glossary
+     *            the term to definition
+     * @param folder
+     *            the output folder
+     * @return the summary of the build
+     */
+    private static IncrementalBuild buildSharded(Map<String, String> glossary,
+            Path folder) {
+        GlossaryModel model = GlossaryModel.of(glossary);
+        TermLinker linker = new TermLinker(model);
+        ReferenceGraph graph = ReferenceGraph.build(model, linker, 1);
+        return IncrementalBuild.write(model, linker, graph, false,
+                IndexShards.byLetter(model), folder.toString(), 1);
+    }
+
+    /**
+     * Test write writes every page on the first run and none on a second run
+     * with the same glossary.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    @Test
+    public void testWrite() throws IOException {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        Path folder = Files.createTempDirectory("incremental");
+
+        IncrementalBuild first = build(glossary, folder);
+        final int expectedWritten = 7;
+        assertEquals(expectedWritten, first.written());
+        assertEquals(true, first.indexWritten());
+        assertEquals(true, Files.exists(folder.resolve(IncrementalBuild.MANIFEST)));
+
+        IncrementalBuild second = build(glossary, folder);
+        assertEquals(0, second.written());
+        assertEquals(0, second.deleted());
+        assertEquals(false, second.indexWritten());
+
+    }
+
+    /**
+     * Test write rewrites a changed definition and the pages linking to a
+     * removed term, and deletes the page of the removed term.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    @Test
+    public void testWrite2() throws IOException {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("term", "a word in a glossary");
+        glossary.add("word", "a string of characters");
+        glossary.add("glossary", "a list of terms");
+        glossary.add("book", "a printed work");
+        Path folder = Files.createTempDirectory("incremental");
+        build(glossary, folder);
+
+        glossary.remove("glossary");
+        glossary.replaceValue("book", "a printed or written work");
+        IncrementalBuild build = build(glossary, folder);
+
+        assertEquals(2, build.written());
+        assertEquals(1, build.deleted());
+        assertEquals(true, build.indexWritten());
+        assertEquals(false, Files.exists(folder.resolve("glossary.html")));
+        String term = new String(Files.readAllBytes(folder.resolve("term.html")));
+        assertEquals(false, term.contains("glossary.html"));
+
+    }
+
+    /**
+     * Test write rewrites a page whose file was deleted.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    @Test
+    public void testWrite3() throws IOException {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        Path folder = Files.createTempDirectory("incremental");
+        build(glossary, folder);
+
+        Files.delete(folder.resolve("book.html"));
+        IncrementalBuild build = build(glossary, folder);
+
+        assertEquals(1, build.written());
+        assertEquals(true, Files.exists(folder.resolve("book.html")));
+
+    }
+
+    /**
+     * Test write with backlinks rewrites the page of a term when another
+     * definition starts or stops linking to it.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    @Test
+    public void testWrite4() throws IOException {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("term", "a word in a glossary");
+        glossary.add("word", "a string of characters");
+        glossary.add("book", "a printed work");
+        Path folder = Files.createTempDirectory("incremental");
+        GlossaryModel model = GlossaryModel.of(glossary);
+        TermLinker linker = new TermLinker(model);
+        IncrementalBuild.write(model, linker, ReferenceGraph.build(model, linker, 1),
+                true, null, folder.toString(), 1);
+
+        glossary.replaceValue("book", "a printed work made of word after word");
+        model = GlossaryModel.of(glossary);
+        linker = new TermLinker(model);
+        IncrementalBuild build = IncrementalBuild.write(model, linker,
+                ReferenceGraph.build(model, linker, 1), true, null, folder.toString(),
+                1);
+
+        assertEquals(2, build.written());
+        assertEquals(false, build.indexWritten());
+        String word = new String(Files.readAllBytes(folder.resolve("word.html")));
+        assertEquals(true, word.contains("Referenced by <a href=\"book.html\">book</a>, "
+                + "<a href=\"term.html\">term</a>."));
+
+    }
+
+    /**
+     * Test write with a sharded index only rewrites the shards whose terms
+     * changed, and goes back to a single index page without shards.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    @Test
+    public void testWrite5() throws IOException {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("term", "a word in a glossary");
+        glossary.add("word", "a string of characters");
+        glossary.add("book", "a printed work");
+        glossary.add("bag", "a container");
+        Path folder = Files.createTempDirectory("incremental");
+        IncrementalBuild first = buildSharded(glossary, folder);
+        assertEquals(3, first.shardsWritten());
+        assertEquals(true, Files.exists(folder.resolve("index-B.html")));
+
+        glossary.add("tree", "a plant");
+        glossary.remove("word");
+        IncrementalBuild second = buildSharded(glossary, folder);
+        assertEquals(1, second.shardsWritten());
+        assertEquals(true, second.indexWritten());
+        assertEquals(false, Files.exists(folder.resolve("index-W.html")));
+        String shard = new String(Files.readAllBytes(folder.resolve("index-T.html")));
+        assertEquals(true, shard.contains("<a href=\"tree.html\">tree</a>"));
+
+        IncrementalBuild single = build(glossary, folder);
+        assertEquals(true, single.indexWritten());
+        assertEquals(false, Files.exists(folder.resolve("index-T.html")));
+        assertEquals(false,
+                Files.exists(folder.resolve(IncrementalBuild.INDEX_MANIFEST)));
+
+    }
+
+    /**
+     * Test write rewrites the pages whose links change when the words are
+     * linked loosely, or no longer are, even if they link the same terms.
+     *
+     * @throws IOException
+     *             if the folder cannot be created
+     */
+    @Test
+    public void testWriteLoose() throws IOException {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("term", "a term. Terms are nouns");
+        glossary.add("word", "a string of characters");
+        GlossaryModel model = GlossaryModel.of(glossary);
+        Path folder = Files.createTempDirectory("incremental");
+        build(glossary, folder);
+
+        IncrementalBuild loose = IncrementalBuild.write(model,
+                new TermLinker(model, null, true), folder.toString(), 1);
+        assertEquals(2, loose.written());
+        assertEquals(false, loose.indexWritten());
+        String page = new String(Files.readAllBytes(folder.resolve("term.html")));
+        assertEquals(true, page.contains("<a href=\"term.html\">Terms</a>"));
+
+        IncrementalBuild exact = build(glossary, folder);
+        assertEquals(2, exact.written());
+        page = new String(Files.readAllBytes(folder.resolve("term.html")));
+        assertEquals(false, page.contains("Terms</a>"));
+        assertEquals(0, build(glossary, folder).written());
+
+    }
+
+    /**
+     * Test hash gives the FNV-1a 64 bit hash of the bytes, hashed at once or
+     * byte by byte.
+     */
+    @Test
+    public void testHash() {
+        byte[] bytes = { 'x', 'a', 'b' };
+        assertEquals(0xaf63dc4c8601ec8cL, IncrementalBuild.hash(bytes, 1, 2));
+        long hash = IncrementalBuild.FNV_OFFSET;
+        for (byte b : bytes) {
+            hash = IncrementalBuild.hash(hash, b);
+        }
+        assertEquals(IncrementalBuild.hash(bytes, 0, bytes.length), hash);
+        assertEquals(IncrementalBuild.FNV_OFFSET, IncrementalBuild.hash(bytes, 2, 2));
+
+    }
+
+}
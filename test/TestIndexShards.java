@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in IndexShards.
+ */
+public class TestIndexShards {
+
+    /**
+     * Creates a glossary with terms of mixed case and a term not starting with
+     * a letter.
+     *
+     * @return the model of the glossary
+     */
+    private static GlossaryModel createModel() {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("apple", "a fruit");
+        glossary.add("Banana", "another fruit");
+        glossary.add("bean", "a seed");
+        glossary.add("2d", "flat");
+        glossary.add("Avocado", "a fruit too");
+        return GlossaryModel.of(glossary);
+    }
+
+    /**
+     * Test byLetter groups the terms by initial letter ignoring case, in
+     * alphabetical order, with the other terms last.
+     */
+    @Test
+    public void testByLetter() {
+        GlossaryModel model = createModel();
+        IndexShards shards = IndexShards.byLetter(model);
+
+        assertEquals(3, shards.count());
+        assertEquals("index-A.html", shards.name(0));
+        assertEquals("A", shards.label(0));
+        assertEquals(2, shards.size(0));
+        assertEquals("Avocado", model.term(shards.id(0, 0)));
+        assertEquals("apple", model.term(shards.id(0, 1)));
+        assertEquals("index-B.html", shards.name(1));
+        assertEquals(2, shards.size(1));
+        assertEquals("index-other.html", shards.name(2));
+        assertEquals("2d", model.term(shards.id(2, 0)));
+
+    }
+
+    /**
+     * Test bySize cuts the sorted terms into shards of a fixed size.
+     */
+    @Test
+    public void testBySize() {
+        GlossaryModel model = createModel();
+        IndexShards shards = IndexShards.of(model, "2");
+
+        assertEquals(3, shards.count());
+        assertEquals("index-1.html", shards.name(0));
+        assertEquals("2d - Avocado", shards.label(0));
+        assertEquals(2, shards.size(1));
+        assertEquals(1, shards.size(2));
+        assertEquals("index-3.html", shards.name(2));
+        assertEquals("bean", model.term(shards.id(2, 0)));
+
+    }
+
+    /**
+     * Test write gives the navigation page and the same shards on one and on
+     * several workers.
+     */
+    @Test
+    public void testWrite() {
+        GlossaryModel model = createModel();
+        IndexShards shards = IndexShards.byLetter(model);
+        ConcurrentHashMap<String, String> sequential = new ConcurrentHashMap<>();
+        ConcurrentHashMap<String, String> parallel = new ConcurrentHashMap<>();
+
+        shards.write((name, page) -> sequential.put(name, page.toString()), 1);
+        shards.write((name, page) -> parallel.put(name, page.toString()), 3);
+
+        assertEquals(4, sequential.size());
+        assertEquals(sequential, parallel);
+        String newLine = System.lineSeparator();
+        assertEquals(true, sequential.get("index.html").contains(
+                "       <li><a href=\"index-B.html\">B</a> (2)</li>" + newLine));
+        String b = sequential.get("index-B.html");
+        assertEquals(true, b.contains("       <h3>Index: B</h3>" + newLine));
+        assertEquals(true, b.contains("<a href=\"Banana.html\">Banana</a>"));
+        assertEquals(true, b.contains("<a href=\"index.html\">index</a>"));
+
+    }
+
+}
@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in MappedGlossaryReader.
+ */
+public class TestMappedGlossaryReader {
+
+    /**
+     * Test createGlossary gives the same map as Glossary.createGlossary.
+     */
+    @Test
+    public void testCreateGlossary() {
+        String filePath = "data/terms.txt";
+
+        assertEquals(Glossary.createGlossary(filePath),
+                MappedGlossaryReader.createGlossary(filePath));
+
+    }
+
+    /**
+     * Test createGlossary with a definition on multiple lines.
+     */
+    @Test
+    public void testCreateGlossary2() {
+        String filePath = "test/TestFileForCreateGlossary3.txt";
+
+        assertEquals(Glossary.createGlossary(filePath),
+                MappedGlossaryReader.createGlossary(filePath));
+
+    }
+
+    /**
+     * Test createGlossary with \r\n line breaks and a last record ending with
+     * the file.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be written
+     */
+    @Test
+    public void testCreateGlossary3() throws IOException {
+        Path file = Files.createTempFile("glossary", ".txt");
+        Files.write(file, "term\r\na word\r\nin a glossary\r\n\r\nbook\r\na work"
+                .getBytes(StandardCharsets.UTF_8));
+        Map<String, String> expected = new Map1L<>();
+        expected.add("term", "a word in a glossary");
+        expected.add("book", "a work");
+
+        assertEquals(expected, MappedGlossaryReader.createGlossary(file.toString()));
+
+    }
+
+    /**
+     * Test split stops before a record that is not complete in the range.
+     */
+    @Test
+    public void testSplit() {
+        byte[] text = "term\na word\n\nbook\na printed".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer bytes = ByteBuffer.wrap(text);
+        Map<String, String> glossary = new Map1L<>();
+        MappedGlossaryReader.RecordVisitor visitor = (b, termStart, termEnd,
+                definitionStart, definitionEnd) -> glossary.add(
+                        MappedGlossaryReader.decodeTerm(b, termStart, termEnd),
+                        MappedGlossaryReader.decodeDefinition(b, definitionStart,
+                                definitionEnd, new byte[0]));
+
+        int consumed = MappedGlossaryReader.split(bytes, 0, text.length, false,
+                visitor);
+        final int expectedConsumed = 13;
+        assertEquals(expectedConsumed, consumed);
+        assertEquals(1, glossary.size());
+
+        consumed = MappedGlossaryReader.split(bytes, consumed, text.length, true,
+                visitor);
+        assertEquals(text.length, consumed);
+        assertEquals("a printed", glossary.value("book"));
+
+    }
+
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test methods in PageBuffer.
+ */
+public class TestPageBuffer {
+
+    /**
+     * Test append encodes ASCII, two, three and four byte characters as
+     * String.getBytes does.
+     */
+    @Test
+    public void testAppend() {
+        String text = "term caf\u00e9 \u2014 \ud83d\udcd6 end";
+        PageBuffer page = new PageBuffer();
+
+        page.append(text);
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), page.toByteArray());
+        assertEquals(text, page.toString());
+
+    }
+
+    /**
+     * Test append of a part of a text and of encoded bytes.
+     */
+    @Test
+    public void testAppend2() {
+        PageBuffer page = new PageBuffer();
+
+        page.append("a glossary term", 2, 10)
+                .append(" ".getBytes(StandardCharsets.UTF_8)).append("x");
+        assertEquals("glossary x", page.toString());
+        assertEquals("glossary x".length(), page.length());
+
+    }
+
+    /**
+     * Test append grows the buffer past its initial capacity.
+     */
+    @Test
+    public void testAppend3() {
+        PageBuffer page = new PageBuffer();
+        StringBuilder expected = new StringBuilder();
+        final int count = 5000;
+
+        for (int i = 0; i < count; i++) {
+            page.append("word ");
+            expected.append("word ");
+        }
+        assertEquals(expected.toString(), page.toString());
+
+    }
+
+    /**
+     * Test println ends lines with the line separator and clear empties the
+     * buffer.
+     */
+    @Test
+    public void testPrintln() {
+        PageBuffer page = PageBuffer.forThread();
+
+        page.println("<html>").append("</html>");
+        assertEquals("<html>" + System.lineSeparator() + "</html>", page.toString());
+
+        page.clear();
+        assertEquals(0, page.length());
+        assertEquals("", PageBuffer.forThread().toString());
+
+    }
+
+    /**
+     * Test append of another page copies its bytes.
+     */
+    @Test
+    public void testAppendPage() {
+        PageBuffer other = new PageBuffer().append("caf\u00e9");
+        PageBuffer page = new PageBuffer().append("<p>");
+
+        page.append(other).append("</p>");
+
+        assertEquals("<p>caf\u00e9</p>", page.toString());
+        assertEquals("caf\u00e9", other.toString());
+
+    }
+
+}
@@ -0,0 +1,124 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+/**
+ * Test methods in PageTemplate.
+ */
+public class TestPageTemplate {
+
+    /**
+     * Test render copies the text around the slots and fills each slot, text
+     * that is not a slot being kept.
+     */
+    @Test
+    public void testRender() {
+        PageTemplate template = PageTemplate.compile(
+                "<h1>{{term}}</h1>{{ definition }}{{nope}}{{term}}",
+                PageTemplate.termSlots());
+        PageBuffer page = new PageBuffer();
+
+        template.render((slot, buffer) -> buffer.append(slot.name()), page);
+
+        assertEquals("<h1>TERM</h1>DEFINITION{{nope}}TERM", page.toString());
+
+    }
+
+    /**
+     * Test render of a layout without slots and with non-ASCII text.
+     */
+    @Test
+    public void testRender2() {
+        PageTemplate template = PageTemplate.compile("caf\u00e9 {{",
+                EnumSet.noneOf(PageTemplate.Slot.class));
+        PageBuffer page = new PageBuffer();
+
+        template.render((slot, buffer) -> buffer.append("x"), page);
+
+        assertEquals("caf\u00e9 {{", page.toString());
+
+    }
+
+    /**
+     * Test compile rejects a slot the page cannot fill.
+     */
+    @Test
+    public void testCompileSlotNotAllowed() {
+        String message = null;
+        try {
+            PageTemplate.compile("<ul>{{entries}}</ul>", PageTemplate.termSlots());
+        } catch (IllegalArgumentException e) {
+            message = e.getMessage();
+        }
+
+        assertEquals("The slot {{entries}} cannot be filled on this page", message);
+
+    }
+
+    /**
+     * Test renderTermPage fills the slots of a term page.
+     */
+    @Test
+    public void testRenderTermPage() {
+        GlossaryModel model = GlossaryModel.read("data/terms.txt");
+        TermLinker linker = new TermLinker(model);
+        PageTemplate template = PageTemplate.compile(
+                "<h1>{{term}}</h1><p>{{definition}}</p>{{backlinks}}{{index}}",
+                PageTemplate.termSlots());
+        PageBuffer page = new PageBuffer();
+
+        Glossary.renderTermPage(template, model, model.id("book"), linker, null,
+                page);
+
+        assertEquals("<h1>book</h1><p>a printed or written literary work</p>"
+                + Glossary.INDEX_LINK, page.toString());
+
+    }
+
+    /**
+     * Test renderIndexPage lists every term in the entries slot.
+     */
+    @Test
+    public void testRenderIndexPage() {
+        GlossaryModel model = GlossaryModel.read("data/terms.txt");
+        PageTemplate template = PageTemplate.compile("<ol>{{entries}}</ol>",
+                PageTemplate.indexSlots());
+        PageBuffer page = new PageBuffer();
+
+        Glossary.renderIndexPage(template, model, page);
+
+        String text = page.toString();
+        assertEquals(true, text.startsWith("<ol><li><a href=\"book.html\">book</a>"
+                + "</li>"));
+        assertEquals(model.size() + 1, text.split("<li>", -1).length);
+        assertEquals(true, text.endsWith("</li>" + System.lineSeparator() + "</ol>"));
+
+    }
+
+    /**
+     * Test generate lays out the pages with the template files.
+     *
+     * @throws IOException
+     *             if the files cannot be created
+     */
+    @Test
+    public void testGenerate() throws IOException {
+        Path folder = Files.createTempDirectory("template");
+        Path term = folder.resolve("term.layout");
+        Files.write(term, "<title>{{term}}</title>".getBytes(StandardCharsets.UTF_8));
+
+        Glossary.generate("data/terms.txt", folder.toString(),
+                GlossaryOptions.parse(new String[] { "--term-template=" + term }), 2);
+
+        assertEquals("<title>word</title>", new String(
+                Files.readAllBytes(folder.resolve("word.html")), StandardCharsets.UTF_8));
+
+    }
+
+}
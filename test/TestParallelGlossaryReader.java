@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * Test methods in ParallelGlossaryReader.
+ */
+public class TestParallelGlossaryReader {
+
+    /**
+     * Asserts that two models have the same terms and definitions.
+     *
+     * @param expected
+     *            the expected model
+     * @param actual
+     *            the actual model
+     */
+    private static void assertSameModel(GlossaryModel expected,
+            GlossaryModel actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int id = 0; id < expected.size(); id++) {
+            assertEquals(expected.term(id), actual.term(id));
+            assertEquals(expected.definition(id), actual.definition(id));
+        }
+    }
+
+    /**
+     * Test chunkBounds cuts right after empty lines only.
+     */
+    @Test
+    public void testChunkBounds() {
+        byte[] bytes = "a\nx\n\nb\ny\r\n\r\nc\nz\n\n".getBytes(StandardCharsets.UTF_8);
+
+        int[] bounds = ParallelGlossaryReader.chunkBounds(ByteBuffer.wrap(bytes),
+                bytes.length, 3);
+
+        assertEquals(4, bounds.length);
+        assertEquals(0, bounds[0]);
+        assertEquals(5, bounds[1]);
+        assertEquals(12, bounds[2]);
+        assertEquals(bytes.length, bounds[3]);
+
+    }
+
+    /**
+     * Test read gives the same model as GlossaryModel.read.
+     */
+    @Test
+    public void testRead() {
+        assertSameModel(GlossaryModel.read("data/terms.txt"),
+                ParallelGlossaryReader.read("data/terms.txt", 2));
+
+    }
+
+    /**
+     * Test read of a file of many chunks gives the same model on one and on
+     * several workers as GlossaryModel.read.
+     *
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    @Test
+    public void testRead2() throws IOException {
+        StringBuilder text = new StringBuilder();
+        final int terms = 20000;
+        for (int i = 0; i < terms; i++) {
+            text.append("term").append(i).append("\r\nthe definition of term")
+                    .append(i).append(",\r\nsee term").append(i / 2).append("\r\n\r\n");
+        }
+        Path file = Files.createTempFile("parallel", ".txt");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        GlossaryModel expected = GlossaryModel.read(file.toString());
+        assertSameModel(expected, ParallelGlossaryReader.read(file.toString(), 1));
+        assertSameModel(expected, ParallelGlossaryReader.read(file.toString(), 4));
+
+    }
+
+    /**
+     * Test read keeps the last definition in file order of a repeated term.
+     *
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    @Test
+    public void testReadRepeated() throws IOException {
+        StringBuilder text = new StringBuilder("book\nthe first\n\n");
+        final int terms = 20000;
+        for (int i = 0; i < terms; i++) {
+            text.append("term").append(i).append("\na definition\n\n");
+        }
+        text.append("book\nthe last\n\n");
+        Path file = Files.createTempFile("parallel", ".txt");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+        GlossaryModel model = ParallelGlossaryReader.read(file.toString(), 4);
+
+        assertEquals(terms + 1, model.size());
+        assertEquals("the last", model.definition(model.id("book")));
+
+    }
+
+}
@@ -0,0 +1,181 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+/**
+ * Test methods in PipelinedPageWriter.
+ */
+public class TestPipelinedPageWriter {
+
+    /**
+     * Test every page is written once the writer is closed, even with more
+     * pages than buffers and the page buffer reused by the caller.
+     */
+    @Test
+    public void testWrite() {
+        Map<String, String> written = new ConcurrentHashMap<>();
+        PipelinedPageWriter pages = new PipelinedPageWriter(
+                (name, page) -> written.put(name, page.toString()), 2);
+        PageBuffer page = new PageBuffer();
+        final int count = 100;
+
+        for (int i = 0; i < count; i++) {
+            page.clear();
+            pages.write(i + ".html", page.append("page " + i));
+        }
+        pages.close();
+
+        assertEquals(count, written.size());
+        assertEquals("page 0", written.get("0.html"));
+        assertEquals("page 99", written.get("99.html"));
+
+    }
+
+    /**
+     * Test close reports the failure of a writer thread.
+     */
+    @Test
+    public void testCloseFailure() {
+        PipelinedPageWriter pages = new PipelinedPageWriter((name, page) -> {
+            throw new UncheckedIOException(name, new IOException("disk full"));
+        }, 1);
+
+        pages.write("a.html", new PageBuffer().append("a"));
+        String message = null;
+        try {
+            pages.close();
+        } catch (UncheckedIOException e) {
+            message = e.getMessage();
+        }
+
+        assertEquals("a.html", message);
+
+    }
+
+    /**
+     * Test an Error of the destination neither blocks the pages written
+     * after it nor is lost, close reporting it.
+     */
+    @Test
+    public void testCloseError() {
+        PipelinedPageWriter pages = new PipelinedPageWriter((name, page) -> {
+            throw new AssertionError("Violation of: " + name + " is valid");
+        }, 1);
+        final int count = 10;
+
+        int refused = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                pages.write(i + ".html", new PageBuffer().append("page"));
+            } catch (IllegalStateException e) {
+                refused++;
+            }
+        }
+        String message = null;
+        try {
+            pages.close();
+        } catch (AssertionError e) {
+            message = e.getMessage();
+        }
+
+        assertEquals("Violation of: 0.html is valid", message);
+        assertEquals(true, refused < count);
+
+    }
+
+    /**
+     * Test generate with --pipeline writes the same pages.
+     *
+     * @throws IOException
+     *             if the output folder cannot be created
+     */
+    @Test
+    public void testGenerate() throws IOException {
+        Path folder = Files.createTempDirectory("pipeline");
+
+        Glossary.generate("data/terms.txt", folder.toString(),
+                GlossaryOptions.parse(new String[] { "--pipeline=3" }), 2);
+
+        for (String name : new String[] { "index.html", "book.html" }) {
+            assertEquals(new String(Files.readAllBytes(Paths.get("data", name)),
+                    "UTF-8").replace("\r", ""), new String(
+                            Files.readAllBytes(folder.resolve(name)), "UTF-8")
+                                    .replace("\r", ""));
+        }
+
+    }
+
+    /**
+     * Returns whether a writer thread of a PipelinedPageWriter is still
+     * running, waiting up to a few seconds for the threads to stop.
+     *
+     * @return whether a writer thread is running
+     * @throws InterruptedException
+     *             if the test is interrupted while waiting
+     */
+    private static boolean writerRunning() throws InterruptedException {
+        final int tries = 50;
+        final long pause = 100;
+        boolean running = true;
+        for (int k = 0; running && k < tries; k++) {
+            running = false;
+            for (StackTraceElement[] stack : Thread.getAllStackTraces().values()) {
+                for (StackTraceElement frame : stack) {
+                    running = running || frame.getMethodName().equals("writeQueued");
+                }
+            }
+            if (running) {
+                Thread.sleep(pause);
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Test a failed generate with --pipeline reports its failure and leaves
+     * no writer thread running, whether it fails before or after the writer
+     * threads are started.
+     *
+     * @throws IOException
+     *             if the output folder cannot be created
+     * @throws InterruptedException
+     *             if the test is interrupted while waiting
+     */
+    @Test
+    public void testGenerateFailure() throws IOException, InterruptedException {
+        Path folder = Files.createTempDirectory("pipeline");
+
+        String message = null;
+        try {
+            Glossary.generate("data/terms.txt", folder.toString(),
+                    GlossaryOptions.parse(new String[] { "--pipeline=2",
+                        "--term-template=" + folder.resolve("missing.layout") }),
+                    2);
+        } catch (UncheckedIOException e) {
+            message = e.getMessage();
+        }
+        assertEquals("Cannot read " + folder.resolve("missing.layout"), message);
+        assertEquals(false, writerRunning());
+
+        boolean failed = false;
+        try {
+            Glossary.generate(folder.resolve("missing.txt").toString(),
+                    folder.toString(),
+                    GlossaryOptions.parse(new String[] { "--pipeline=2" }), 2);
+        } catch (RuntimeException e) {
+            failed = true;
+        }
+        assertEquals(true, failed);
+        assertEquals(false, writerRunning());
+
+    }
+
+}
@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in ReferenceGraph.
+ */
+public class TestReferenceGraph {
+
+    /**
+     * Creates a small glossary where "book" and "word" both refer to "term",
+     * "term" refers to itself and to "word", and "page" refers to nothing.
+     *
+     * @return the model of the glossary
+     */
+    private static GlossaryModel createModel() {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("book", "a term, and another term");
+        glossary.add("page", "a sheet");
+        glossary.add("term", "a word of a term");
+        glossary.add("word", "part of a term");
+        return GlossaryModel.of(glossary);
+    }
+
+    /**
+     * Test build finds each distinct reference once, in id order, and the
+     * referrers of each term without the term itself.
+     */
+    @Test
+    public void testBuild() {
+        GlossaryModel model = createModel();
+        ReferenceGraph graph = ReferenceGraph.build(model, new TermLinker(model), 1);
+        int book = model.id("book");
+        int page = model.id("page");
+        int term = model.id("term");
+        int word = model.id("word");
+
+        assertEquals(4, graph.size());
+        assertEquals(1, graph.referenceCount(book));
+        assertEquals(term, graph.reference(book, 0));
+        assertEquals(0, graph.referenceCount(page));
+        assertEquals(2, graph.referenceCount(term));
+        assertEquals(term, graph.reference(term, 0));
+        assertEquals(word, graph.reference(term, 1));
+
+        assertEquals(2, graph.referrerCount(term));
+        assertEquals(book, graph.referrer(term, 0));
+        assertEquals(word, graph.referrer(term, 1));
+        assertEquals(1, graph.referrerCount(word));
+        assertEquals(term, graph.referrer(word, 0));
+        assertEquals(0, graph.referrerCount(book));
+
+    }
+
+    /**
+     * Test build gives the same graph on one and on several workers.
+     */
+    @Test
+    public void testBuild2() {
+        final int count = 2000;
+        Map<String, String> glossary = new Map1L<>();
+        for (int i = 0; i < count; i++) {
+            glossary.add("t" + i, "see t" + (i * 7) % count + " and t" + (i + 1) % count);
+        }
+        GlossaryModel model = GlossaryModel.of(glossary);
+        TermLinker linker = new TermLinker(model);
+        ReferenceGraph sequential = ReferenceGraph.build(model, linker, 1);
+        ReferenceGraph parallel = ReferenceGraph.build(model, linker, 4);
+
+        for (int id = 0; id < count; id++) {
+            assertEquals(sequential.referenceCount(id), parallel.referenceCount(id));
+            for (int k = 0; k < sequential.referenceCount(id); k++) {
+                assertEquals(sequential.reference(id, k), parallel.reference(id, k));
+            }
+            assertEquals(sequential.referrerCount(id), parallel.referrerCount(id));
+            for (int k = 0; k < sequential.referrerCount(id); k++) {
+                assertEquals(sequential.referrer(id, k), parallel.referrer(id, k));
+            }
+        }
+
+    }
+
+    /**
+     * Test the term pages list their referrers when given the graph, and are
+     * unchanged without it.
+     */
+    @Test
+    public void testBacklinks() {
+        GlossaryModel model = createModel();
+        TermLinker linker = new TermLinker(model);
+        ReferenceGraph graph = ReferenceGraph.build(model, linker, 1);
+        PageBuffer with = new PageBuffer();
+        PageBuffer without = new PageBuffer();
+
+        Glossary.renderTermPage(model, model.id("term"), linker, graph, with);
+        Glossary.renderTermPage(model, model.id("term"), linker, without);
+
+        String backlinks = "       <p>Referenced by <a href=\"book.html\">book</a>, "
+                + "<a href=\"word.html\">word</a>.</p>" + System.lineSeparator();
+        assertEquals(without.toString(), with.toString().replace(backlinks, ""));
+        assertEquals(true, with.toString().contains(backlinks));
+        with.clear();
+        without.clear();
+        Glossary.renderTermPage(model, model.id("book"), linker, graph, with);
+        Glossary.renderTermPage(model, model.id("book"), linker, without);
+        assertEquals(without.toString(), with.toString());
+
+    }
+
+}
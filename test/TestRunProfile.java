@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+/**
+ * Test methods in RunProfile.
+ */
+public class TestRunProfile {
+
+    /**
+     * Test begin ends the running stage and keeps the stages in order.
+     */
+    @Test
+    public void testBegin() {
+        RunProfile profile = new RunProfile();
+
+        profile.begin("read");
+        profile.begin("write");
+        profile.end();
+        profile.end();
+
+        assertEquals(2, profile.stages());
+        assertEquals("read", profile.stage(0));
+        assertEquals("write", profile.stage(1));
+
+    }
+
+    /**
+     * Test the counting page writer and the linker of a profiled run count
+     * the files written and the links emitted.
+     */
+    @Test
+    public void testCounting() {
+        RunProfile profile = new RunProfile();
+        GlossaryModel model = GlossaryModel.read("data/terms.txt");
+        HashMap<String, String> pages = new HashMap<>();
+
+        Glossary.writePages(model, new TermLinker(model, profile),
+                profile.counting((name, page) -> pages.put(name, page.toString())),
+                1);
+
+        assertEquals(pages.size(), profile.filesWritten());
+        final long links = 9;
+        assertEquals(links, profile.links());
+        assertEquals(true, profile.toJson().contains("\"filesWritten\":8,"));
+
+    }
+
+    /**
+     * Test generate times the stages of a run.
+     *
+     * @throws IOException
+     *             if the output folder cannot be created
+     */
+    @Test
+    public void testGenerate() throws IOException {
+        RunProfile profile = new RunProfile();
+        String folder = Files.createTempDirectory("profile").toString();
+
+        Glossary.generate("data/terms.txt", folder,
+                GlossaryOptions.parse(new String[0]), 1, profile);
+
+        assertEquals(4, profile.stages());
+        assertEquals("read", profile.stage(0));
+        assertEquals("term pages", profile.stage(3));
+        assertEquals(true, profile.summary().contains(" in 8 files"));
+
+    }
+
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in SearchIndex.
+ */
+public class TestSearchIndex {
+
+    /**
+     * Creates a glossary with terms sharing prefixes, of mixed case and with
+     * characters escaped in JSON.
+     *
+     * @return the model of the glossary
+     */
+    private static GlossaryModel createModel() {
+        Map<String, String> glossary = new Map1L<>();
+        glossary.add("book", "pages");
+        glossary.add("bookmark", "a mark");
+        glossary.add("books", "more than one book");
+        glossary.add("Avocado", "a fruit");
+        glossary.add("say \"hi\"", "a greeting");
+        return GlossaryModel.of(glossary);
+    }
+
+    /**
+     * Test sharedPrefix does not split a surrogate pair.
+     */
+    @Test
+    public void testSharedPrefix() {
+        assertEquals(4, SearchIndex.sharedPrefix("book", "bookmark"));
+        assertEquals(0, SearchIndex.sharedPrefix("book", "Avocado"));
+        assertEquals(1, SearchIndex.sharedPrefix("a\uD83D\uDE00",
+                "a\uD83D\uDE01"));
+
+    }
+
+    /**
+     * Test write front codes all the terms in id order into one table.
+     */
+    @Test
+    public void testWrite() {
+        HashMap<String, String> files = new HashMap<>();
+
+        SearchIndex.write(createModel(), null,
+                (name, file) -> files.put(name, file.toString()));
+
+        assertEquals(1, files.size());
+        assertEquals("{\"version\":1,\"count\":5,\"block\":16,\"blocks\":[["
+                + "\"Avocado\",0,\"book\",4,\"mark\",4,\"s\",0,\"say \\\"hi\\\"\"]]}",
+                files.get("search-index.json"));
+
+    }
+
+    /**
+     * Test write starts a new block with a whole term every BLOCK_SIZE terms.
+     */
+    @Test
+    public void testWriteBlocks() {
+        Map<String, String> glossary = new Map1L<>();
+        for (int i = 0; i <= SearchIndex.BLOCK_SIZE; i++) {
+            glossary.add("t" + (char) ('a' + i), "a term");
+        }
+        HashMap<String, String> files = new HashMap<>();
+
+        SearchIndex.write(GlossaryModel.of(glossary), null,
+                (name, file) -> files.put(name, file.toString()));
+
+        String index = files.get("search-index.json");
+        assertEquals(true, index.contains("\"count\":17,"));
+        assertEquals(true, index.contains("[\"ta\",1,\"b\","));
+        assertEquals(true, index.endsWith("1,\"p\"],[\"tq\"]]}"));
+
+    }
+
+    /**
+     * Test write with shards lists the shards and writes one table each.
+     */
+    @Test
+    public void testWriteShards() {
+        GlossaryModel model = createModel();
+        IndexShards shards = IndexShards.byLetter(model);
+        HashMap<String, String> files = new HashMap<>();
+
+        SearchIndex.write(model, shards,
+                (name, file) -> files.put(name, file.toString()));
+
+        assertEquals(4, files.size());
+        assertEquals("{\"version\":1,\"shards\":["
+                + "{\"label\":\"A\",\"file\":\"search-A.json\",\"count\":1},"
+                + "{\"label\":\"B\",\"file\":\"search-B.json\",\"count\":3},"
+                + "{\"label\":\"S\",\"file\":\"search-S.json\",\"count\":1}]}",
+                files.get("search-index.json"));
+        assertEquals("{\"version\":1,\"count\":3,\"block\":16,\"blocks\":[["
+                + "\"book\",4,\"mark\",4,\"s\"]]}", files.get("search-B.json"));
+
+    }
+
+}
@@ -0,0 +1,56 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.Test;
+
+import components.set.Set;
+import components.set.Set1L;
+
+/**
+ * Test methods in SeparatorTable.
+ */
+public class TestSeparatorTable {
+
+    /**
+     * Test isSeparator agrees with the set built by Glossary.generateElements
+     * for every character below 512.
+     */
+    @Test
+    public void testIsSeparator() {
+        Set<Character> expected = new Set1L<>();
+        Glossary.generateElements(Glossary.SEPARATORS, expected);
+        final int limit = 512;
+
+        for (char c = 0; c < limit; c++) {
+            assertEquals(expected.contains(c), SeparatorTable.DEFAULT.isSeparator(c));
+        }
+
+    }
+
+    /**
+     * Test isSeparator with separators outside of the bit lookup.
+     */
+    @Test
+    public void testIsSeparator2() {
+        SeparatorTable table = new SeparatorTable(" \u2014\u00a0");
+
+        assertEquals(true, table.isSeparator('\u2014'));
+        assertEquals(true, table.isSeparator('\u00a0'));
+        assertEquals(true, table.isSeparator(' '));
+        assertEquals(false, table.isSeparator('\u2013'));
+        assertEquals(false, table.isSeparator('a'));
+
+    }
+
+    /**
+     * Test isSeparator with no separators.
+     */
+    @Test
+    public void testIsSeparator3() {
+        SeparatorTable table = new SeparatorTable("");
+
+        assertEquals(false, table.isSeparator('\u00a0'));
+        assertEquals(false, table.isSeparator('\u2014'));
+
+    }
+
+}
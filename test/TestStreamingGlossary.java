@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in StreamingGlossary.
+ */
+public class TestStreamingGlossary {
+
+    /**
+     * Returns the glossary of the records found by scan.
+     *
+     * @param records
+     *            the scanned file
+     * @return map from each term to its definition
+     */
+    private static Map<String, String> toMap(StreamingGlossary records) {
+        Map<String, String> glossary = new Map1L<>();
+        for (int i = 0; i < records.size(); i++) {
+            glossary.add(records.term(i), records.definition(i));
+        }
+        return glossary;
+    }
+
+    /**
+     * Test scan finds the same glossary as Glossary.createGlossary.
+     */
+    @Test
+    public void testScan() {
+        String filePath = "data/terms.txt";
+        StreamingGlossary records = StreamingGlossary.scan(filePath);
+        final int expectedSize = 7;
+
+        assertEquals(expectedSize, records.size());
+        assertEquals("meaning", records.term(0));
+        assertEquals(Glossary.createGlossary(filePath), toMap(records));
+
+    }
+
+    /**
+     * Test scan with a definition on multiple lines.
+     */
+    @Test
+    public void testScan2() {
+        String filePath = "test/TestFileForCreateGlossary3.txt";
+        StreamingGlossary records = StreamingGlossary.scan(filePath);
+
+        assertEquals(Glossary.createGlossary(filePath), toMap(records));
+
+    }
+
+    /**
+     * Test scan with \r\n line breaks and a last record ending with the file.
+     *
+     * @throws IOException
+     *             if the temporary file cannot be written
+     */
+    @Test
+    public void testScan3() throws IOException {
+        Path file = Files.createTempFile("glossary", ".txt");
+        Files.write(file, "term\r\na word\r\nin a glossary\r\n\r\nbook\r\na work"
+                .getBytes(StandardCharsets.UTF_8));
+        StreamingGlossary records = StreamingGlossary.scan(file.toString());
+
+        assertEquals(2, records.size());
+        assertEquals("term", records.term(0));
+        assertEquals("a word in a glossary", records.definition(0));
+        assertEquals("book", records.term(1));
+        assertEquals("a work", records.definition(1));
+
+    }
+
+    /**
+     * Test write gives the same pages as the map based generation.
+     *
+     * @throws IOException
+     *             if the pages cannot be read
+     */
+    @Test
+    public void testWrite() throws IOException {
+        String filePath = "data/terms.txt";
+        Path streamed = Files.createTempDirectory("streamed");
+        Path mapped = Files.createTempDirectory("mapped");
+        Map<String, String> glossary = Glossary.createGlossary(filePath);
+        GlossaryModel model = GlossaryModel.of(glossary);
+        TermLinker linker = new TermLinker(model);
+
+        StreamingGlossary.scan(filePath).write(new FolderPageWriter(streamed.toString()));
+        TermPages.write(model, linker, new FolderPageWriter(mapped.toString()), 1);
+
+        for (Map.Pair<String, String> pair : glossary) {
+            String name = pair.key() + ".html";
+            assertEquals(new String(Files.readAllBytes(mapped.resolve(name))),
+                    new String(Files.readAllBytes(streamed.resolve(name))));
+        }
+        String index = new String(Files.readAllBytes(streamed.resolve("index.html")));
+        String expected = new String(Files.readAllBytes(
+                Paths.get("test/ExpectedOutputOfTestOutputIndexPage.html")));
+        assertEquals(expected.replace("\r\n", "\n"),
+                index.replace(System.lineSeparator(), "\n"));
+
+    }
+
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test methods in TermIndex.
+ */
+public class TestTermIndex {
+
+    /**
+     * Test method id finds each term by its position and nothing else.
+     */
+    @Test
+    public void testId() {
+        TermIndex index = new TermIndex(new String[] { "term", "word", "meaning" });
+
+        assertEquals(3, index.size());
+        assertEquals(0, index.id("term"));
+        assertEquals(1, index.id("word"));
+        assertEquals(2, index.id("meaning"));
+        assertEquals(TermIndex.NOT_FOUND, index.id("terms"));
+        assertEquals(TermIndex.NOT_FOUND, index.id("ter"));
+        assertEquals(TermIndex.NOT_FOUND, index.id(""));
+        assertEquals("word", index.term(1));
+
+    }
+
+    /**
+     * Test method id on a range of a longer text.
+     */
+    @Test
+    public void testId2() {
+        TermIndex index = new TermIndex(new String[] { "term", "word" });
+        String text = "a word, a term";
+
+        assertEquals(1, index.id(text, 2, 6));
+        assertEquals(0, index.id(text, 10, 14));
+        assertEquals(TermIndex.NOT_FOUND, index.id(text, 2, 7));
+        assertEquals(TermIndex.NOT_FOUND, index.id(text, 0, 1));
+
+    }
+
+    /**
+     * Test method id with many terms, colliding hash codes and an empty index.
+     */
+    @Test
+    public void testId3() {
+        final int count = 5000;
+        String[] terms = new String[count + 2];
+        for (int i = 0; i < count; i++) {
+            terms[i] = "t" + i;
+        }
+        //"Aa" and "BB" have the same hash code
+        terms[count] = "Aa";
+        terms[count + 1] = "BB";
+        TermIndex index = new TermIndex(terms);
+
+        for (int i = 0; i < terms.length; i++) {
+            assertEquals(i, index.id(terms[i]));
+        }
+        assertEquals(TermIndex.NOT_FOUND, index.id("t" + count));
+        assertEquals(TermIndex.NOT_FOUND, index.id("C#"));
+        assertEquals(TermIndex.NOT_FOUND, new TermIndex(new String[0]).id("t0"));
+
+    }
+
+    /**
+     * Test method appendAnchor writes the same tag as Glossary.termLink.
+     */
+    @Test
+    public void testAppendAnchor() {
+        TermIndex index = new TermIndex(new String[] { "term", "caf\u00e9" });
+        PageBuffer page = new PageBuffer();
+
+        index.appendAnchor(0, page);
+        index.appendAnchor(1, page);
+
+        assertEquals(Glossary.termLink("term") + Glossary.termLink("caf\u00e9"),
+                page.toString());
+
+    }
+
+}
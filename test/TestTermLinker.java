@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.Test;
+
+import components.map.Map;
+
+/**
+ * Test methods in TermLinker.
+ */
+public class TestTermLinker {
+
+    /**
+     * Test method link gives the same result as Glossary.linkingWords when a
+     * term repeats and another word only contains a term.
+     */
+    @Test
+    public void testLink() {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        Map<String, String> linkMap = Glossary.createLinkMap(glossary);
+        TermLinker linker = new TermLinker(glossary);
+        String definition = "a term, two terms and (term)";
+
+        String expected = "a <a href=\"term.html\">term</a>, two terms and "
+                + "(<a href=\"term.html\">term</a>)";
+        assertEquals(expected, linker.link(definition));
+        assertEquals(Glossary.linkingWords(definition, glossary, linkMap),
+                linker.link(definition));
+
+    }
+
+    /**
+     * Test method link when the definition contains no term.
+     */
+    @Test
+    public void testLink2() {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        TermLinker linker = new TermLinker(glossary);
+
+        assertEquals("A random sentence, no need to add links",
+                linker.link("A random sentence, no need to add links"));
+
+    }
+
+    /**
+     * Test method link when the definition is only separators.
+     */
+    @Test
+    public void testLink3() {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        TermLinker linker = new TermLinker(glossary);
+
+        assertEquals(", . ;", linker.link(", . ;"));
+        assertEquals("<a href=\"index.html\">index</a>", linker.indexLink());
+
+    }
+
+    /**
+     * Test method linkedTerms gives each linked term once, in order.
+     */
+    @Test
+    public void testLinkedTerms() {
+        Map<String, String> glossary = Glossary.createGlossary("data/terms.txt");
+        TermLinker linker = new TermLinker(glossary);
+
+        assertArrayEquals(new String[] { "meaning", "term" },
+                linker.linkedTerms("term, meaning; a term (terms) and term"));
+        assertArrayEquals(new String[0], linker.linkedTerms("no terms here"));
+
+    }
+
+}
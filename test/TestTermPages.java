@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import components.map.Map;
+import components.map.Map1L;
+
+/**
+ * Test methods in TermPages.
+ */
+public class TestTermPages {
+
+    /**
+     * Creates a glossary with {@code count} terms, each defined with other
+     * terms.
+     *
+     * @param count
+     *            number of terms
+     * @return the glossary
+     */
+    private static Map<String, String> createLargeGlossary(int count) {
+        Map<String, String> glossary = new Map1L<>();
+        for (int i = 0; i < count; i++) {
+            glossary.add("t" + i, "see t" + (i + 1) % count + ", not t" + i + "x");
+        }
+        return glossary;
+    }
+
+    /**
+     * Test method write produces the same pages on one and on several workers.
+     *
+     * @throws IOException
+     *             if the pages cannot be read
+     */
+    @Test
+    public void testWrite() throws IOException {
+        final int count = 300;
+        final int workers = 4;
+        GlossaryModel model = GlossaryModel.of(createLargeGlossary(count));
+        TermLinker linker = new TermLinker(model);
+        Path sequential = Files.createTempDirectory("sequential");
+        Path parallel = Files.createTempDirectory("parallel");
+
+        TermPages.write(model, linker, new FolderPageWriter(sequential.toString()), 1);
+        TermPages.write(model, linker, new FolderPageWriter(parallel.toString()),
+                workers);
+
+        for (int i = 0; i < count; i++) {
+            String name = "t" + i + ".html";
+            assertEquals(new String(Files.readAllBytes(sequential.resolve(name))),
+                    new String(Files.readAllBytes(parallel.resolve(name))));
+        }
+
+    }
+
+    /**
+     * Test method write gives the same page as Glossary.outputTermPage.
+     *
+     * @throws IOException
+     *             if the pages cannot be read
+     */
+    @Test
+    public void testWrite2() throws IOException {
+        GlossaryModel model = GlossaryModel.of(Glossary.createGlossary("data/terms.txt"));
+        TermLinker linker = new TermLinker(model);
+        Path folder = Files.createTempDirectory("pages");
+
+        TermPages.write(model, linker, new FolderPageWriter(folder.toString()), 2);
+
+        String expected = new String(Files.readAllBytes(
+                Paths.get("test/ExpectedOutputOfTestOutputTermPage.html")));
+        String actual = new String(Files.readAllBytes(folder.resolve("meaning.html")));
+        assertEquals(expected.replace("\r\n", "\n"),
+                actual.replace(System.lineSeparator(), "\n"));
+
+    }
+
+    /**
+     * Test method write hands every page to a capturing PageWriter.
+     */
+    @Test
+    public void testWrite3() {
+        GlossaryModel model = GlossaryModel.of(Glossary.createGlossary("data/terms.txt"));
+        TermLinker linker = new TermLinker(model);
+        ConcurrentHashMap<String, String> captured = new ConcurrentHashMap<>();
+
+        TermPages.write(model, linker,
+                (name, page) -> captured.put(name, page.toString()), 2);
+
+        assertEquals(model.size(), captured.size());
+        assertEquals(true, captured.get("term.html")
+                .contains("<a href=\"definition.html\">definition</a>"));
+
+    }
+
+    /**
+     * Test method write only writes the pages of the given ids.
+     */
+    @Test
+    public void testWrite4() {
+        GlossaryModel model = GlossaryModel.of(Glossary.createGlossary("data/terms.txt"));
+        TermLinker linker = new TermLinker(model);
+        ConcurrentHashMap<String, String> captured = new ConcurrentHashMap<>();
+
+        int[] ids = { model.id("term"), model.id("word") };
+        TermPages.write(model, ids, linker, null,
+                (name, page) -> captured.put(name, page.toString()), 1);
+
+        assertEquals(2, captured.size());
+        assertEquals(true, captured.containsKey("term.html"));
+        assertEquals(true, captured.containsKey("word.html"));
+
+    }
+
+    /**
+     * Test method write writes every page on the calling thread on one
+     * worker, however many pages there are.
+     */
+    @Test
+    public void testWrite5() {
+        final int count = 300;
+        GlossaryModel model = GlossaryModel.of(createLargeGlossary(count));
+        TermLinker linker = new TermLinker(model);
+        ConcurrentHashMap<String, String> threads = new ConcurrentHashMap<>();
+
+        TermPages.write(model, linker,
+                (name, page) -> threads.put(Thread.currentThread().getName(), name),
+                1);
+
+        assertEquals(1, threads.size());
+        assertEquals(true, threads.containsKey(Thread.currentThread().getName()));
+
+    }
+
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.Test;
+
+/**
+ * Test methods in ZipPageWriter.
+ */
+public class TestZipPageWriter {
+
+    /**
+     * Writes the pages of data/terms.txt into an archive.
+     *
+     * @param stored
+     *            whether entries are stored instead of deflated
+     * @return the path of the archive
+     * @throws IOException
+     *             if the archive cannot be created
+     */
+    private static Path writeArchive(boolean stored) throws IOException {
+        GlossaryModel model = GlossaryModel.of(Glossary.createGlossary("data/terms.txt"));
+        TermLinker linker = new TermLinker(model);
+        Path archive = Files.createTempFile("glossary", ".zip");
+
+        ZipPageWriter pages = new ZipPageWriter(archive.toString(), stored);
+        PageBuffer page = PageBuffer.forThread();
+        Glossary.renderIndexPage(model, page);
+        pages.write("index.html", page);
+        TermPages.write(model, linker, pages, 2);
+        pages.close();
+        return archive;
+    }
+
+    /**
+     * Reads an entry of an archive as text.
+     *
+     * @param zip
+     *            the archive
+     * @param name
+     *            the name of the entry
+     * @return the text of the entry
+     * @throws IOException
+     *             if the entry cannot be read
+     */
+    private static String read(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        return new String(zip.getInputStream(entry).readAllBytes(),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Test deflated archive has the index page and every term page at its root.
+     *
+     * @throws IOException
+     *             if the archive cannot be read
+     */
+    @Test
+    public void testWrite() throws IOException {
+        Path archive = writeArchive(false);
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertEquals(Glossary.createGlossary("data/terms.txt").size() + 1,
+                    zip.size());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("index.html").getMethod());
+            String expected = new String(Files.readAllBytes(
+                    Path.of("test/ExpectedOutputOfTestOutputTermPage.html")));
+            assertEquals(expected.replace("\r\n", "\n"),
+                    read(zip, "meaning.html").replace(System.lineSeparator(), "\n"));
+        }
+
+    }
+
+    /**
+     * Test stored archive has the same pages as the deflated one.
+     *
+     * @throws IOException
+     *             if the archives cannot be read
+     */
+    @Test
+    public void testWrite2() throws IOException {
+        Path deflated = writeArchive(false);
+        Path stored = writeArchive(true);
+
+        try (ZipFile a = new ZipFile(deflated.toFile());
+                ZipFile b = new ZipFile(stored.toFile())) {
+            assertEquals(ZipEntry.STORED, b.getEntry("index.html").getMethod());
+            assertEquals(a.size(), b.size());
+            assertEquals(read(a, "index.html"), read(b, "index.html"));
+            assertEquals(read(a, "term.html"), read(b, "term.html"));
+        }
+
+    }
+
+    /**
+     * Test a generate that fails after the archive is created leaves no
+     * archive behind.
+     *
+     * @throws IOException
+     *             if the temporary folder cannot be created
+     */
+    @Test
+    public void testGenerateFailure() throws IOException {
+        Path folder = Files.createTempDirectory("archive");
+        Path archive = folder.resolve("glossary.zip");
+
+        boolean failed = false;
+        try {
+            Glossary.generate(folder.resolve("missing.txt").toString(), null,
+                    GlossaryOptions.parse(new String[] { "--archive=" + archive }),
+                    2);
+        } catch (RuntimeException e) {
+            failed = true;
+        }
+
+        assertEquals(true, failed);
+        assertEquals(false, Files.exists(archive));
+
+    }
+
+}